@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.canvas.apiimpl.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import grondag.canvas.apiimpl.MutableQuadViewImpl;
+import grondag.canvas.apiimpl.RenderMaterialImpl;
+import grondag.canvas.material.BenchmarkData;
+
+/**
+ * Reading mesh quads into standard layout, compact decode vs copy of standard encoding.
+ * Compact decode should stay within a few percent of copy.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MeshDecodeBenchmark {
+    @Param({"1", "3"})
+    public int spriteDepth;
+    
+    @Param({"2048"})
+    public int quadCount;
+    
+    private int[] standard;
+    private int[] compact;
+    private final int[] target = new int[MeshEncodingHelper.MAX_STRIDE];
+    
+    @Setup
+    public void setup() {
+        final RenderMaterialImpl.Value mat = BenchmarkData.material(spriteDepth);
+        final MutableQuadViewImpl[] quads = BenchmarkData.quads(quadCount, mat);
+        final int stride = MeshEncodingHelper.stride(spriteDepth);
+        standard = new int[quadCount * stride];
+        
+        for(int n = 0; n < quadCount; n++) {
+            final MutableQuadViewImpl q = quads[n];
+            
+            // model quads are block-local, section offsets would not quantize
+            final float dx = (float) Math.floor(Math.min(Math.min(q.x(0), q.x(1)), Math.min(q.x(2), q.x(3))));
+            final float dy = (float) Math.floor(Math.min(Math.min(q.y(0), q.y(1)), Math.min(q.y(2), q.y(3))));
+            final float dz = (float) Math.floor(Math.min(Math.min(q.z(0), q.z(1)), Math.min(q.z(2), q.z(3))));
+            for(int i = 0; i < 4; i++) {
+                q.pos(i, q.x(i) - dx, q.y(i) - dy, q.z(i) - dz);
+            }
+            
+            System.arraycopy(q.data(), 0, standard, n * stride, stride);
+        }
+        
+        compact = CompactMeshEncodingHelper.encode(standard);
+        if(compact == null || compact.length >= standard.length) {
+            throw new IllegalStateException("Benchmark quads could not be compacted");
+        }
+    }
+    
+    @Benchmark
+    public int[] copyStandard() {
+        final int[] data = standard;
+        final int[] target = this.target;
+        final int limit = data.length;
+        int index = 0;
+        while(index < limit) {
+            final int stride = MeshEncodingHelper.stride(RenderMaterialImpl.byIndex(data[index + MeshEncodingHelper.HEADER_MATERIAL]).spriteDepth());
+            System.arraycopy(data, index, target, 0, stride);
+            index += stride;
+        }
+        return target;
+    }
+    
+    @Benchmark
+    public int[] decodeCompact() {
+        final int[] data = compact;
+        final int[] target = this.target;
+        final int limit = data.length;
+        int index = 0;
+        while(index < limit) {
+            index = CompactMeshEncodingHelper.decode(data, index, target);
+        }
+        return target;
+    }
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.canvas.buffer.packing;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import grondag.canvas.material.BenchmarkData;
+import grondag.canvas.material.MaterialState;
+
+/**
+ * Translucent quad sort for one section. Unsorted vertex data is restored before
+ * each invocation so every sort does the full work.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuadSortBenchmark {
+    @Param({"256", "4096"})
+    public int quadCount;
+    
+    private VertexCollector collector;
+    private int[] unsorted;
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        final MaterialState state = BenchmarkData.materialState(BenchmarkData.PROPS_FLAT);
+        collector = BenchmarkData.collector(true, state);
+        
+        final int vertexInts = state.format.vertexStrideBytes / 4;
+        final int quadInts = vertexInts * 4;
+        collector.allocate(quadCount * quadInts);
+        final int[] data = collector.rawData();
+        final Random r = new Random(BenchmarkData.SEED);
+        
+        // axis-aligned unit quads at random positions - only position matters to sort
+        for(int q = 0; q < quadCount; q++) {
+            final float x = r.nextInt(16);
+            final float y = r.nextInt(16);
+            final float z = r.nextInt(16);
+            for(int v = 0; v < 4; v++) {
+                final int i = q * quadInts + v * vertexInts;
+                data[i] = Float.floatToRawIntBits(x + (v == 1 || v == 2 ? 1 : 0));
+                data[i + 1] = Float.floatToRawIntBits(y);
+                data[i + 2] = Float.floatToRawIntBits(z + (v >= 2 ? 1 : 0));
+            }
+        }
+        
+        unsorted = new int[quadCount * quadInts];
+        System.arraycopy(data, 0, unsorted, 0, unsorted.length);
+    }
+    
+    @Setup(Level.Invocation)
+    public void restore() {
+        System.arraycopy(unsorted, 0, collector.rawData(), 0, unsorted.length);
+    }
+    
+    @Benchmark
+    public VertexCollector sortQuads() {
+        collector.sortQuads(5.5, 20.0, -3.5);
+        return collector;
+    }
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.canvas.chunk.occlusion;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import grondag.canvas.material.BenchmarkData;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.client.render.chunk.ChunkOcclusionGraph;
+import net.minecraft.client.render.chunk.ChunkOcclusionGraphBuilder;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Visibility graph build for one section. Runs the vanilla builder without the
+ * Canvas mixin, so this is the baseline the mixin is measured against.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OcclusionBenchmark {
+    /** Terrain shape: lower half solid, solid with noise caves, or scattered blocks */
+    @Param({"HALF", "CAVES", "SPARSE"})
+    public String shape;
+    
+    private BlockPos[] closed;
+    
+    @Setup
+    public void setup() {
+        final Random r = new Random(BenchmarkData.SEED);
+        final ObjectArrayList<BlockPos> list = new ObjectArrayList<>();
+        
+        for(int x = 0; x < 16; x++) {
+            for(int y = 0; y < 16; y++) {
+                for(int z = 0; z < 16; z++) {
+                    final boolean solid;
+                    switch(shape) {
+                    case "HALF":
+                        solid = y < 8;
+                        break;
+                    case "CAVES":
+                        solid = r.nextInt(5) != 0;
+                        break;
+                    default:
+                        solid = r.nextInt(10) == 0;
+                        break;
+                    }
+                    if(solid) {
+                        list.add(new BlockPos(x, y, z));
+                    }
+                }
+            }
+        }
+        closed = list.toArray(new BlockPos[list.size()]);
+    }
+    
+    @Benchmark
+    public ChunkOcclusionGraph build() {
+        final ChunkOcclusionGraphBuilder builder = new ChunkOcclusionGraphBuilder();
+        for(BlockPos pos : closed) {
+            builder.markClosed(pos);
+        }
+        return builder.build();
+    }
+}
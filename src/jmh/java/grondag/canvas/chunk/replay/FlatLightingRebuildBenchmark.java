@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+
+package grondag.canvas.chunk.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.minecraft.Bootstrap;
+
+/**
+ * Headless rebuilds of captured chunks with flat lighting, world lookup for every
+ * quad vs memoized per block and cull face. Captures come from the captureRebuilds
+ * debug option, same as {@link ReplayRunner}. Region cache is included for reference.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlatLightingRebuildBenchmark {
+    @Param({"FLAT_UNCACHED", "FLAT_MEMOIZED", "REGION_CACHE"})
+    public RebuildReplay.Lighting lighting;
+    
+    @Param({"1", "3"})
+    public int quadsPerFace;
+    
+    @Param({"run/canvas_capture"})
+    public String captureDir;
+    
+    private CapturedRebuild[] captures;
+    private RebuildReplay replay;
+    
+    @Setup
+    public void setup() throws IOException {
+        final File[] files = new File(captureDir).listFiles((d, n) -> n.endsWith(".bin"));
+        if(files == null || files.length == 0) {
+            throw new IllegalStateException("No captured rebuilds in " + captureDir + " - enable captureRebuilds in game or pass -p captureDir=...");
+        }
+        Arrays.sort(files);
+        
+        Bootstrap.initialize();
+        
+        captures = new CapturedRebuild[files.length];
+        for(int i = 0; i < files.length; i++) {
+            captures[i] = CapturedRebuild.read(files[i]);
+        }
+        
+        replay = new RebuildReplay(lighting, quadsPerFace);
+    }
+    
+    /** One pass over all captures */
+    @Benchmark
+    public long rebuild() {
+        final RebuildReplay replay = this.replay;
+        replay.resetTotals();
+        for(CapturedRebuild c : captures) {
+            replay.replay(c);
+        }
+        return replay.checksum();
+    }
+}
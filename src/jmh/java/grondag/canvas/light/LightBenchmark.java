@@ -0,0 +1,137 @@
+package grondag.canvas.light;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import grondag.canvas.material.BenchmarkData;
+
+/**
+ * Lighting math that does not need a world: the smoothing blur from {@link LightSmoother},
+ * the per-face combine that {@link AoCalculator} runs for every smooth-lit quad, and
+ * HD light and AO map generation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LightBenchmark {
+    private static final int FACE_COUNT = 256;
+    
+    private final int[] smoothSrc = new int[LightSmoother.POS_COUNT];
+    private final int[] smoothInput = new int[LightSmoother.POS_COUNT];
+    private final int[] smoothDest = new int[LightSmoother.POS_COUNT];
+    
+    private final AoFaceData[] faces = new AoFaceData[FACE_COUNT];
+    private final AoFaceData blendOut = new AoFaceData();
+    private final float[][] weights = new float[4][4];
+    
+    private final long[] lightKeys = new long[FACE_COUNT];
+    private final long[] aoKeys = new long[FACE_COUNT];
+    private final int[] lightmap = new int[LightmapSizer.lightmapPixels];
+    
+    @Setup
+    public void setup() {
+        final Random r = new Random(BenchmarkData.SEED);
+        
+        for(int i = 0; i < smoothInput.length; i++) {
+            smoothInput[i] = r.nextInt(8) == 0 ? LightSmoother.OPAQUE : r.nextInt(16) << 4;
+        }
+        
+        for(int i = 0; i < FACE_COUNT; i++) {
+            final AoFaceData fd = new AoFaceData();
+            fd.center = light(r);
+            fd.top = light(r);
+            fd.bottom = light(r);
+            fd.left = light(r);
+            fd.right = light(r);
+            fd.topLeft = light(r);
+            fd.topRight = light(r);
+            fd.bottomLeft = light(r);
+            fd.bottomRight = light(r);
+            fd.aoTopLeft = r.nextInt(256);
+            fd.aoTopRight = r.nextInt(256);
+            fd.aoBottomLeft = r.nextInt(256);
+            fd.aoBottomRight = r.nextInt(256);
+            faces[i] = fd;
+            
+            lightKeys[i] = LightKey.toLightmapKey(r.nextInt(241), r.nextInt(241), r.nextInt(241), r.nextInt(241), 
+                    r.nextInt(241), r.nextInt(241), r.nextInt(241), r.nextInt(241), r.nextInt(241));
+            aoKeys[i] = LightKey.toAoKey(r.nextInt(256), r.nextInt(256), r.nextInt(256), r.nextInt(256));
+        }
+        
+        for(int i = 0; i < 4; i++) {
+            final float u = r.nextFloat();
+            final float v = r.nextFloat();
+            weights[i][0] = u * v;
+            weights[i][1] = (1 - u) * v;
+            weights[i][2] = (1 - u) * (1 - v);
+            weights[i][3] = u * (1 - v);
+        }
+    }
+    
+    /** Packed block and sky light, occasionally opaque */
+    private static int light(Random r) {
+        return r.nextInt(10) == 0 ? AoFaceData.OPAQUE : (r.nextInt(16) << 4) | (r.nextInt(16) << 20);
+    }
+    
+    /** Both blur passes for one channel of one section */
+    @Benchmark
+    public int[] smoothSection() {
+        System.arraycopy(smoothInput, 0, smoothSrc, 0, smoothSrc.length);
+        LightSmoother.smooth(3, smoothSrc, smoothDest);
+        LightSmoother.smooth(2, smoothDest, smoothSrc);
+        return smoothSrc;
+    }
+    
+    @Benchmark
+    public void aoFaceCombine(Blackhole bh) {
+        final float[][] weights = this.weights;
+        for(AoFaceData fd : faces) {
+            fd.resetCalc();
+            final AoFaceCalc calc = fd.calc();
+            for(int i = 0; i < 4; i++) {
+                bh.consume(calc.weightedCombinedLight(weights[i]));
+                bh.consume(calc.weigtedAo(weights[i]));
+            }
+        }
+    }
+    
+    @Benchmark
+    public AoFaceData aoFaceBlend() {
+        final AoFaceData[] faces = this.faces;
+        for(int i = 1; i < FACE_COUNT; i++) {
+            AoFaceData.weightedBlend(faces[i - 1], 0.25f, faces[i], 0.75f, blendOut);
+        }
+        return blendOut;
+    }
+    
+    @Benchmark
+    public int[] generateLightmaps() {
+        for(long key : lightKeys) {
+            LightmapHdCalc.computeLight(lightmap, key, 0);
+        }
+        return lightmap;
+    }
+    
+    @Benchmark
+    public int[] generateAoMaps() {
+        for(long key : aoKeys) {
+            AoMapHd.computeAo(lightmap, key, 0);
+        }
+        return lightmap;
+    }
+}
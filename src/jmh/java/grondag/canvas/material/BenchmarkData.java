@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.canvas.material;
+
+import java.util.Random;
+
+import grondag.canvas.apiimpl.MaterialConditionImpl;
+import grondag.canvas.apiimpl.MutableQuadViewImpl;
+import grondag.canvas.apiimpl.RenderMaterialImpl;
+import grondag.canvas.apiimpl.util.MeshEncodingHelper;
+import grondag.canvas.buffer.packing.VertexCollector;
+import grondag.canvas.buffer.packing.VertexCollectorList;
+import net.fabricmc.fabric.api.renderer.v1.mesh.QuadEmitter;
+import net.minecraft.util.math.Direction;
+
+/**
+ * Synthetic section data shared by benchmarks. Everything here is usable without
+ * GL, a running client or mixins applied. Seeded so runs are comparable.
+ */
+public final class BenchmarkData {
+    private BenchmarkData() {}
+    
+    public static final long SEED = 42;
+    
+    /** Flat lighting, vertex color */
+    public static final int PROPS_FLAT = ShaderProps.props(1, 0);
+    
+    /** HD lightmap coordinates, vertex color */
+    public static final int PROPS_HD = ShaderProps.props(1, ShaderProps.SMOOTH_LIGHTMAPS);
+    
+    /** Three sprite layers */
+    public static final int PROPS_LAYERED = ShaderProps.props(3, 0);
+    
+    public static int props(String format) {
+        switch(format) {
+        case "HD":
+            return PROPS_HD;
+        case "LAYERED":
+            return PROPS_LAYERED;
+        default:
+            return PROPS_FLAT;
+        }
+    }
+    
+    public static MaterialState materialState(int props) {
+        return MaterialState.get(ShaderManager.INSTANCE.getDefault(), MaterialConditionImpl.ALWAYS, props);
+    }
+    
+    public static RenderMaterialImpl.Value material(int spriteDepth) {
+        return new RenderMaterialImpl.Finder().spriteDepth(spriteDepth).find();
+    }
+    
+    public static VertexCollector collector(boolean translucent, MaterialState state) {
+        return new VertexCollector(new VertexCollectorList(translucent)).prepare(state, state.format);
+    }
+    
+    private static class Quad extends MutableQuadViewImpl {
+        private Quad() {
+            begin(new int[MeshEncodingHelper.MAX_STRIDE], 0);
+        }
+        
+        @Override
+        public QuadEmitter emit() {
+            return this;
+        }
+    }
+    
+    /**
+     * Unit block faces at random positions within a section, with random colors,
+     * lightmaps and sprite coordinates for all layers of the material.
+     */
+    public static MutableQuadViewImpl[] quads(int count, RenderMaterialImpl.Value material) {
+        final Random r = new Random(SEED);
+        final MutableQuadViewImpl[] result = new MutableQuadViewImpl[count];
+        final Direction[] faces = Direction.values();
+        final int depth = material.spriteDepth();
+        
+        for(int n = 0; n < count; n++) {
+            final MutableQuadViewImpl q = new Quad();
+            q.material(material);
+            final Direction face = faces[r.nextInt(6)];
+            q.square(face, 0, 0, 1, 1, r.nextInt(16) / 16f);
+            
+            final float x = r.nextInt(16);
+            final float y = r.nextInt(16);
+            final float z = r.nextInt(16);
+            
+            for(int i = 0; i < 4; i++) {
+                q.pos(i, q.x(i) + x, q.y(i) + y, q.z(i) + z);
+                q.lightmap(i, (r.nextInt(16) << 4) | (r.nextInt(16) << 20));
+                for(int t = 0; t < depth; t++) {
+                    q.spriteColor(i, t, r.nextInt() | 0xFF000000);
+                    q.sprite(i, t, r.nextFloat(), r.nextFloat());
+                }
+            }
+            result[n] = q;
+        }
+        return result;
+    }
+}
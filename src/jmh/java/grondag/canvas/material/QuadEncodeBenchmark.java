@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.canvas.material;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import grondag.canvas.apiimpl.MutableQuadViewImpl;
+import grondag.canvas.apiimpl.RenderMaterialImpl;
+import grondag.canvas.buffer.packing.VertexCollector;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Vertex encoding for one section worth of quads, unrolled encoder vs per-element reference.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuadEncodeBenchmark {
+    @Param({"FLAT", "HD", "LAYERED"})
+    public String format;
+    
+    @Param({"2048"})
+    public int quadCount;
+    
+    private MutableQuadViewImpl[] quads;
+    private MaterialState state;
+    private MaterialVertexFormat vertexFormat;
+    private VertexCollector collector;
+    private final VertexEncodingContext context = new VertexEncodingContext();
+    private final float[] ao = {1f, 0.8f, 0.6f, 0.9f};
+    
+    @Setup
+    public void setup() {
+        final int props = BenchmarkData.props(format);
+        state = BenchmarkData.materialState(props);
+        vertexFormat = state.format;
+        final RenderMaterialImpl.Value mat = BenchmarkData.material(ShaderProps.spriteDepth(props));
+        quads = BenchmarkData.quads(quadCount, mat);
+        collector = BenchmarkData.collector(false, state);
+        context.prepare(mat, ShaderContext.BLOCK_SOLID, new BlockPos(16, 64, 16), ao, 0);
+    }
+    
+    @Benchmark
+    public VertexCollector encode() {
+        final VertexCollector collector = this.collector;
+        collector.clear();
+        collector.prepare(state, vertexFormat);
+        for(MutableQuadViewImpl q : quads) {
+            vertexFormat.encode(q, context, collector);
+        }
+        return collector;
+    }
+    
+    @Benchmark
+    public VertexCollector encodeGeneric() {
+        final VertexCollector collector = this.collector;
+        collector.clear();
+        collector.prepare(state, vertexFormat);
+        for(MutableQuadViewImpl q : quads) {
+            vertexFormat.encodeGeneric(q, context, collector);
+        }
+        return collector;
+    }
+}
@@ -49,6 +49,9 @@ public class Configurator {
         @Comment("Applies material properties and shaders to items. (WIP)")
         boolean itemShaderRender = false;
         
+        @Comment("Draws GUI items in a few batched calls when item shader rendering is enabled. Try without if items in scrolling lists render outside their bounds.")
+        boolean batchGuiItems = false;
+        
         @Comment("Reduces terrain lighting to full darkness in absence of moon/torch light.")
         boolean hardcoreDarkness = false;
         
@@ -94,6 +97,12 @@ public class Configurator {
         @Comment("Forces game to allow up to this many nanoseconds for chunk loading each frame. May prevent chunk load delay at high FPS.")
         long minChunkBudgetNanos = 100000;
         
+        @Comment("Reuses quad lists of simple block models. Faster chunk loading with no visual difference.")
+        boolean cacheBlockModels = true;
+        
+        @Comment("Saves linked shader programs to disk and reuses them on later launches when the driver allows. Faster startup and resource reload.")
+        boolean cacheShaderBinaries = true;
+        
         @Comment("Treats model geometry outside of block boundaries as on the block for lighting purposes. Helps prevent bad lighting outcomes.")
         boolean clampExteriorVertices = true;
         
@@ -119,6 +128,12 @@ public class Configurator {
         @Comment("Writes OpenGL state changes to log.  *VERY SPAMMY - KILLS FRAME RATE*  Used only for debugging.")
         boolean logGlStateChanges = false;
         
+        @Comment("Collects render pipeline counters and timings. Shown in F3 overlay and logged periodically. Small performance cost.")
+        boolean renderMetrics = false;
+        
+        @Comment("Saves inputs of the next 256 chunk rebuilds to canvas_capture for offline replay. Slows chunk rebuilds while active.")
+        boolean captureRebuilds = false;
+        
         @Comment("Enables LWJGL memory allocation tracking.  Will harm performance. Use for debugging memory leaks. Requires restart.")
         boolean debugNativeMemoryAllocation = false;
         
@@ -131,6 +146,7 @@ public class Configurator {
     private static final Jankson JANKSON = Jankson.builder().build();
     
     public static boolean itemShaderRender = DEFAULTS.itemShaderRender;
+    public static boolean batchGuiItems = DEFAULTS.batchGuiItems;
     public static boolean hardcoreDarkness = DEFAULTS.hardcoreDarkness;
     public static boolean subtleFog = DEFAULTS.subtleFog;
     public static boolean shaderDebug = DEFAULTS.shaderDebug;
@@ -151,6 +167,8 @@ public class Configurator {
     public static boolean disableVanillaChunkMatrix = false; //DEFAULTS.disableVanillaChunkMatrix;
     public static boolean preventDepthFighting = DEFAULTS.preventDepthFighting;
     public static boolean clampExteriorVertices = DEFAULTS.clampExteriorVertices;
+    public static boolean cacheBlockModels = DEFAULTS.cacheBlockModels;
+    public static boolean cacheShaderBinaries = DEFAULTS.cacheShaderBinaries;
 //    public static boolean padTranslucentFormats = DEFAULTS.padTranslucentFormats;
     public static boolean fixLuminousBlockShading = DEFAULTS.fixLuminousBlockShading;
     
@@ -158,6 +176,8 @@ public class Configurator {
     public static boolean conciseErrors = DEFAULTS.conciseErrors;
     public static boolean logMachineInfo = DEFAULTS.logMachineInfo;
     public static boolean logGlStateChanges = DEFAULTS.logGlStateChanges;
+    public static boolean renderMetrics = DEFAULTS.renderMetrics;
+    public static boolean captureRebuilds = DEFAULTS.captureRebuilds;
     public static boolean debugNativeMemoryAllocation = DEFAULTS.debugNativeMemoryAllocation;
     public static boolean safeNativeMemoryAllocation = DEFAULTS.safeNativeMemoryAllocation;
     
@@ -186,6 +206,7 @@ public class Configurator {
             CanvasMod.LOG.error("Unable to load config. Using default values.");
         }
         itemShaderRender = config.itemShaderRender;
+        batchGuiItems = config.batchGuiItems;
         hardcoreDarkness = config.hardcoreDarkness;
         subtleFog = config.subtleFog;
         shaderDebug = config.shaderDebug;
@@ -205,6 +226,8 @@ public class Configurator {
 //        disableVanillaChunkMatrix = config.disableVanillaChunkMatrix;
         preventDepthFighting = config.preventDepthFighting;
         clampExteriorVertices = config.clampExteriorVertices;
+        cacheBlockModels = config.cacheBlockModels;
+        cacheShaderBinaries = config.cacheShaderBinaries;
 //        padTranslucentFormats = config.padTranslucentFormats;
         fixLuminousBlockShading = config.fixLuminousBlockShading;
         
@@ -212,6 +235,8 @@ public class Configurator {
         conciseErrors = config.conciseErrors;
         logMachineInfo = config.logMachineInfo;
         logGlStateChanges = config.logGlStateChanges;
+        renderMetrics = config.renderMetrics;
+        captureRebuilds = config.captureRebuilds;
         debugNativeMemoryAllocation = config.debugNativeMemoryAllocation;
         safeNativeMemoryAllocation = config.safeNativeMemoryAllocation;
     }
@@ -219,6 +244,7 @@ public class Configurator {
     private static void saveConfig() {
         ConfigData config = new ConfigData();
         config.itemShaderRender = itemShaderRender;
+        config.batchGuiItems = batchGuiItems;
         config.hardcoreDarkness = hardcoreDarkness;
         config.subtleFog = subtleFog;
         config.shaderDebug = shaderDebug;
@@ -238,12 +264,16 @@ public class Configurator {
 //        config.disableVanillaChunkMatrix = disableVanillaChunkMatrix;
         config.preventDepthFighting = preventDepthFighting;
         config.clampExteriorVertices = clampExteriorVertices;
+        config.cacheBlockModels = cacheBlockModels;
+        config.cacheShaderBinaries = cacheShaderBinaries;
 //        config.padTranslucentFormats = padTranslucentFormats;
         
         config.lightmapDebug = lightmapDebug;
         config.conciseErrors = conciseErrors;
         config.logMachineInfo = logMachineInfo;
         config.logGlStateChanges = logGlStateChanges;
+        config.renderMetrics = renderMetrics;
+        config.captureRebuilds = captureRebuilds;
         config.debugNativeMemoryAllocation = debugNativeMemoryAllocation;
         config.safeNativeMemoryAllocation = safeNativeMemoryAllocation;
         
@@ -307,6 +337,10 @@ public class Configurator {
                 () -> DEFAULTS.itemShaderRender, b -> itemShaderRender = b, 
                 () -> Optional.of(I18n.translate("config.canvas.help.item_render").split(";"))));
         
+        features.addEntry(new BooleanListEntry("config.canvas.value.batch_gui_items", batchGuiItems, "config.canvas.reset", 
+                () -> DEFAULTS.batchGuiItems, b -> batchGuiItems = b, 
+                () -> Optional.of(I18n.translate("config.canvas.help.batch_gui_items").split(";"))));
+        
         features.addEntry(new BooleanListEntry("config.canvas.value.hardcore_darkness", hardcoreDarkness, "config.canvas.reset", 
                 () -> DEFAULTS.hardcoreDarkness, b -> {hardcoreDarkness = b; reloadShaders = true;}, 
                 () -> Optional.of(I18n.translate("config.canvas.help.hardcore_darkness").split(";"))));
@@ -389,6 +423,14 @@ public class Configurator {
                 () -> DEFAULTS.clampExteriorVertices, b -> {clampExteriorVertices = b; reloadTerrain = true;}, 
                 () -> Optional.of(I18n.translate("config.canvas.help.clamp_exterior_vertices").split(";"))));
         
+        tweaks.addEntry(new BooleanListEntry("config.canvas.value.cache_block_models", cacheBlockModels, "config.canvas.reset", 
+                () -> DEFAULTS.cacheBlockModels, b -> cacheBlockModels = b, 
+                () -> Optional.of(I18n.translate("config.canvas.help.cache_block_models").split(";"))));
+        
+        tweaks.addEntry(new BooleanListEntry("config.canvas.value.cache_shader_binaries", cacheShaderBinaries, "config.canvas.reset", 
+                () -> DEFAULTS.cacheShaderBinaries, b -> cacheShaderBinaries = b, 
+                () -> Optional.of(I18n.translate("config.canvas.help.cache_shader_binaries").split(";"))));
+        
         tweaks.addEntry(new BooleanListEntry("config.canvas.value.fix_luminous_block_shade", fixLuminousBlockShading, "config.canvas.reset", 
                 () -> DEFAULTS.fixLuminousBlockShading, b -> {fixLuminousBlockShading = b; reloadTerrain = true;}, 
                 () -> Optional.of(I18n.translate("config.canvas.help.fix_luminous_block_shade").split(";"))));
@@ -419,6 +461,14 @@ public class Configurator {
         debug.addEntry(new BooleanListEntry("config.canvas.value.log_gl_state_changes", logGlStateChanges, "config.canvas.reset", 
                 () -> DEFAULTS.logGlStateChanges, b -> logGlStateChanges = b, 
                 () -> Optional.of(I18n.translate("config.canvas.help.log_gl_state_changes").split(";"))));
+        
+        debug.addEntry(new BooleanListEntry("config.canvas.value.render_metrics", renderMetrics, "config.canvas.reset", 
+                () -> DEFAULTS.renderMetrics, b -> renderMetrics = b, 
+                () -> Optional.of(I18n.translate("config.canvas.help.render_metrics").split(";"))));
+        
+        debug.addEntry(new BooleanListEntry("config.canvas.value.capture_rebuilds", captureRebuilds, "config.canvas.reset", 
+                () -> DEFAULTS.captureRebuilds, b -> captureRebuilds = b, 
+                () -> Optional.of(I18n.translate("config.canvas.help.capture_rebuilds").split(";"))));
        
         debug.addEntry(new BooleanListEntry("config.canvas.value.debug_native_allocation", debugNativeMemoryAllocation, "config.canvas.reset", 
                 () -> DEFAULTS.debugNativeMemoryAllocation, b -> debugNativeMemoryAllocation = b, 
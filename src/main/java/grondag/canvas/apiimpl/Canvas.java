@@ -22,9 +22,12 @@ import java.util.function.BooleanSupplier;
 import grondag.canvas.CanvasMod;
 import grondag.canvas.apiimpl.RenderMaterialImpl.Finder;
 import grondag.canvas.apiimpl.RenderMaterialImpl.Value;
+import grondag.canvas.apiimpl.rendercontext.BlockModelCache;
 import grondag.canvas.apiimpl.rendercontext.BlockRenderContext;
+import grondag.canvas.apiimpl.rendercontext.ItemMeshCache;
 import grondag.canvas.buffer.allocation.BufferAllocator;
 import grondag.canvas.chunk.FastRenderRegion;
+import grondag.canvas.chunk.replay.RebuildCapture;
 import grondag.canvas.material.ShaderManager;
 import grondag.frex.api.Renderer;
 import grondag.frex.api.material.MaterialCondition;
@@ -79,7 +82,10 @@ public class Canvas implements Renderer {
         CanvasMod.LOG.info(I18n.translate("info.canvas.reloading"));
         ShaderManager.INSTANCE.forceReload();
         FastRenderRegion.forceReload();
+        RebuildCapture.forceReload();
         BlockRenderContext.forceReload();
+        BlockModelCache.forceReload();
+        ItemMeshCache.forceReload();
         BufferAllocator.forceReload();
     }
 
@@ -16,38 +16,71 @@
 
 package grondag.canvas.apiimpl;
 
+import java.util.Arrays;
 import java.util.function.BooleanSupplier;
 
 import grondag.frex.api.material.MaterialCondition;
-import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 
 public class MaterialConditionImpl implements MaterialCondition {
     public static final int MAX_CONDITIONS = 64;
-    private static final ObjectArrayList<MaterialConditionImpl> ALL_BY_INDEX = new ObjectArrayList<MaterialConditionImpl>();
+    /** Copy-on-write so that reads never lock - replaced while holding {@link #LOCK} */
+    private static volatile MaterialConditionImpl[] ALL_BY_INDEX = new MaterialConditionImpl[0];
+    private static final Object LOCK = new Object();
     public static final MaterialConditionImpl ALWAYS = new MaterialConditionImpl(() -> true, false, false);
     
     public static MaterialConditionImpl fromIndex(int index) {
-        return ALL_BY_INDEX.get(index);
+        return ALL_BY_INDEX[index];
+    }
+    
+    private static int blockMaskFrameIndex = -1;
+    private static long blockMask;
+    
+    /**
+     * Bit for each condition that allows blocks to render this frame - set if the
+     * condition is true or does not affect blocks. Suppliers run once per frame.
+     * Test with {@link #mask}. Render thread only.
+     */
+    public static long blockMask(int frameIndex) {
+        if(frameIndex != blockMaskFrameIndex) {
+            final MaterialConditionImpl[] all = ALL_BY_INDEX;
+            final int limit = all.length;
+            long mask = 0;
+            for(int i = 0; i < limit; i++) {
+                final MaterialConditionImpl c = all[i];
+                if(!c.affectBlocks || c.compute(frameIndex)) {
+                    mask |= c.mask;
+                }
+            }
+            blockMask = mask;
+            blockMaskFrameIndex = frameIndex;
+        }
+        return blockMask;
     }
     
     public final BooleanSupplier supplier;
     public final boolean affectItems;
     public final boolean affectBlocks;
     public final int index;
+    /** Single bit for this condition in {@link #blockMask(int)} */
+    public final long mask;
     
-    private int frameIndex;
+    private int frameIndex = -1;
     private boolean result;
     
     MaterialConditionImpl(BooleanSupplier supplier, boolean affectBlocks, boolean affectItems) {
         this.supplier = supplier;
         this.affectBlocks = affectBlocks;
         this.affectItems = affectItems;
-        synchronized(ALL_BY_INDEX) {
-            this.index = ALL_BY_INDEX.size();
-            ALL_BY_INDEX.add(this);
+        synchronized(LOCK) {
+            final MaterialConditionImpl[] oldValues = ALL_BY_INDEX;
+            this.index = oldValues.length;
+            this.mask = 1L << this.index;
             if(this.index >= MAX_CONDITIONS) {
                 throw new IndexOutOfBoundsException("Max render condition count exceeded.");
             }
+            final MaterialConditionImpl[] newValues = Arrays.copyOf(oldValues, oldValues.length + 1);
+            newValues[this.index] = this;
+            ALL_BY_INDEX = newValues;
         }
     }
     
@@ -57,6 +90,7 @@ public class MaterialConditionImpl implements MaterialCondition {
         } else {
             final boolean result = supplier.getAsBoolean();
             this.result = result;
+            this.frameIndex = frameIndex;
             return result;
         }
     }
@@ -26,7 +26,9 @@ import grondag.canvas.material.GlProgram;
 import grondag.canvas.material.GlShaderManager;
 import grondag.canvas.material.GlVertexShader;
 import grondag.canvas.material.ShaderContext;
+import grondag.canvas.material.ShaderManager;
 import grondag.canvas.material.ShaderProps;
+import grondag.canvas.material.ShaderWarmup;
 import grondag.frex.api.material.MaterialShader;
 import grondag.frex.api.material.Uniform;
 import grondag.frex.api.material.Uniform.Uniform1f;
@@ -74,9 +76,10 @@ public final class MaterialShaderImpl implements MaterialShader {
             GlFragmentShader fs = GlShaderManager.INSTANCE.getOrCreateFragmentShader(fragmentShader, shaderProps, context);
             final GlProgram newProgram = new GlProgram(vs, fs, shaderProps, true);
             uniforms.forEach(u -> u.accept(newProgram));
-            newProgram.load();
+            newProgram.beginLoad();
             programMap.put(key, newProgram);
             programList.add(newProgram);
+            ShaderWarmup.record(vertexShader, fragmentShader, context, shaderProps);
             return newProgram;
         } else {
             return result;
@@ -84,7 +87,35 @@ public final class MaterialShaderImpl implements MaterialShader {
     }
     
     public void activate(ShaderContext context, int shaderProps) {
-        getOrCreate(context, shaderProps).activate();
+        final GlProgram program = getOrCreate(context, shaderProps);
+        final MaterialShaderImpl fallback = ShaderManager.INSTANCE.getDefault();
+        
+        if (program.isReady() || fallback == this) {
+            program.activate();
+        } else {
+            // still compiling in parallel - same props so vertex format matches
+            fallback.getOrCreate(context, shaderProps).activate();
+        }
+    }
+    
+    /**
+     * Starts program load for the given variant if not already created. 
+     * Returns true if a new program was started.
+     */
+    public boolean prepare(ShaderContext context, int shaderProps) {
+        if (programMap.containsKey(key(context, shaderProps)))
+            return false;
+        
+        getOrCreate(context, shaderProps);
+        return true;
+    }
+    
+    public Identifier vertexSource() {
+        return vertexShader;
+    }
+    
+    public Identifier fragmentSource() {
+        return fragmentShader;
     }
 
     public void forceReload() {
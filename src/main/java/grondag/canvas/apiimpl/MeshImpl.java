@@ -16,47 +16,187 @@
 
 package grondag.canvas.apiimpl;
 
+import static grondag.canvas.apiimpl.util.MeshEncodingHelper.HEADER_BITS;
+import static grondag.canvas.apiimpl.util.MeshEncodingHelper.HEADER_MATERIAL;
+
 import java.util.function.Consumer;
 
+import grondag.canvas.apiimpl.util.CompactMeshEncodingHelper;
+import grondag.canvas.apiimpl.util.MeshEncodingHelper;
+import grondag.canvas.material.MaterialVertexFormat;
 import net.fabricmc.fabric.api.renderer.v1.mesh.Mesh;
 import net.fabricmc.fabric.api.renderer.v1.mesh.QuadView;
 
 
 /**
  * Implementation of {@link Mesh}. The way we encode meshes makes it very
- * simple.
+ * simple.<p>
+ * 
+ * Quads are held in {@link CompactMeshEncodingHelper compact} form when that can be done
+ * without loss, otherwise in the standard {@link MeshEncodingHelper} layout. Renderers should
+ * use {@link #decode(int, int[])} and {@link #nextIndex(int)} instead of reading data directly.
  */
 public class MeshImpl implements Mesh {
     /** Used to satisfy external calls to {@link #forEach(Consumer)}. */
     ThreadLocal<QuadViewImpl> POOL = ThreadLocal.withInitial(QuadViewImpl::new);
+    
+    /** Decode target for compact meshes, shared by all meshes on a thread */
+    private static final ThreadLocal<int[]> DECODE_BUFFER = ThreadLocal.withInitial(() -> new int[MeshEncodingHelper.MAX_STRIDE]);
 
     final int[] data;
+    
+    private final boolean isCompact;
 
     MeshImpl(int data[]) {
-        this.data = data;
+        final int[] compact = CompactMeshEncodingHelper.encode(data);
+        
+        if (compact == null) {
+            this.data = data;
+            isCompact = false;
+        } else {
+            this.data = compact;
+            isCompact = true;
+        }
     }
 
-    public int[] data() {
-        return data;
+    /** Index after last quad */
+    public int limit() {
+        return data.length;
+    }
+    
+    /** Index of quad following the quad at the given index */
+    public int nextIndex(int index) {
+        return index + (isCompact 
+                ? CompactMeshEncodingHelper.stride(data, index)
+                : MeshEncodingHelper.stride(RenderMaterialImpl.byIndex(data[index + HEADER_MATERIAL]).spriteDepth()));
+    }
+    
+    /** Header bits of the quad at the given index - same in both encodings except for compact-only flags. */
+    public int headerBits(int index) {
+        return data[index + HEADER_BITS];
+    }
+    
+    /** Writes quad at the given index in standard layout to start of target */
+    public void decode(int index, int[] target) {
+        if (isCompact) {
+            CompactMeshEncodingHelper.decode(data, index, target);
+        } else {
+            System.arraycopy(data, index, target, 0, nextIndex(index) - index);
+        }
+    }
+    
+    /** Loads quad at the given index into the cursor, using buffer if decoding is required */
+    private void load(QuadViewImpl cursor, int index, int[] buffer) {
+        if (isCompact) {
+            CompactMeshEncodingHelper.decode(data, index, buffer);
+            cursor.load(buffer, 0);
+        } else {
+            cursor.load(data, index);
+        }
+    }
+    
+    /** 
+     * Format-specific pre-encoded vertex data. Formats are compared by identity. Templates
+     * for formats replaced by a reload are dropped when the next template is added.
+     */
+    private static class Template {
+        private final MaterialVertexFormat format;
+        private final int[] data;
+        
+        private Template(MaterialVertexFormat format, int[] data) {
+            this.format = format;
+            this.data = data;
+        }
+    }
+    
+    private static final Template[] NO_TEMPLATES = new Template[0];
+    
+    /** Copy-on-write - meshes are rendered with very few distinct formats */
+    private volatile Template[] templates = NO_TEMPLATES;
+    
+    /**
+     * Texture coordinates and normals of every quad in this mesh, pre-encoded for the given format.
+     * Built on first use. See {@link MaterialVertexFormat#encodeTemplate(QuadViewImpl, int[], int)}.
+     */
+    public int[] template(MaterialVertexFormat format) {
+        Template[] t = templates;
+        for(Template e : t) {
+            if(e.format == format) {
+                return e.data;
+            }
+        }
+        
+        synchronized(this) {
+            t = templates;
+            for(Template e : t) {
+                if(e.format == format) {
+                    return e.data;
+                }
+            }
+            
+            final QuadViewImpl cursor = new QuadViewImpl();
+            final int[] buffer = isCompact ? new int[MeshEncodingHelper.MAX_STRIDE] : null;
+            final int limit = data.length;
+            int quadCount = 0;
+            int index = 0;
+            while (index < limit) {
+                index = nextIndex(index);
+                quadCount++;
+            }
+            
+            final int[] result = new int[quadCount * format.quadIntStride()];
+            index = 0;
+            quadCount = 0;
+            while (index < limit) {
+                load(cursor, index, buffer);
+                format.encodeTemplate(cursor, result, quadCount++);
+                index = nextIndex(index);
+            }
+            
+            templates = withTemplate(t, new Template(format, result));
+            return result;
+        }
+    }
+    
+    /** Copy of templates with the new one added and any from older format generations removed */
+    private static Template[] withTemplate(Template[] templates, Template template) {
+        final int generation = template.format.generation;
+        int count = 0;
+        for(Template e : templates) {
+            if(e.format.generation == generation) {
+                count++;
+            }
+        }
+        
+        final Template[] result = new Template[count + 1];
+        int i = 0;
+        for(Template e : templates) {
+            if(e.format.generation == generation) {
+                result[i++] = e;
+            }
+        }
+        result[count] = template;
+        return result;
     }
 
     @Override
     public void forEach(Consumer<QuadView> consumer) {
-        forEach(consumer, POOL.get());
+        forEach(consumer, POOL.get(), isCompact ? DECODE_BUFFER.get() : null);
     }
 
     /**
-     * The renderer will call this with it's own cursor to avoid the performance hit
-     * of a thread-local lookup. Also means renderer can hold final references to
-     * quad buffers.
+     * The renderer will call this with it's own cursor and decode buffer to avoid the
+     * performance hit of a thread-local lookup. Also means renderer can hold final
+     * references to quad buffers. Buffer must hold {@link MeshEncodingHelper#MAX_STRIDE}
+     * ints and can be null if the mesh isn't compact.
      */
-    void forEach(Consumer<QuadView> consumer, QuadViewImpl cursor) {
+    void forEach(Consumer<QuadView> consumer, QuadViewImpl cursor, int[] buffer) {
         final int limit = data.length;
         int index = 0;
         while (index < limit) {
-            cursor.load(data, index);
+            load(cursor, index, buffer);
             consumer.accept(cursor);
-            index += cursor.stride();
+            index = nextIndex(index);
         }
     }
 }
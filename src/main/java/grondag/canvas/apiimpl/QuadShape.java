@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+
+package grondag.canvas.apiimpl;
+
+/**
+ * Geometry flags and face normal derived from quad vertex positions. Both depend on light face
+ * and nominal face, so a cached instance is only valid when those also match.<p>
+ * 
+ * Immutable so that instances can be shared by chunk rebuild threads without locking.
+ */
+public final class QuadShape {
+    final int lightFaceId;
+    final int nominalFaceId;
+    final int geometryFlags;
+    final float normalX;
+    final float normalY;
+    final float normalZ;
+    final int packedFaceNormal;
+    
+    QuadShape(QuadViewImpl q) {
+        lightFaceId = q.lightFaceId();
+        nominalFaceId = q.nominalFaceId;
+        geometryFlags = q.geometryFlags();
+        packedFaceNormal = q.packedFaceNormal();
+        normalX = q.faceNormal.getX();
+        normalY = q.faceNormal.getY();
+        normalZ = q.faceNormal.getZ();
+    }
+    
+    boolean matches(QuadViewImpl q) {
+        return lightFaceId == q.lightFaceId() && nominalFaceId == q.nominalFaceId;
+    }
+}
@@ -32,6 +32,7 @@ import grondag.canvas.apiimpl.util.GeometryHelper;
 import grondag.canvas.apiimpl.util.MeshEncodingHelper;
 import grondag.canvas.apiimpl.util.NormalHelper;
 import grondag.canvas.light.LightmapHd;
+import grondag.canvas.varia.BakedQuadExt;
 import net.fabricmc.fabric.api.renderer.v1.mesh.MutableQuadView;
 import net.fabricmc.fabric.api.renderer.v1.mesh.QuadView;
 import net.fabricmc.fabric.api.renderer.v1.model.ModelHelper;
@@ -92,6 +93,25 @@ public class QuadViewImpl implements QuadView {
         packedFaceNormal = -1;
     }
 
+    /**
+     * Use on vanilla quads instead of {@link #invalidateShape()}. Vertex data, light face and
+     * nominal face must already be copied from the vanilla quad. Restores geometry flags and face
+     * normal saved on the quad by an earlier call, or computes and saves them.
+     */
+    public final void loadShape(BakedQuadExt quad) {
+        final QuadShape shape = quad.canvas_shape();
+        if(shape != null && shape.matches(this)) {
+            isGeometryInvalid = false;
+            geometryFlags = shape.geometryFlags;
+            isFaceNormalInvalid = false;
+            faceNormal.set(shape.normalX, shape.normalY, shape.normalZ);
+            packedFaceNormal = shape.packedFaceNormal;
+        } else {
+            invalidateShape();
+            quad.canvas_shape(new QuadShape(this));
+        }
+    }
+    
     /**
      * Like {@link #load(int[], int)} but assumes array and index already set. Only
      * does the decoding part.
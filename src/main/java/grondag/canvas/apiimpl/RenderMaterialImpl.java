@@ -16,6 +16,8 @@
 
 package grondag.canvas.apiimpl;
 
+import java.util.Arrays;
+
 import grondag.canvas.material.ShaderManager;
 import grondag.fermion.bits.BitPacker64;
 import grondag.fermion.bits.BitPacker64.BooleanElement;
@@ -23,7 +25,6 @@ import grondag.frex.api.material.MaterialFinder;
 import grondag.frex.api.material.MaterialShader;
 import grondag.frex.api.material.MaterialCondition;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
-import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import net.fabricmc.fabric.api.renderer.v1.material.RenderMaterial;
 import net.minecraft.block.BlockRenderLayer;
 
@@ -58,8 +59,14 @@ public abstract class RenderMaterialImpl {
     
     private static final long DEFAULT_BITS;
     
-    private static final ObjectArrayList<Value> LIST = new ObjectArrayList<>();
-    private static final Long2ObjectOpenHashMap<Value> MAP = new Long2ObjectOpenHashMap<>();
+    /** 
+     * Copy-on-write: readers never lock and always see a fully populated instance.
+     * Replaced (never modified) while holding {@link #LOCK}. Indexed by {@link Value#index()}.
+     */
+    private static volatile Value[] LIST = new Value[0];
+    /** Copy-on-write, same as {@link #LIST}. Maps material bits to material. */
+    private static volatile Long2ObjectOpenHashMap<Value> MAP = new Long2ObjectOpenHashMap<>();
+    private static final Object LOCK = new Object();
 
     public static final int SHADER_FLAGS_DISABLE_AO;
     
@@ -121,7 +128,7 @@ public abstract class RenderMaterialImpl {
     }
     
     public static RenderMaterialImpl.Value byIndex(int index) {
-        return LIST.get(index);
+        return LIST[index];
     }
 
     protected long bits = DEFAULT_BITS;
@@ -292,18 +299,41 @@ public abstract class RenderMaterialImpl {
         private MaterialShaderImpl shader = null;
         
         @Override
-        public synchronized Value find() {
+        public Value find() {
             MaterialShaderImpl s = shader == null ? ShaderManager.INSTANCE.getDefault() : shader;
             SHADER.setValue(s.getIndex(), this);
+            final long bits = this.bits;
             Value result = MAP.get(bits);
             if (result == null) {
-                result = new Value(LIST.size(), bits, s);
-                LIST.add(result);
-                MAP.put(result.bits, result);
-                result.setupBlockLayerVariants();
+                synchronized(LOCK) {
+                    result = MAP.get(bits);
+                    if (result == null) {
+                        result = create(bits, s);
+                    }
+                }
             }
             return result;
         }
+        
+        /** 
+         * Call while holding {@link #LOCK}. Index is published first because variant
+         * creation will recursively add materials. Bits are published last so that
+         * lock-free lookups only see materials with variants fully set up.
+         */
+        private static Value create(long bits, MaterialShaderImpl s) {
+            final Value[] oldList = LIST;
+            final Value result = new Value(oldList.length, bits, s);
+            final Value[] newList = Arrays.copyOf(oldList, oldList.length + 1);
+            newList[oldList.length] = result;
+            LIST = newList;
+            
+            result.setupBlockLayerVariants();
+            
+            final Long2ObjectOpenHashMap<Value> newMap = new Long2ObjectOpenHashMap<>(MAP);
+            newMap.put(bits, result);
+            MAP = newMap;
+            return result;
+        }
 
         @Override
         public Finder clear() {
@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+
+package grondag.canvas.apiimpl.rendercontext;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import grondag.canvas.Configurator;
+import grondag.canvas.apiimpl.MeshImpl;
+import grondag.canvas.apiimpl.QuadViewImpl;
+import grondag.canvas.material.MaterialVertexFormat;
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.fabricmc.fabric.api.renderer.v1.model.ModelHelper;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.render.model.BakedModel;
+import net.minecraft.client.render.model.BakedQuad;
+import net.minecraft.client.render.model.BasicBakedModel;
+
+/**
+ * Holds the quads of simple vanilla block models in a flat array per block state so that
+ * terrain rebuild can skip model dispatch, random re-seeding and per-face list lookups.<p>
+ * 
+ * Only plain {@link BasicBakedModel} instances are cached. Their output does not depend on
+ * position, random or world data, and they never push quad transforms. Entries also hold
+ * per-format templates with texture coordinates and normals already encoded, so a hit only
+ * encodes position, color and light. Those depend on neighbors and biome and can't be cached
+ * per block state. Offsets, culling, lighting and color are still applied per block at render
+ * time so output is unchanged.<p>
+ * 
+ * Entries remember the model they were built from so a model reload can't serve stale quads.
+ * Cleared on reload. When full, entries not used since the last eviction pass are removed
+ * (second chance) so that the working set can change over a long session.
+ */
+public class BlockModelCache {
+    private static final int MAX_ENTRIES = 16384;
+    
+    private static final ConcurrentHashMap<BlockState, Entry> MAP = new ConcurrentHashMap<>();
+    
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder EVICTIONS = new LongAdder();
+    private static final LongAdder TEMPLATE_INTS = new LongAdder();
+    
+    public static class Entry {
+        final BakedModel model;
+        final BakedQuad[] quads;
+        
+        /** Cull face index of each quad - {@link ModelHelper#NULL_FACE_ID} for quads that are never culled */
+        final byte[] cullFaces;
+        
+        /** Copy-on-write - terrain renders with very few distinct formats */
+        private volatile Template[] templates = NO_TEMPLATES;
+        
+        /** Set on each hit, cleared by eviction pass. Not volatile - a missed update only affects which entry is evicted. */
+        private boolean used;
+        
+        private Entry(BakedModel model, BakedQuad[] quads, byte[] cullFaces) {
+            this.model = model;
+            this.quads = quads;
+            this.cullFaces = cullFaces;
+        }
+        
+        /**
+         * Texture coordinates and normals of every quad, pre-encoded for the given format.
+         * Built on first use from quads loaded by loader. Same layout as {@link MeshImpl#template(MaterialVertexFormat)}.
+         */
+        int[] template(MaterialVertexFormat format, Function<BakedQuad, QuadViewImpl> loader) {
+            Template[] t = templates;
+            for(Template e : t) {
+                if(e.format == format) {
+                    return e.data;
+                }
+            }
+            
+            synchronized(this) {
+                t = templates;
+                for(Template e : t) {
+                    if(e.format == format) {
+                        return e.data;
+                    }
+                }
+                
+                final BakedQuad[] quads = this.quads;
+                final int[] result = new int[quads.length * format.quadIntStride()];
+                for(int i = 0; i < quads.length; i++) {
+                    format.encodeTemplate(loader.apply(quads[i]), result, i);
+                }
+                
+                // drop templates for formats replaced by a reload
+                final int generation = format.generation;
+                int count = 0;
+                for(Template e : t) {
+                    if(e.format.generation == generation) {
+                        count++;
+                    } else {
+                        TEMPLATE_INTS.add(-e.data.length);
+                    }
+                }
+                
+                final Template[] newTemplates = new Template[count + 1];
+                int i = 0;
+                for(Template e : t) {
+                    if(e.format.generation == generation) {
+                        newTemplates[i++] = e;
+                    }
+                }
+                newTemplates[count] = new Template(format, result);
+                templates = newTemplates;
+                TEMPLATE_INTS.add(result.length);
+                return result;
+            }
+        }
+        
+        private long templateInts() {
+            long result = 0;
+            for(Template e : templates) {
+                result += e.data.length;
+            }
+            return result;
+        }
+    }
+    
+    /** Formats are compared by identity. Templates for formats replaced by a reload are dropped when the next template is added. */
+    private static class Template {
+        private final MaterialVertexFormat format;
+        private final int[] data;
+        
+        private Template(MaterialVertexFormat format, int[] data) {
+            this.format = format;
+            this.data = data;
+        }
+    }
+    
+    private static final Template[] NO_TEMPLATES = new Template[0];
+    
+    public static boolean isCacheable(BakedModel model) {
+        return Configurator.cacheBlockModels && model.getClass() == BasicBakedModel.class;
+    }
+    
+    /**
+     * Returns cached quads for the given state and model. Evicts unused entries if full.
+     * Caller must check {@link #isCacheable(BakedModel)} first.
+     */
+    public static Entry get(BlockState blockState, BakedModel model, Random random) {
+        Entry result = MAP.get(blockState);
+        
+        if(result != null && result.model == model) {
+            // avoid a write on every hit
+            if(!result.used) {
+                result.used = true;
+            }
+            HITS.increment();
+            return result;
+        }
+        
+        if(result == null && MAP.size() >= MAX_ENTRIES) {
+            evict();
+        }
+        
+        MISSES.increment();
+        result = build(blockState, model, random);
+        MAP.put(blockState, result);
+        return result;
+    }
+    
+    /** 
+     * Removes entries not used since the last pass and clears the flag on the rest.
+     * If every entry was used, they all lose their flag and the next pass will remove them.
+     */
+    private static synchronized void evict() {
+        // another thread may have made room while we waited
+        if(MAP.size() < MAX_ENTRIES) {
+            return;
+        }
+        
+        final Iterator<Entry> it = MAP.values().iterator();
+        while(it.hasNext()) {
+            final Entry e = it.next();
+            if(e.used) {
+                e.used = false;
+            } else {
+                it.remove();
+                TEMPLATE_INTS.add(-e.templateInts());
+                EVICTIONS.increment();
+            }
+        }
+    }
+    
+    private static Entry build(BlockState blockState, BakedModel model, Random random) {
+        final ObjectArrayList<BakedQuad> quads = new ObjectArrayList<>();
+        final ByteArrayList cullFaces = new ByteArrayList();
+        
+        for (int i = 0; i <= ModelHelper.NULL_FACE_ID; i++) {
+            final List<BakedQuad> faceQuads = model.getQuads(blockState, ModelHelper.faceFromIndex(i), random);
+            final int count = faceQuads.size();
+            for (int j = 0; j < count; j++) {
+                quads.add(faceQuads.get(j));
+                cullFaces.add((byte) i);
+            }
+        }
+        
+        return new Entry(model, quads.toArray(new BakedQuad[quads.size()]), cullFaces.toByteArray());
+    }
+    
+    public static long hitCount() {
+        return HITS.sum();
+    }
+    
+    public static long missCount() {
+        return MISSES.sum();
+    }
+    
+    /** Entries removed to make room since last reload */
+    public static long evictionCount() {
+        return EVICTIONS.sum();
+    }
+    
+    public static int size() {
+        return MAP.size();
+    }
+    
+    /** Approximate memory held by vertex templates */
+    public static long templateBytes() {
+        return TEMPLATE_INTS.sum() * 4;
+    }
+    
+    public static void forceReload() {
+        MAP.clear();
+        HITS.reset();
+        MISSES.reset();
+        EVICTIONS.reset();
+        TEMPLATE_INTS.reset();
+    }
+}
@@ -20,6 +20,7 @@ import java.util.Random;
 import java.util.function.Supplier;
 
 import grondag.canvas.chunk.ChunkRenderInfo;
+import net.fabricmc.fabric.api.renderer.v1.model.ModelHelper;
 import net.fabricmc.fabric.api.rendering.data.v1.RenderAttachedBlockView;
 import net.minecraft.block.BlockState;
 import net.minecraft.client.MinecraftClient;
@@ -46,6 +47,11 @@ public class BlockRenderInfo {
     public long seed;
     boolean defaultAo;
     int defaultLayerIndex;
+    
+    private final BlockPos.Mutable flatPos = new BlockPos.Mutable();
+    /** Flat brightness for current block, indexed by cull face id, including null face */
+    private final int[] flatBrightness = new int[7];
+    private int flatBrightnessFlags;
 
     public final Supplier<Random> randomSupplier = () -> {
         final Random result = random;
@@ -68,6 +74,7 @@ public class BlockRenderInfo {
         needsColorLookup = true;
         // in the unlikely case seed actually matches this, we'll simply retrieve it more than once
         seed = -1L;
+        flatBrightnessFlags = 0;
         defaultAo = modelAO && MinecraftClient.isAmbientOcclusionEnabled() && blockState.getLuminance() == 0 ;
         defaultLayerIndex = blockState.getBlock().getRenderLayer().ordinal();
     }
@@ -87,6 +94,32 @@ public class BlockRenderInfo {
         }
     }
 
+    /**
+     * Flat-lit brightness for the current block, memoized by cull face because
+     * models commonly have several quads with the same cull face.<p>
+     * 
+     * Cannot use the region brightness cache because that holds brightness of the
+     * block state at each position, while flat lighting uses brightness of the
+     * current block state at the neighbor position. (Matters for magma blocks, etc.)
+     * For flat lighting, cull face is always used instead of light face.
+     */
+    int flatBrightness(int cullFaceId) {
+        final int mask = 1 << cullFaceId;
+        
+        if((flatBrightnessFlags & mask) == 0) {
+            flatPos.set(blockPos);
+            if (cullFaceId != ModelHelper.NULL_FACE_ID) {
+                flatPos.setOffset(ModelHelper.faceFromIndex(cullFaceId));
+            }
+            final int result = blockState.getBlockBrightness(blockView, flatPos);
+            flatBrightness[cullFaceId] = result;
+            flatBrightnessFlags |= mask;
+            return result;
+        } else {
+            return flatBrightness[cullFaceId];
+        }
+    }
+    
     boolean shouldDrawFace(int face) {
         return true;
     }
@@ -34,6 +34,7 @@ import grondag.canvas.apiimpl.RenderMaterialImpl.Value;
 import grondag.canvas.apiimpl.util.MeshEncodingHelper;
 import grondag.canvas.buffer.packing.VertexCollector;
 import grondag.canvas.light.AoCalculator;
+import grondag.canvas.material.MaterialVertexFormat;
 import grondag.canvas.material.ShaderContext;
 import grondag.canvas.varia.BakedQuadExt;
 import net.fabricmc.fabric.api.renderer.v1.mesh.QuadEmitter;
@@ -55,9 +56,16 @@ public class FallbackConsumer extends QuadRenderer implements Consumer<BakedMode
 
     private final Maker editorQuad;
     
+    /** Loads cached quads to build templates without disturbing {@link #editorQuad} mid-render */
+    private Maker templateQuad = null;
+    
+    /** Entry and quad being rendered if vertex data can come from the entry's template */
+    private BlockModelCache.Entry templateEntry = null;
+    private int templateQuadIndex;
+    
     protected class Maker extends MutableQuadViewImpl {
-        {
-            data = editorBuffer;
+        protected Maker(int[] buffer) {
+            data = buffer;
             material(MATERIAL_SHADED);
         }
 
@@ -78,7 +86,7 @@ public class FallbackConsumer extends QuadRenderer implements Consumer<BakedMode
             Consumer<MutableQuadViewImpl> offsetFunc,
             Function<RenderMaterialImpl.Value, ShaderContext> contextFunc) {
         super(blockInfo, brightnessFunc, collectorFunc, aoCalc, hasTransform, transform, offsetFunc, contextFunc);
-        this.editorQuad = new Maker();
+        this.editorQuad = new Maker(editorBuffer);
     }
     
     @Override
@@ -115,10 +123,68 @@ public class FallbackConsumer extends QuadRenderer implements Consumer<BakedMode
         }
     }
     
+    /** Same result as {@link #accept(BakedModel)} for the model the entry was built from */
+    public void accept(BlockModelCache.Entry entry) {
+        final boolean useAo = blockInfo.defaultAo && entry.model.useAmbientOcclusion();
+        final BakedQuad[] quads = entry.quads;
+        final byte[] cullFaces = entry.cullFaces;
+        final int count = quads.length;
+        
+        // transforms can change anything, so templates only apply without one
+        final boolean useTemplate = !hasTransform.getAsBoolean();
+        
+        for (int j = 0; j < count; j++) {
+            final int cullFace = cullFaces[j];
+            if (blockInfo.shouldDrawFace(cullFace)) {
+                BakedQuad q = quads[j];
+                final Value defaultMaterial = ((BakedQuadExt)q).canvas_disableDiffuse()
+                        ?  (useAo ? MATERIAL_AO_FLAT : MATERIAL_FLAT)
+                        :  (useAo ? MATERIAL_AO_SHADED : MATERIAL_SHADED);
+                if (useTemplate) {
+                    templateEntry = entry;
+                    templateQuadIndex = j;
+                }
+                renderQuad(q, cullFace, defaultMaterial);
+                templateEntry = null;
+            }
+        }
+    }
+    
+    /**
+     * Cached quads have the same texture coordinates and normals every time they are
+     * rendered, so those are copied from a per-format template instead of re-encoded.
+     */
+    @Override
+    protected void encodeQuad(MutableQuadViewImpl q, VertexCollector output, RenderMaterialImpl.Value mat, boolean isAo) {
+        final BlockModelCache.Entry entry = templateEntry;
+        if(entry == null) {
+            super.encodeQuad(q, output, mat, isAo);
+        } else {
+            final MaterialVertexFormat format = output.materialState().materialVertexFormat();
+            format.encodeFromTemplate(entry.template(format, this::loadTemplateQuad), templateQuadIndex, q, encodingContext(mat, isAo), output);
+        }
+    }
+    
+    /** Loads attributes that go into templates - texture coordinates and normals */
+    private QuadViewImpl loadTemplateQuad(BakedQuad quad) {
+        Maker result = templateQuad;
+        if(result == null) {
+            result = new Maker(new int[MeshEncodingHelper.HEADER_STRIDE + MeshEncodingHelper.VANILLA_STRIDE]);
+            templateQuad = result;
+        }
+        System.arraycopy(quad.getVertexData(), 0, result.data(), MeshEncodingHelper.HEADER_STRIDE, 28);
+        result.material(MATERIAL_SHADED);
+        // loadShape expects faces to be set - same as AO path of renderQuad, template does not depend on cull face
+        final int lightFace = ModelHelper.toFaceIndex(quad.getFace());
+        result.lightFace(lightFace);
+        result.nominalFace(lightFace);
+        result.loadShape((BakedQuadExt) quad);
+        return result;
+    }
+    
     private void renderQuad(BakedQuad quad, int cullFace, Value defaultMaterial) {
         final Maker editorQuad = this.editorQuad;
         System.arraycopy(quad.getVertexData(), 0, editorBuffer, MeshEncodingHelper.HEADER_STRIDE, 28);
-        editorQuad.invalidateShape();
         editorQuad.cullFace(cullFace);
         editorQuad.colorIndex(quad.getColorIndex());
         editorQuad.material(defaultMaterial);
@@ -133,6 +199,8 @@ public class FallbackConsumer extends QuadRenderer implements Consumer<BakedMode
             editorQuad.nominalFace(lightFace);
         }
         
+        editorQuad.loadShape((BakedQuadExt) quad);
+        
         if(Configurator.preventDepthFighting) {
             preventDepthFighting();
         }
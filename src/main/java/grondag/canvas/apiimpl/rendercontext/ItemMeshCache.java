@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+
+package grondag.canvas.apiimpl.rendercontext;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import grondag.canvas.apiimpl.RenderMaterialImpl;
+import grondag.canvas.material.ShaderContext;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.client.render.model.BakedModel;
+
+/**
+ * Encoded vertex data of recently rendered vanilla item models, so that repeated renders of the
+ * same item only copy vertex data instead of re-running emit, classify, colorize and encode.<p>
+ * 
+ * Keyed by model, tint, enchantment pass, shader context and (for in-world items) light.
+ * Tints looked up from the item stack are saved with the entry and re-checked on each hit
+ * because they can depend on stack data.<p>
+ * 
+ * Least-recently used entries are evicted to stay within a byte budget.
+ * Item rendering happens only on the render thread so there is no synchronization.
+ */
+public class ItemMeshCache {
+    private static final int MAX_BYTES = 8 * 1024 * 1024;
+    
+    /** Rough per-entry cost of objects other than vertex data */
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+    
+    private static final LinkedHashMap<Key, Entry> MAP = new LinkedHashMap<>(256, 0.75f, true);
+    
+    private static int totalBytes = 0;
+    private static long hits = 0;
+    private static long misses = 0;
+    
+    static final class Key {
+        private BakedModel model;
+        private int color;
+        private boolean enchantment;
+        private ShaderContext context;
+        private int light;
+        private int hashCode;
+        
+        Key set(BakedModel model, int color, boolean enchantment, ShaderContext context, int light) {
+            this.model = model;
+            this.color = color;
+            this.enchantment = enchantment;
+            this.context = context;
+            this.light = light;
+            int h = System.identityHashCode(model);
+            h = h * 31 + color;
+            h = h * 31 + (enchantment ? 1 : 0);
+            h = h * 31 + context.ordinal();
+            h = h * 31 + light;
+            this.hashCode = h;
+            return this;
+        }
+        
+        private Key copy() {
+            final Key result = new Key();
+            result.model = model;
+            result.color = color;
+            result.enchantment = enchantment;
+            result.context = context;
+            result.light = light;
+            result.hashCode = hashCode;
+            return result;
+        }
+        
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if(!(obj instanceof Key)) {
+                return false;
+            }
+            
+            final Key other = (Key) obj;
+            return other.model == model && other.color == color && other.enchantment == enchantment
+                    && other.context == context && other.light == light;
+        }
+    }
+    
+    static final class Entry {
+        final RenderMaterialImpl.Value[] materials;
+        final int[] shaderProps;
+        final int[][] data;
+        final boolean hasVertexNormals;
+        
+        /** Color indices looked up from the item stack and the tint returned for each */
+        final int[] stackColorIndices;
+        final int[] stackColors;
+        
+        private Entry(Recorder recorder) {
+            final int count = recorder.materials.size();
+            materials = recorder.materials.toArray(new RenderMaterialImpl.Value[count]);
+            shaderProps = recorder.shaderProps.toIntArray();
+            data = new int[count][];
+            for(int i = 0; i < count; i++) {
+                data[i] = recorder.data.get(i).toIntArray();
+            }
+            hasVertexNormals = recorder.hasVertexNormals;
+            stackColorIndices = recorder.stackColorIndices.toIntArray();
+            stackColors = recorder.stackColors.toIntArray();
+        }
+        
+        private int byteSize() {
+            int result = ENTRY_OVERHEAD_BYTES;
+            for(int[] d : data) {
+                result += d.length * 4;
+            }
+            return result;
+        }
+    }
+    
+    /** Accumulates encoded output during a render so it can become an entry */
+    static final class Recorder {
+        private final ObjectArrayList<RenderMaterialImpl.Value> materials = new ObjectArrayList<>();
+        private final IntArrayList shaderProps = new IntArrayList();
+        private final ObjectArrayList<IntArrayList> data = new ObjectArrayList<>();
+        private final IntArrayList stackColorIndices = new IntArrayList();
+        private final IntArrayList stackColors = new IntArrayList();
+        private boolean hasVertexNormals;
+        
+        void clear() {
+            materials.clear();
+            shaderProps.clear();
+            data.clear();
+            stackColorIndices.clear();
+            stackColors.clear();
+            hasVertexNormals = false;
+        }
+        
+        void addQuad(RenderMaterialImpl.Value mat, int props, int[] source, int start, int length) {
+            IntArrayList target = null;
+            final int limit = materials.size();
+            for(int i = 0; i < limit; i++) {
+                if(materials.get(i) == mat && shaderProps.getInt(i) == props) {
+                    target = data.get(i);
+                    break;
+                }
+            }
+            
+            if(target == null) {
+                target = new IntArrayList();
+                materials.add(mat);
+                shaderProps.add(props);
+                data.add(target);
+            }
+            
+            target.addElements(target.size(), source, start, length);
+        }
+        
+        void addStackColor(int colorIndex, int color) {
+            if(!stackColorIndices.contains(colorIndex)) {
+                stackColorIndices.add(colorIndex);
+                stackColors.add(color);
+            }
+        }
+        
+        void hasVertexNormals() {
+            hasVertexNormals = true;
+        }
+    }
+    
+    /** Key is not retained and can be reused for the next lookup */
+    static Entry get(Key key) {
+        final Entry result = MAP.get(key);
+        
+        if(result == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        
+        return result;
+    }
+    
+    /** Key is copied so caller can reuse it */
+    static void put(Key key, Recorder recorder) {
+        final Entry entry = new Entry(recorder);
+        final int bytes = entry.byteSize();
+        
+        if(bytes > MAX_BYTES) {
+            return;
+        }
+        
+        final Entry prior = MAP.put(key.copy(), entry);
+        if(prior != null) {
+            totalBytes -= prior.byteSize();
+        }
+        totalBytes += bytes;
+        
+        if(totalBytes > MAX_BYTES) {
+            final Iterator<Map.Entry<Key, Entry>> it = MAP.entrySet().iterator();
+            while(totalBytes > MAX_BYTES && it.hasNext()) {
+                totalBytes -= it.next().getValue().byteSize();
+                it.remove();
+            }
+        }
+    }
+    
+    public static long hitCount() {
+        return hits;
+    }
+    
+    public static long missCount() {
+        return misses;
+    }
+    
+    public static int byteSize() {
+        return totalBytes;
+    }
+    
+    public static void forceReload() {
+        MAP.clear();
+        totalBytes = 0;
+        hits = 0;
+        misses = 0;
+    }
+}
@@ -16,15 +16,18 @@
 
 package grondag.canvas.apiimpl.rendercontext;
 
+import java.nio.FloatBuffer;
 import java.util.List;
 import java.util.Random;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
+import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
 
 import com.mojang.blaze3d.platform.GlStateManager;
 
+import grondag.canvas.Configurator;
 import grondag.canvas.apiimpl.Canvas;
 import grondag.canvas.apiimpl.MeshImpl;
 import grondag.canvas.apiimpl.MutableQuadViewImpl;
@@ -35,21 +38,28 @@ import grondag.canvas.apiimpl.util.MeshEncodingHelper;
 import grondag.canvas.buffer.packing.CanvasBufferBuilder;
 import grondag.canvas.buffer.packing.VertexCollector;
 import grondag.canvas.draw.TessellatorExt;
+import grondag.canvas.light.GuiLightingHelper;
 import grondag.canvas.material.ShaderContext;
 import grondag.canvas.material.ShaderProps;
 import grondag.canvas.material.VertexEncodingContext;
 import grondag.canvas.varia.BakedQuadExt;
+import grondag.canvas.varia.VanillaGlState;
 import grondag.frex.api.model.DynamicBakedModel;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import net.fabricmc.fabric.api.renderer.v1.mesh.Mesh;
 import net.fabricmc.fabric.api.renderer.v1.mesh.QuadEmitter;
 import net.fabricmc.fabric.api.renderer.v1.model.ModelHelper;
 import net.fabricmc.fabric.api.renderer.v1.render.RenderContext;
 import net.minecraft.block.BlockRenderLayer;
 import net.minecraft.block.BlockState;
+import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.color.item.ItemColors;
+import net.minecraft.client.font.TextRenderer;
 import net.minecraft.client.render.Tessellator;
+import net.minecraft.client.render.item.ItemRenderer;
 import net.minecraft.client.render.model.BakedModel;
 import net.minecraft.client.render.model.BakedQuad;
+import net.minecraft.client.texture.SpriteAtlasTexture;
 import net.minecraft.item.ItemStack;
 import net.minecraft.util.math.Direction;
 
@@ -112,8 +122,232 @@ public class ItemRenderContext extends AbstractRenderContext implements RenderCo
             this.itemStack = stack;
         }
         
-        ((DynamicBakedModel) model).emitItemQuads(stack, randomSupplier, this);
+        // glint pass depends on texture state set up by vanilla for each item
+        bakeModelView = Configurator.batchGuiItems && !enchantment && tessellatorExt.canvas_context() == ShaderContext.ITEM_GUI;
+        
+        if(bakeModelView) {
+            captureModelView();
+        } else {
+            flushGuiItems();
+        }
+        
+        if(model.isVanillaAdapter()) {
+            final ShaderContext context = tessellatorExt.canvas_context();
+            final int light = context == ShaderContext.ITEM_WORLD ? playerLightmap : 0;
+            final ItemMeshCache.Key cacheKey = this.cacheKey.set((BakedModel) model, color, enchantment, context, light);
+            final ItemMeshCache.Entry entry = ItemMeshCache.get(cacheKey);
+            
+            if(entry != null && stackColorsMatch(entry)) {
+                renderCached(entry);
+            } else {
+                recorder.clear();
+                isRecording = true;
+                model.emitItemQuads(stack, randomSupplier, this);
+                isRecording = false;
+                ItemMeshCache.put(cacheKey, recorder);
+            }
+        } else {
+            model.emitItemQuads(stack, randomSupplier, this);
+        }
+        
+        if(bakeModelView) {
+            hasPendingGuiItems = true;
+        } else {
+            tessellatorExt.canvas_draw();
+        }
+    }
+    
+    private final ItemMeshCache.Key cacheKey = new ItemMeshCache.Key();
+    private final ItemMeshCache.Recorder recorder = new ItemMeshCache.Recorder();
+    private boolean isRecording = false;
+    
+    private boolean stackColorsMatch(ItemMeshCache.Entry entry) {
+        final int[] indices = entry.stackColorIndices;
+        final int limit = indices.length;
+        
+        for(int i = 0; i < limit; i++) {
+            if((colorMap.getColorMultiplier(itemStack, indices[i]) | -16777216) != entry.stackColors[i]) {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    private void renderCached(ItemMeshCache.Entry entry) {
+        if (entry.hasVertexNormals && !smoothShading) {
+            smoothShading = true;
+            GlStateManager.shadeModel(GL11.GL_SMOOTH);
+        }
+        
+        final int limit = entry.materials.length;
+        for(int i = 0; i < limit; i++) {
+            final VertexCollector output = canvasBuilder.vcList.get(entry.materials[i], entry.shaderProps[i]);
+            final int[] data = entry.data[i];
+            final int start = output.allocate(data.length);
+            System.arraycopy(data, 0, output.rawData(), start, data.length);
+            
+            if(bakeModelView) {
+                final int vertexStrideInts = output.format().vertexStrideBytes / 4;
+                final int quadInts = 4 * vertexStrideInts;
+                final int end = start + data.length;
+                for(int k = start; k < end; k += quadInts) {
+                    bakeModelView(output, k);
+                }
+            }
+        }
+    }
+    
+    /** True when GUI items have been buffered but not drawn */
+    private static boolean hasPendingGuiItems = false;
+    
+    /** When true, positions are transformed to eye space on CPU so many items can share one draw */
+    private boolean bakeModelView = false;
+    
+    private final float[] modelView = new float[16];
+    
+    private void captureModelView() {
+        VanillaGlState.modelView(modelView);
+    }
+    
+    private void bakeModelView(VertexCollector output, int start) {
+        final int[] data = output.rawData();
+        final int vertexStride = output.format().vertexStrideBytes / 4;
+        final float[] m = modelView;
+        
+        for(int i = 0; i < 4; i++) {
+            final int k = start + i * vertexStride;
+            final float x = Float.intBitsToFloat(data[k]);
+            final float y = Float.intBitsToFloat(data[k + 1]);
+            final float z = Float.intBitsToFloat(data[k + 2]);
+            data[k] = Float.floatToRawIntBits(m[0] * x + m[4] * y + m[8] * z + m[12]);
+            data[k + 1] = Float.floatToRawIntBits(m[1] * x + m[5] * y + m[9] * z + m[13]);
+            data[k + 2] = Float.floatToRawIntBits(m[2] * x + m[6] * y + m[10] * z + m[14]);
+        }
+    }
+    
+    /** GUI state in effect before a flush, put back afterwards */
+    private static final VanillaGlState.Saved SAVED_STATE = new VanillaGlState.Saved();
+    
+    /**
+     * Draws buffered GUI items, if any, followed by their deferred overlays. Must be called
+     * before anything else is drawn so that draw order is preserved, and while the Tessellator
+     * isn't building because overlays draw through it. Sets up the state vanilla uses for GUI
+     * items and restores prior state when done.
+     */
+    public static void flushGuiItems() {
+        if(!hasPendingGuiItems) {
+            return;
+        }
+        
+        hasPendingGuiItems = false;
+        
+        VanillaGlState.save(SAVED_STATE);
+        
+        MinecraftClient.getInstance().getTextureManager().bindTexture(SpriteAtlasTexture.BLOCK_ATLAS_TEX);
+        GlStateManager.enableDepthTest();
+        GlStateManager.enableAlphaTest();
+        GlStateManager.alphaFunc(GL11.GL_GREATER, 0.1F);
+        GlStateManager.enableBlend();
+        GlStateManager.blendFunc(GlStateManager.SourceFactor.SRC_ALPHA, GlStateManager.DestFactor.ONE_MINUS_SRC_ALPHA);
+        GlStateManager.color4f(1.0F, 1.0F, 1.0F, 1.0F);
+        GuiLightingHelper.suspend();
+        
+        GlStateManager.pushMatrix();
+        GlStateManager.loadIdentity();
+        
+        final TessellatorExt tessellatorExt = (TessellatorExt) Tessellator.getInstance();
+        final ShaderContext context = tessellatorExt.canvas_context();
+        tessellatorExt.canvas_context(ShaderContext.ITEM_GUI);
         tessellatorExt.canvas_draw();
+        tessellatorExt.canvas_context(context);
+        
+        GlStateManager.popMatrix();
+        
+        GuiLightingHelper.resume();
+        
+        drawGuiItemOverlays();
+        
+        VanillaGlState.restore(SAVED_STATE);
+    }
+    
+    /** Stack count, durability and cooldown overlay call deferred until its item is drawn */
+    private static class PendingOverlay {
+        private final float[] modelView = new float[16];
+        private ItemRenderer itemRenderer;
+        private TextRenderer textRenderer;
+        private ItemStack stack;
+        private int x;
+        private int y;
+        private String amountText;
+        private float zOffset;
+    }
+    
+    private static final ObjectArrayList<PendingOverlay> OVERLAYS = new ObjectArrayList<>();
+    private static int overlayCount = 0;
+    private static final FloatBuffer OVERLAY_MATRIX = BufferUtils.createFloatBuffer(16);
+    
+    /**
+     * Overlays are drawn on top of their item without depth test, so while items are buffered
+     * their overlays must wait too. Otherwise each overlay's text draw would force a flush.
+     * Returns true if the overlay has been saved for drawing after the pending items.
+     */
+    public static boolean deferGuiItemOverlay(ItemRenderer itemRenderer, TextRenderer textRenderer, ItemStack stack, int x, int y, String amountText) {
+        if(!hasPendingGuiItems) {
+            return false;
+        }
+        
+        if(overlayCount == OVERLAYS.size()) {
+            OVERLAYS.add(new PendingOverlay());
+        }
+        
+        final PendingOverlay p = OVERLAYS.get(overlayCount++);
+        VanillaGlState.modelView(p.modelView);
+        p.itemRenderer = itemRenderer;
+        p.textRenderer = textRenderer;
+        // copied because caller may change or reuse the stack before overlays are drawn
+        p.stack = stack.copy();
+        p.x = x;
+        p.y = y;
+        p.amountText = amountText;
+        p.zOffset = itemRenderer.zOffset;
+        return true;
+    }
+    
+    private static void drawGuiItemOverlays() {
+        final int limit = overlayCount;
+        
+        if(limit == 0) {
+            return;
+        }
+        
+        final FloatBuffer matrix = OVERLAY_MATRIX;
+        
+        for(int i = 0; i < limit; i++) {
+            final PendingOverlay p = OVERLAYS.get(i);
+            final ItemRenderer itemRenderer = p.itemRenderer;
+            final float zOffset = itemRenderer.zOffset;
+            
+            GlStateManager.pushMatrix();
+            GlStateManager.loadIdentity();
+            matrix.clear();
+            matrix.put(p.modelView);
+            matrix.flip();
+            GlStateManager.multMatrix(matrix);
+            
+            itemRenderer.zOffset = p.zOffset;
+            itemRenderer.renderGuiItemOverlay(p.textRenderer, p.stack, p.x, p.y, p.amountText);
+            itemRenderer.zOffset = zOffset;
+            
+            GlStateManager.popMatrix();
+            
+            p.itemRenderer = null;
+            p.textRenderer = null;
+            p.stack = null;
+            p.amountText = null;
+        }
+        
+        overlayCount = 0;
     }
 
     private class Maker extends MutableQuadViewImpl implements QuadEmitter {
@@ -134,15 +368,12 @@ public class ItemRenderContext extends AbstractRenderContext implements RenderCo
 
     private final Consumer<Mesh> meshConsumer = (mesh) -> {
         MeshImpl m = (MeshImpl) mesh;
-        final int[] data = m.data();
-        final int limit = data.length;
+        final int limit = m.limit();
         int index = 0;
         while (index < limit) {
-            RenderMaterialImpl.Value mat = RenderMaterialImpl.byIndex(data[index]);
-            final int stride = MeshEncodingHelper.stride(mat.spriteDepth());
-            System.arraycopy(data, index, this.quadData, 0, stride);
+            m.decode(index, this.quadData);
             editorQuad.load();
-            index += stride;
+            index = m.nextIndex(index);
             renderQuad();
         }
     };
@@ -155,9 +386,15 @@ public class ItemRenderContext extends AbstractRenderContext implements RenderCo
      * performance cost and this happens for every item, every frame.
      */
     private void handleShading() {
-        if (!smoothShading && editorQuad.hasVertexNormals()) {
-            smoothShading = true;
-            GlStateManager.shadeModel(GL11.GL_SMOOTH);
+        if (editorQuad.hasVertexNormals()) {
+            if(isRecording) {
+                recorder.hasVertexNormals();
+            }
+            
+            if(!smoothShading) {
+                smoothShading = true;
+                GlStateManager.shadeModel(GL11.GL_SMOOTH);
+            }
         }
     }
 
@@ -167,6 +404,10 @@ public class ItemRenderContext extends AbstractRenderContext implements RenderCo
         if (!enchantment && quadColor == -1 && colorIndex != -1) {
             quadColor = colorMap.getColorMultiplier(itemStack, colorIndex);
             quadColor |= -16777216;
+            
+            if(isRecording) {
+                recorder.addStackColor(colorIndex, quadColor);
+            }
         }
         return quadColor;
     }
@@ -188,7 +429,16 @@ public class ItemRenderContext extends AbstractRenderContext implements RenderCo
         
         ColorHelper.colorizeQuad(quad, quadColor());
         
+        final int start = output.integerSize();
         output.materialState().materialVertexFormat().encode(quad, encodingContext.prepare(mat, context, null, null, mat.shaderFlags()), output);
+        
+        if(isRecording) {
+            recorder.addQuad(mat, props, output.rawData(), start, output.integerSize() - start);
+        }
+        
+        if(bakeModelView) {
+            bakeModelView(output, start);
+        }
     }
 
     @Override
@@ -224,8 +474,7 @@ public class ItemRenderContext extends AbstractRenderContext implements RenderCo
         editorQuad.colorIndex(quad.getColorIndex());
         editorQuad.material(defaultMaterial);
         
-        editorQuad.invalidateShape();
-        editorQuad.geometryFlags();
+        editorQuad.loadShape((BakedQuadExt) quad);
             
         renderQuad();
     }
@@ -16,8 +16,6 @@
 
 package grondag.canvas.apiimpl.rendercontext;
 
-import static grondag.canvas.apiimpl.util.MeshEncodingHelper.HEADER_BITS;
-
 import java.util.function.BiFunction;
 import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
@@ -32,6 +30,7 @@ import grondag.canvas.apiimpl.RenderMaterialImpl;
 import grondag.canvas.apiimpl.util.MeshEncodingHelper;
 import grondag.canvas.buffer.packing.VertexCollector;
 import grondag.canvas.light.AoCalculator;
+import grondag.canvas.material.MaterialVertexFormat;
 import grondag.canvas.material.ShaderContext;
 import net.fabricmc.fabric.api.renderer.v1.mesh.Mesh;
 import net.fabricmc.fabric.api.renderer.v1.mesh.QuadEmitter;
@@ -89,19 +88,20 @@ public class MeshConsumer extends QuadRenderer implements Consumer<Mesh> {
         }
     };
 
+    /** Mesh being rendered without transform, or null. Enables use of pre-encoded templates. */
+    private MeshImpl templateMesh = null;
+    private int templateQuadIndex;
+    
     @Override
     public void accept(Mesh mesh) {
         MeshImpl m = (MeshImpl) mesh;
-        final int[] data = m.data();
-        final int limit = data.length;
+        final int limit = m.limit();
         int index = 0;
+        int quadIndex = 0;
         final Maker q = this.editorQuad;
         while (index < limit) {
-            RenderMaterialImpl.Value mat = RenderMaterialImpl.byIndex(data[index]);
-            final int stride = MeshEncodingHelper.stride(mat.spriteDepth());
-            
             if(hasTransform.getAsBoolean()) {
-                System.arraycopy(data, index, q.data(), 0, stride);
+                m.decode(index, q.data());
                 q.load();
                 
                 if (!transform.transform(q)) {
@@ -113,15 +113,34 @@ public class MeshConsumer extends QuadRenderer implements Consumer<Mesh> {
                 }
             } else {
                 // early out for culling
-                final int cullFace = MeshEncodingHelper.cullFace(data[index + HEADER_BITS]);
+                final int cullFace = MeshEncodingHelper.cullFace(m.headerBits(index));
                 if (blockInfo.shouldDrawFace(cullFace)) {
-                    System.arraycopy(data, index, q.data(), 0, stride);
+                    m.decode(index, q.data());
                     q.load();
+                    templateMesh = m;
+                    templateQuadIndex = quadIndex;
                     renderQuadInner(q);
+                    templateMesh = null;
                 }
             }
             
-            index += stride;
+            index = m.nextIndex(index);
+            quadIndex++;
+        }
+    }
+    
+    /**
+     * Untransformed mesh quads have the same texture coordinates and normals every time they
+     * are rendered, so those are copied from a per-format template instead of re-encoded.
+     */
+    @Override
+    protected void encodeQuad(MutableQuadViewImpl q, VertexCollector output, RenderMaterialImpl.Value mat, boolean isAo) {
+        final MeshImpl m = templateMesh;
+        if(m == null) {
+            super.encodeQuad(q, output, mat, isAo);
+        } else {
+            final MaterialVertexFormat format = output.materialState().materialVertexFormat();
+            format.encodeFromTemplate(m.template(format), templateQuadIndex, q, encodingContext(mat, isAo), output);
         }
     }
 
@@ -31,9 +31,7 @@ import grondag.canvas.light.AoCalculator;
 import grondag.canvas.material.ShaderContext;
 import grondag.canvas.material.VertexEncodingContext;
 import net.fabricmc.fabric.api.renderer.v1.render.RenderContext.QuadTransform;
-import net.minecraft.block.BlockState;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.Direction;
 
 /**
  * Base quad-rendering class for fallback and mesh consumers. Has most of the
@@ -104,9 +102,13 @@ public class QuadRenderer {
     
     private final VertexEncodingContext encodingContext = new VertexEncodingContext();
     
-    private void encodeQuad(MutableQuadViewImpl q, VertexCollector output, RenderMaterialImpl.Value mat, boolean isAo) {
+    protected void encodeQuad(MutableQuadViewImpl q, VertexCollector output, RenderMaterialImpl.Value mat, boolean isAo) {
+        output.materialState().materialVertexFormat().encode(q, encodingContext(mat, isAo), output);
+    }
+    
+    protected final VertexEncodingContext encodingContext(RenderMaterialImpl.Value mat, boolean isAo) {
     	final int shaderFlags = isAo ? mat.shaderFlags() : mat.shaderFlags() | RenderMaterialImpl.SHADER_FLAGS_DISABLE_AO;
-        output.materialState().materialVertexFormat().encode(q, encodingContext.prepare(mat, contextFunc.apply(mat), blockInfo.blockPos, isAo ? aoCalc.ao : null, shaderFlags), output);
+        return encodingContext.prepare(mat, contextFunc.apply(mat), blockInfo.blockPos, isAo ? aoCalc.ao : null, shaderFlags);
     }
     
     /** for non-emissive mesh quads and all fallback quads with smooth lighting */
@@ -118,7 +120,7 @@ public class QuadRenderer {
 
     /** for non-emissive mesh quads and all fallback quads with flat lighting */
     private void lightFlat(MutableQuadViewImpl quad) {
-        final int brightness = flatBrightness(quad, blockInfo.blockState, blockInfo.blockPos);
+        final int brightness = blockInfo.flatBrightness(quad.cullFaceId());
         for (int i = 0; i < 4; i++) {
             quad.lightmap(i, ColorHelper.maxBrightness(quad.lightmap(i), brightness));
         }
@@ -127,22 +129,4 @@ public class QuadRenderer {
         quad.blockLight = null;
         quad.skyLight = null;
     }
-
-    private final BlockPos.Mutable mpos = new BlockPos.Mutable();
-
-    /**
-     * Handles geometry-based check for using self brightness or neighbor
-     * brightness. That logic only applies in flat lighting.
-     */
-    private int flatBrightness(MutableQuadViewImpl quad, BlockState blockState, BlockPos pos) {
-        // vanilla compatibility hack
-        // For flat lighting, cull face is always used instead of light face.
-        final Direction cullFace = quad.cullFace();
-        mpos.set(pos);
-        if (cullFace != null) {
-            mpos.setOffset(cullFace);
-        }
-        // Unfortunately cannot use cache for flat lighting because of magma blocks
-        return blockState.getBlockBrightness(blockInfo.blockView, mpos);
-    }
 }
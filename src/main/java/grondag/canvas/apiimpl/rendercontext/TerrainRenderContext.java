@@ -22,6 +22,7 @@ import grondag.canvas.apiimpl.RenderMaterialImpl;
 import grondag.canvas.chunk.ChunkRebuildHelper;
 import grondag.canvas.chunk.ChunkRenderInfo;
 import grondag.canvas.chunk.FastRenderRegion;
+import grondag.canvas.jfr.CanvasEvents;
 import grondag.canvas.light.AoCalculator;
 import grondag.canvas.material.ShaderContext;
 import grondag.frex.api.model.DynamicBakedModel;
@@ -84,11 +85,18 @@ public class TerrainRenderContext extends AbstractRenderContext implements Rende
 
     /** Called from chunk renderer hook. */
     public void tesselateBlock(BlockState blockState, BlockPos blockPos) {
+        final Object event = CanvasEvents.beginTessellate();
         try {
             final BakedModel model = blockRenderManager.getModel(blockState);
             aoCalc.clear();
             blockInfo.prepareForBlock(blockState, blockPos, model.useAmbientOcclusion());
             chunkInfo.beginBlock();
+            
+            if(BlockModelCache.isCacheable(model)) {
+                fallbackConsumer.accept(BlockModelCache.get(blockState, model, blockInfo.randomSupplier.get()));
+                return;
+            }
+            
             ((DynamicBakedModel) model).emitBlockQuads(blockInfo.blockView, blockInfo.blockState, blockInfo.blockPos,
                     blockInfo.randomSupplier, this);
         } catch (Throwable var9) {
@@ -96,6 +104,8 @@ public class TerrainRenderContext extends AbstractRenderContext implements Rende
             CrashReportSection crashReportElement_1 = crashReport_1.addElement("Block being tesselated");
             CrashReportSection.addBlockInfo(crashReportElement_1, blockPos, blockState);
             throw new CrashException(crashReport_1);
+        } finally {
+            CanvasEvents.endSection(event, blockPos.getX(), blockPos.getY(), blockPos.getZ());
         }
     }
 
@@ -152,15 +152,12 @@ public class ItemRenderContextOld extends AbstractRenderContextOld implements Re
 
     private final Consumer<Mesh> meshConsumer = (mesh) -> {
         MeshImpl m = (MeshImpl) mesh;
-        final int[] data = m.data();
-        final int limit = data.length;
+        final int limit = m.limit();
         int index = 0;
         while (index < limit) {
-            RenderMaterialImpl.Value mat = RenderMaterialImpl.byIndex(data[index]);
-            final int stride = MeshEncodingHelper.stride(mat.spriteDepth());
-            System.arraycopy(data, index, editorQuad.data(), 0, stride);
+            m.decode(index, editorQuad.data());
             editorQuad.load();
-            index += stride;
+            index = m.nextIndex(index);
             renderQuad();
         }
     };
@@ -0,0 +1,272 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+
+package grondag.canvas.apiimpl.util;
+
+import static grondag.canvas.apiimpl.util.MeshEncodingHelper.HEADER_BITS;
+import static grondag.canvas.apiimpl.util.MeshEncodingHelper.HEADER_MATERIAL;
+import static grondag.canvas.apiimpl.util.MeshEncodingHelper.HEADER_STRIDE;
+import static grondag.canvas.apiimpl.util.MeshEncodingHelper.NORMALS_OFFSET;
+import static grondag.canvas.apiimpl.util.MeshEncodingHelper.NORMALS_STRIDE;
+import static grondag.canvas.apiimpl.util.MeshEncodingHelper.SECOND_TEXTURE_OFFSET;
+import static grondag.canvas.apiimpl.util.MeshEncodingHelper.TEXTURE_STRIDE;
+import static grondag.canvas.apiimpl.util.MeshEncodingHelper.VERTEX_START_OFFSET;
+
+import grondag.canvas.apiimpl.RenderMaterialImpl;
+
+/**
+ * Alternate, smaller encoding for static meshes. Header is the same as {@link MeshEncodingHelper}
+ * so culling and material can be read without decoding. After the header:
+ * <ul>
+ * <li>positions, quantized to 1/4096 of a block in 16-bit signed values: x|y for each vertex, then z0|z1, z2|z3</li>
+ * <li>first-layer colors, omitted if all white</li>
+ * <li>first-layer u, v</li>
+ * <li>lightmaps, omitted if all zero</li>
+ * <li>normals, omitted if all zero</li>
+ * <li>additional texture layers, same as standard encoding</li>
+ * </ul>
+ * 
+ * Encoding is lossless. If any quad in a mesh cannot be encoded exactly the mesh keeps the standard format.
+ */
+public abstract class CompactMeshEncodingHelper {
+    private CompactMeshEncodingHelper() {
+    }
+    
+    // header bits above those used by MeshEncodingHelper
+    private static final int DEFAULT_COLOR_FLAG = 1 << 24;
+    private static final int DEFAULT_LIGHT_FLAG = 1 << 25;
+    private static final int DEFAULT_NORMALS_FLAG = 1 << 26;
+    private static final int FLAG_MASK = DEFAULT_COLOR_FLAG | DEFAULT_LIGHT_FLAG | DEFAULT_NORMALS_FLAG;
+    
+    private static final int POS_STRIDE = 6;
+    private static final int COLOR_STRIDE = 4;
+    private static final int UV_STRIDE = 8;
+    private static final int LIGHT_STRIDE = 4;
+    
+    private static final float POS_SCALE = 4096f;
+    private static final float POS_INVERSE = 1f / POS_SCALE;
+    
+    /** Length of the compact quad starting at index */
+    public static int stride(int[] data, int index) {
+        final int bits = data[index + HEADER_BITS];
+        final int depth = RenderMaterialImpl.byIndex(data[index + HEADER_MATERIAL]).spriteDepth();
+        return HEADER_STRIDE + POS_STRIDE + UV_STRIDE
+                + ((bits & DEFAULT_COLOR_FLAG) == 0 ? COLOR_STRIDE : 0)
+                + ((bits & DEFAULT_LIGHT_FLAG) == 0 ? LIGHT_STRIDE : 0)
+                + ((bits & DEFAULT_NORMALS_FLAG) == 0 ? NORMALS_STRIDE : 0)
+                + (depth - 1) * TEXTURE_STRIDE;
+    }
+    
+    /**
+     * Returns compact encoding of the given standard-format quads, or null if
+     * any quad cannot be represented exactly.
+     */
+    public static int[] encode(int[] data) {
+        // compact is never larger than standard
+        final int[] result = new int[data.length];
+        final int limit = data.length;
+        int index = 0;
+        int k = 0;
+        
+        while (index < limit) {
+            final int stride = MeshEncodingHelper.stride(RenderMaterialImpl.byIndex(data[index + HEADER_MATERIAL]).spriteDepth());
+            k = encodeQuad(data, index, result, k);
+            
+            if (k < 0) {
+                return null;
+            }
+            
+            index += stride;
+        }
+        
+        if (k == limit) {
+            return null;
+        }
+        
+        final int[] packed = new int[k];
+        System.arraycopy(result, 0, packed, 0, k);
+        return packed;
+    }
+    
+    /** Returns index after encoded quad, or -1 if quad cannot be encoded exactly */
+    private static int encodeQuad(int[] data, int index, int[] target, int k) {
+        final int bits = data[index + HEADER_BITS];
+        
+        if ((bits & FLAG_MASK) != 0) {
+            return -1;
+        }
+        
+        final int vertexStart = index + VERTEX_START_OFFSET;
+        boolean defaultColor = true;
+        boolean defaultLight = true;
+        boolean defaultNormals = true;
+        
+        for (int i = 0; i < 4; i++) {
+            final int v = vertexStart + i * 7;
+            
+            for (int j = 0; j < 3; j++) {
+                if (quantize(data[v + j]) == Integer.MIN_VALUE) {
+                    return -1;
+                }
+            }
+            
+            defaultColor &= data[v + 3] == -1;
+            defaultLight &= data[v + 6] == 0;
+            defaultNormals &= data[index + NORMALS_OFFSET + i] == 0;
+        }
+        
+        System.arraycopy(data, index, target, k, HEADER_STRIDE);
+        target[k + HEADER_BITS] = bits 
+                | (defaultColor ? DEFAULT_COLOR_FLAG : 0)
+                | (defaultLight ? DEFAULT_LIGHT_FLAG : 0)
+                | (defaultNormals ? DEFAULT_NORMALS_FLAG : 0);
+        k += HEADER_STRIDE;
+        
+        for (int i = 0; i < 4; i++) {
+            final int v = vertexStart + i * 7;
+            target[k++] = (quantize(data[v]) << 16) | (quantize(data[v + 1]) & 0xFFFF);
+        }
+        
+        target[k++] = (quantize(data[vertexStart + 2]) << 16) | (quantize(data[vertexStart + 9]) & 0xFFFF);
+        target[k++] = (quantize(data[vertexStart + 16]) << 16) | (quantize(data[vertexStart + 23]) & 0xFFFF);
+        
+        if (!defaultColor) {
+            for (int i = 0; i < 4; i++) {
+                target[k++] = data[vertexStart + i * 7 + 3];
+            }
+        }
+        
+        for (int i = 0; i < 4; i++) {
+            target[k++] = data[vertexStart + i * 7 + 4];
+            target[k++] = data[vertexStart + i * 7 + 5];
+        }
+        
+        if (!defaultLight) {
+            for (int i = 0; i < 4; i++) {
+                target[k++] = data[vertexStart + i * 7 + 6];
+            }
+        }
+        
+        if (!defaultNormals) {
+            System.arraycopy(data, index + NORMALS_OFFSET, target, k, NORMALS_STRIDE);
+            k += NORMALS_STRIDE;
+        }
+        
+        final int textureInts = (RenderMaterialImpl.byIndex(data[index + HEADER_MATERIAL]).spriteDepth() - 1) * TEXTURE_STRIDE;
+        if (textureInts > 0) {
+            System.arraycopy(data, index + SECOND_TEXTURE_OFFSET, target, k, textureInts);
+            k += textureInts;
+        }
+        
+        return k;
+    }
+    
+    /** 
+     * Quantized value if float bits can be restored exactly from a signed 16-bit value
+     * at 1/4096 resolution, or Integer.MIN_VALUE otherwise.
+     */
+    private static int quantize(int floatBits) {
+        final float f = Float.intBitsToFloat(floatBits);
+        final float scaled = f * POS_SCALE;
+        final int q = (int) scaled;
+        
+        if (q < Short.MIN_VALUE || q > Short.MAX_VALUE || q != scaled || Float.floatToRawIntBits(q * POS_INVERSE) != floatBits) {
+            return Integer.MIN_VALUE;
+        }
+        
+        return q;
+    }
+    
+    /**
+     * Decodes the compact quad at index into standard format at the start of target. 
+     * Returns the index of the next compact quad.
+     */
+    public static int decode(int[] data, int index, int[] target) {
+        final int bits = data[index + HEADER_BITS];
+        System.arraycopy(data, index, target, 0, HEADER_STRIDE);
+        target[HEADER_BITS] = bits & ~FLAG_MASK;
+        int k = index + HEADER_STRIDE;
+        
+        final int xy0 = data[k++];
+        final int xy1 = data[k++];
+        final int xy2 = data[k++];
+        final int xy3 = data[k++];
+        final int z01 = data[k++];
+        final int z23 = data[k++];
+        
+        decodePos(target, VERTEX_START_OFFSET, xy0, z01 >> 16);
+        decodePos(target, VERTEX_START_OFFSET + 7, xy1, (short) z01);
+        decodePos(target, VERTEX_START_OFFSET + 14, xy2, z23 >> 16);
+        decodePos(target, VERTEX_START_OFFSET + 21, xy3, (short) z23);
+        
+        if ((bits & DEFAULT_COLOR_FLAG) == 0) {
+            target[VERTEX_START_OFFSET + 3] = data[k++];
+            target[VERTEX_START_OFFSET + 10] = data[k++];
+            target[VERTEX_START_OFFSET + 17] = data[k++];
+            target[VERTEX_START_OFFSET + 24] = data[k++];
+        } else {
+            target[VERTEX_START_OFFSET + 3] = -1;
+            target[VERTEX_START_OFFSET + 10] = -1;
+            target[VERTEX_START_OFFSET + 17] = -1;
+            target[VERTEX_START_OFFSET + 24] = -1;
+        }
+        
+        target[VERTEX_START_OFFSET + 4] = data[k++];
+        target[VERTEX_START_OFFSET + 5] = data[k++];
+        target[VERTEX_START_OFFSET + 11] = data[k++];
+        target[VERTEX_START_OFFSET + 12] = data[k++];
+        target[VERTEX_START_OFFSET + 18] = data[k++];
+        target[VERTEX_START_OFFSET + 19] = data[k++];
+        target[VERTEX_START_OFFSET + 25] = data[k++];
+        target[VERTEX_START_OFFSET + 26] = data[k++];
+        
+        if ((bits & DEFAULT_LIGHT_FLAG) == 0) {
+            target[VERTEX_START_OFFSET + 6] = data[k++];
+            target[VERTEX_START_OFFSET + 13] = data[k++];
+            target[VERTEX_START_OFFSET + 20] = data[k++];
+            target[VERTEX_START_OFFSET + 27] = data[k++];
+        } else {
+            target[VERTEX_START_OFFSET + 6] = 0;
+            target[VERTEX_START_OFFSET + 13] = 0;
+            target[VERTEX_START_OFFSET + 20] = 0;
+            target[VERTEX_START_OFFSET + 27] = 0;
+        }
+        
+        if ((bits & DEFAULT_NORMALS_FLAG) == 0) {
+            System.arraycopy(data, k, target, NORMALS_OFFSET, NORMALS_STRIDE);
+            k += NORMALS_STRIDE;
+        } else {
+            target[NORMALS_OFFSET] = 0;
+            target[NORMALS_OFFSET + 1] = 0;
+            target[NORMALS_OFFSET + 2] = 0;
+            target[NORMALS_OFFSET + 3] = 0;
+        }
+        
+        final int textureInts = (RenderMaterialImpl.byIndex(data[index + HEADER_MATERIAL]).spriteDepth() - 1) * TEXTURE_STRIDE;
+        if (textureInts > 0) {
+            System.arraycopy(data, k, target, SECOND_TEXTURE_OFFSET, textureInts);
+            k += textureInts;
+        }
+        
+        return k;
+    }
+    
+    private static void decodePos(int[] target, int v, int xy, int z) {
+        target[v] = Float.floatToRawIntBits((xy >> 16) * POS_INVERSE);
+        target[v + 1] = Float.floatToRawIntBits(((short) xy) * POS_INVERSE);
+        target[v + 2] = Float.floatToRawIntBits(z * POS_INVERSE);
+    }
+}
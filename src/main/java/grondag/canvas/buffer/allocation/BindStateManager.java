@@ -2,13 +2,17 @@ package grondag.canvas.buffer.allocation;
 
 import com.mojang.blaze3d.platform.GLX;
 
+import grondag.canvas.varia.GlStateTracker;
+
 public class BindStateManager {
     private static int lastBoundBufferId = -1;
     
     public static boolean bind(int glBufferId) {
         if(glBufferId == lastBoundBufferId) {
+            GlStateTracker.skipped(GlStateTracker.ARRAY_BUFFER);
             return false;
         } else {
+            GlStateTracker.issued(GlStateTracker.ARRAY_BUFFER);
             lastBoundBufferId = glBufferId;
             GLX.glBindBuffer(GLX.GL_ARRAY_BUFFER, glBufferId);
             return true;
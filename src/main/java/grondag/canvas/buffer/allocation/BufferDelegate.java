@@ -17,17 +17,14 @@
 package grondag.canvas.buffer.allocation;
 
 import java.nio.IntBuffer;
-import java.util.concurrent.ArrayBlockingQueue;
+
+import grondag.canvas.varia.ObjectPool;
 
 public class BufferDelegate {
-    private static final ArrayBlockingQueue<BufferDelegate> POOL = new ArrayBlockingQueue<>(4096);
+    private static final ObjectPool<BufferDelegate> POOL = ObjectPool.ofCount("BufferDelegate", 64, 4096, BufferDelegate::new);
     
     public static BufferDelegate claim(AbstractBuffer buffer, int byteOffset, int byteCount) {
-        BufferDelegate result = POOL.poll();
-        if (result == null) {
-            result = new BufferDelegate();
-        }
-        return result.prepare(buffer, byteOffset, byteCount);
+        return POOL.claim().prepare(buffer, byteOffset, byteCount);
     }
     
     private int byteCount;
@@ -45,7 +42,7 @@ public class BufferDelegate {
     }
     
     public void release() {
-        POOL.offer(this);
+        POOL.release(this);
     }
     
     /**
@@ -21,6 +21,8 @@ import java.util.function.Consumer;
 
 import com.mojang.blaze3d.platform.GLX;
 
+import grondag.canvas.varia.RenderMetrics;
+
 public class VboBuffer extends UploadableBuffer implements AllocationProvider {
     ByteBuffer uploadBuffer;
     
@@ -36,6 +38,7 @@ public class VboBuffer extends UploadableBuffer implements AllocationProvider {
         if(uploadBuffer != null) {
             bind();
             uploadBuffer.rewind();
+            RenderMetrics.add(RenderMetrics.BYTES_UPLOADED, uploadBuffer.limit());
             GLX.glBufferData(GLX.GL_ARRAY_BUFFER, uploadBuffer, GLX.GL_STATIC_DRAW);
             unbind();
             BufferAllocator.release(uploadBuffer);
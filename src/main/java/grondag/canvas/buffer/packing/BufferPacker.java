@@ -21,6 +21,7 @@ import java.nio.IntBuffer;
 import grondag.canvas.buffer.allocation.AllocationProvider;
 import grondag.canvas.draw.DelegateLists;
 import grondag.canvas.draw.DrawableDelegate;
+import grondag.canvas.jfr.CanvasEvents;
 import grondag.canvas.material.MaterialState;
 import grondag.canvas.material.MaterialVertexFormat;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
@@ -38,6 +39,7 @@ public class BufferPacker {
     
     /** Does not retain packing list reference */
     public static ObjectArrayList<DrawableDelegate> pack(BufferPackingList packingList, VertexCollectorList collectorList, AllocationProvider allocator) {
+        final Object event = CanvasEvents.beginPack();
         final BufferPacker packer = THREADLOCAL.get();
         final ObjectArrayList<DrawableDelegate> result = DelegateLists.getReadyDelegateList();
         packer.delegates = result;
@@ -47,6 +49,9 @@ public class BufferPacker {
         packer.delegates = null;
         packer.collectorList = null;
         packer.allocator = null;
+        if (event != null) {
+            CanvasEvents.endBuffer(event, packingList.quadCount(), packingList.totalBytes());
+        }
         return result;
     }
 
@@ -19,6 +19,7 @@ package grondag.canvas.buffer.packing;
 import java.nio.ByteBuffer;
 import java.util.function.Consumer;
 
+import grondag.canvas.apiimpl.rendercontext.ItemRenderContext;
 import grondag.canvas.buffer.allocation.AbstractBuffer;
 import grondag.canvas.buffer.allocation.AllocationProvider;
 import grondag.canvas.buffer.allocation.BufferDelegate;
@@ -48,8 +49,13 @@ public class CanvasBufferBuilder extends BufferBuilder implements AllocationProv
         super.clear();
     }
 
+    /** 
+     * Buffered GUI items must be drawn before whatever is drawn next. Done here instead of
+     * in draw because their overlays draw through this builder and can't while it is building.
+     */
     @Override
     public void begin(int primitive, VertexFormat format) {
+        ItemRenderContext.flushGuiItems();
         super.begin(primitive, format);
     }
 
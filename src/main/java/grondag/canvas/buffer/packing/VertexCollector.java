@@ -113,6 +113,30 @@ public class VertexCollector {
         }
     }
 
+    /**
+     * Ensures capacity for and claims the given number of integers.
+     * Returns the starting index of the claimed range in {@link #rawData()}, 
+     * which must be retrieved after this call because the array may be reallocated.
+     */
+    public final int allocate(final int intCount) {
+        checkForSize(intCount);
+        final int result = integerSize;
+        integerSize += intCount;
+        return result;
+    }
+    
+    public final double renderOriginX() {
+        return parent.renderOriginX;
+    }
+    
+    public final double renderOriginY() {
+        return parent.renderOriginY;
+    }
+    
+    public final double renderOriginZ() {
+        return parent.renderOriginZ;
+    }
+
     public final void add(final int i) {
         data[integerSize++] = i;
     }
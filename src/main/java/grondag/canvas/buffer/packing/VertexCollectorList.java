@@ -23,8 +23,8 @@ import java.util.function.Consumer;
 
 import grondag.canvas.apiimpl.RenderMaterialImpl;
 import grondag.canvas.chunk.UploadableChunk;
+import grondag.canvas.jfr.CanvasEvents;
 import grondag.canvas.material.MaterialState;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import net.minecraft.util.math.MathHelper;
 
@@ -58,7 +58,14 @@ public class VertexCollectorList {
         }
     };
 
-    private final Int2ObjectOpenHashMap<VertexCollector> usedCollectors = new Int2ObjectOpenHashMap<>();
+    /** Collectors in use, indexed by {@link MaterialState#ordinal}. Grows as needed. */
+    private VertexCollector[] usedCollectors = new VertexCollector[64];
+    
+    /** Most recent lookup - consecutive quads very often share the same material */
+    private RenderMaterialImpl.Value lastMaterial = null;
+    private int lastShaderProps = 0;
+    private MaterialState lastState = null;
+    private VertexCollector lastCollector = null;
     
     private final BufferPackingList packingList = new BufferPackingList();
     
@@ -94,8 +101,19 @@ public class VertexCollectorList {
         renderOriginX = 0;
         renderOriginY = 0;
         renderOriginZ = 0;
+        
+        final VertexCollector[] used = this.usedCollectors;
+        for(int i = 0; i < usedCount; i++) {
+            final MaterialState state = allCollectors.get(i).materialState();
+            if(state != null) {
+                used[state.ordinal] = null;
+            }
+        }
+        
         usedCount = 0;
-        usedCollectors.clear();
+        lastMaterial = null;
+        lastState = null;
+        lastCollector = null;
     }
 
     @Override
@@ -136,18 +154,45 @@ public class VertexCollectorList {
     }
     
     public final VertexCollector get(RenderMaterialImpl.Value material, int shaderProps) {
-        return get(MaterialState.get(material.shader, material.condition, shaderProps));
+        if(material == lastMaterial && shaderProps == lastShaderProps) {
+            return lastCollector;
+        }
+        
+        final VertexCollector result = get(MaterialState.get(material.shader, material.condition, shaderProps));
+        lastMaterial = material;
+        lastShaderProps = shaderProps;
+        return result;
     }
     
     public final VertexCollector get(MaterialState renderState) {
-        final int renderIndex = renderState.index;
-        VertexCollector result = usedCollectors.get(renderIndex);
+        if(renderState == lastState) {
+            return lastCollector;
+        }
+        
+        final int ordinal = renderState.ordinal;
+        final VertexCollector[] used = usedCollectors(ordinal);
+        VertexCollector result = used[ordinal];
         if(result == null) {
 //            final MaterialVertexFormat format = (isTranslucent && Configurator.padTranslucentFormats) 
 //                    ? MaterialVertexFormats.fromShaderProps(ShaderProps.PADDED_TRANSLUCENCY) 
 //                    : renderState.format;
             result = emptyCollector().prepare(renderState, renderState.format);
-            usedCollectors.put(renderIndex, result);
+            used[ordinal] = result;
+        }
+        
+        // material lookup is no longer valid unless caller sets it
+        lastMaterial = null;
+        lastState = renderState;
+        lastCollector = result;
+        return result;
+    }
+    
+    /** Returns collector array, expanded if needed to hold the given ordinal */
+    private VertexCollector[] usedCollectors(int ordinal) {
+        VertexCollector[] result = this.usedCollectors;
+        if(ordinal >= result.length) {
+            result = Arrays.copyOf(result, Math.max(result.length * 2, ordinal + 1));
+            this.usedCollectors = result;
         }
         return result;
     }
@@ -209,6 +254,7 @@ public class VertexCollectorList {
      * DO NOT RETAIN A REFERENCE
      */
     public final BufferPackingList packingListTranslucent() {
+        final Object event = CanvasEvents.beginSort();
         final BufferPackingList packing = this.packingList;
         packing.clear();
         final PriorityQueue<VertexCollector> sorter = sorters.get();
@@ -250,6 +296,10 @@ public class VertexCollectorList {
             final int startVertex = first.sortReadIndex() * 4;
             packing.addPacking(first.materialState(), startVertex, 4 * first.unpackUntilDistance(Double.MIN_VALUE));
         }
+        
+        if (event != null) {
+            CanvasEvents.endBuffer(event, packing.quadCount(), packing.totalBytes());
+        }
         return packing;
     }
     
@@ -277,8 +327,14 @@ public class VertexCollectorList {
     public void loadCollectorState(int[][] stateData) {
         clear();
         for (int[] data : stateData) {
-            VertexCollector vc = emptyCollector().loadState(data);
-            usedCollectors.put(vc.materialState().index, vc);
+            emptyCollector().loadState(data);
+        }
+        
+        final int usedCount = this.usedCount;
+        for(int i = 0; i < usedCount; i++) {
+            final VertexCollector vc = allCollectors.get(i);
+            final int ordinal = vc.materialState().ordinal;
+            usedCollectors(ordinal)[ordinal] = vc;
         }
     }
 }
@@ -16,23 +16,18 @@
 
 package grondag.canvas.chunk;
 
-import java.util.concurrent.ArrayBlockingQueue;
-
+import grondag.canvas.varia.ObjectPool;
 import net.minecraft.client.render.chunk.ChunkRenderData;
 
 public class ChunkRenderDataStore {
-    private static final ArrayBlockingQueue<ChunkRenderData> chunks = new ArrayBlockingQueue<>(4096);
+    private static final ObjectPool<ChunkRenderData> chunks = ObjectPool.ofCount("ChunkRenderData", 32, 4096, ChunkRenderData::new);
 
     public static ChunkRenderData claim() {
-        ChunkRenderData result = chunks.poll();
-        if (result == null)
-            result = new ChunkRenderData();
-
-        return result;
+        return chunks.claim();
     }
 
     public static void release(ChunkRenderData chunk) {
         ((ChunkRenderDataExt) chunk).canvas_clear();
-        chunks.offer(chunk);
+        chunks.release(chunk);
     }
 }
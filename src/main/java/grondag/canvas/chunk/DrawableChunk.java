@@ -18,6 +18,7 @@ package grondag.canvas.chunk;
 
 import java.util.function.Consumer;
 
+import grondag.canvas.apiimpl.MaterialConditionImpl;
 import grondag.canvas.draw.DelegateLists;
 import grondag.canvas.draw.DrawableDelegate;
 import grondag.canvas.material.ShaderManager;
@@ -137,14 +138,14 @@ public abstract class DrawableChunk {
             
             final Object[] draws = delegates.elements();
 
-            final int frameIndex = ShaderManager.INSTANCE.frameIndex();
+            final long conditionMask = MaterialConditionImpl.blockMask(ShaderManager.INSTANCE.frameIndex());
             
             // using conventional loop here to prevent iterator garbage in hot loop
             // profiling shows it matters
             for (int i = 0; i < limit; i++) {
                 final DrawableDelegate b = (DrawableDelegate) draws[i];
                 MaterialState p = b.materialState();
-                if(!p.condition.affectBlocks || p.condition.compute(frameIndex)) {
+                if((conditionMask & p.condition.mask) != 0) {
                     p.activate(ShaderContext.BLOCK_TRANSLUCENT);
                     b.bind();
                     b.draw();
@@ -16,13 +16,14 @@
 
 package grondag.canvas.chunk;
 
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.function.Function;
 
 import javax.annotation.Nullable;
 
 import grondag.canvas.chunk.ChunkPaletteCopier.PaletteCopy;
+import grondag.canvas.jfr.CanvasEvents;
 import grondag.canvas.light.AoLuminanceFix;
+import grondag.canvas.varia.ObjectPool;
 import grondag.fermion.position.PackedBlockPos;
 import it.unimi.dsi.fastutil.longs.Long2FloatOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
@@ -34,18 +35,23 @@ import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.LightType;
 import net.minecraft.world.World;
 import net.minecraft.world.biome.Biome;
+import net.minecraft.world.biome.Biomes;
 import net.minecraft.world.chunk.WorldChunk;
 
 public class FastRenderRegion implements RenderAttachedBlockView {
-    private static final ArrayBlockingQueue<FastRenderRegion> POOL = new ArrayBlockingQueue<>(256); 
+    /**
+     * Each region holds about 3 MB in its light caches. Magazines aren't counted against the
+     * cap, so each thread that releases regions can keep two more idle. Regions only exist
+     * for concurrent rebuilds, so the depot stays far below the cap in practice.
+     */
+    private static final ObjectPool<FastRenderRegion> POOL = ObjectPool.ofCount("FastRenderRegion", 2, 256, FastRenderRegion::new); 
 
     public static FastRenderRegion claim() {
-        final FastRenderRegion result = POOL.poll();
-        return result == null ? new FastRenderRegion() : result;
+        return POOL.claim();
     }
 
     private static void release(FastRenderRegion region) {
-        POOL.offer(region);
+        POOL.release(region);
     }
     
     public static void forceReload() {
@@ -53,6 +59,12 @@ public class FastRenderRegion implements RenderAttachedBlockView {
     	POOL.clear();
     }
     
+    /** Supplies light for regions prepared from captured data instead of a world */
+    @FunctionalInterface
+    public static interface LightSource {
+        int getLightLevel(LightType type, BlockPos pos);
+    }
+    
     /**
      * Serves same function as brightness cache in Mojang's AO calculator, with some
      * differences as follows...
@@ -93,6 +105,9 @@ public class FastRenderRegion implements RenderAttachedBlockView {
     private int secBaseZ;
     
     private Function<BlockPos, Object> renderFunc;
+    
+    /** Non-null only for replayed regions, in which case world and chunks are null */
+    private LightSource replayLight;
 
     // larger than it needs to be to speed up indexing
     public final PaletteCopy[] sectionCopies = new PaletteCopy[64];
@@ -105,11 +120,13 @@ public class FastRenderRegion implements RenderAttachedBlockView {
     }
     
     public FastRenderRegion prepare(World world, int cxOff, int czOff, WorldChunk[][] chunks, BlockPos posFrom, Function<BlockPos, Object> renderFunc) {
+        final Object event = CanvasEvents.beginRegionCapture();
         this.world = world;
         this.chunks = chunks;
         this.chunkXOffset = cxOff;
         this.chunkZOffset = czOff;
         this.renderFunc = renderFunc;
+        this.replayLight = null;
         secBaseX = posFrom.getX() >> 4;
         secBaseY = posFrom.getY() >> 4;
         secBaseZ = posFrom.getZ() >> 4;
@@ -124,6 +141,27 @@ public class FastRenderRegion implements RenderAttachedBlockView {
             }
         }
 
+        // posFrom is one block outside the section being rebuilt
+        CanvasEvents.endSection(event, posFrom.getX() + 1, posFrom.getY() + 1, posFrom.getZ() + 1);
+        return this;
+    }
+    
+    /**
+     * Prepares region from previously captured section copies for headless replay.
+     * Sections are in the same order as {@link #sectionCopies}. Block entities and
+     * render attachments are not available and biome is always plains.
+     */
+    public FastRenderRegion prepareReplay(PaletteCopy[] sections, BlockPos posFrom, LightSource light) {
+        this.world = null;
+        this.chunks = null;
+        this.renderFunc = null;
+        this.replayLight = light;
+        secBaseX = posFrom.getX() >> 4;
+        secBaseY = posFrom.getY() >> 4;
+        secBaseZ = posFrom.getZ() >> 4;
+        brightnessCache.clear();
+        aoLevelCache.clear();
+        System.arraycopy(sections, 0, sectionCopies, 0, sectionCopies.length);
         return this;
     }
     
@@ -157,6 +195,9 @@ public class FastRenderRegion implements RenderAttachedBlockView {
 
     @Nullable
     public BlockEntity getBlockEntity(BlockPos pos, WorldChunk.CreationType creationType) {
+        if(chunks == null) {
+            return null;
+        }
         int int_1 = (pos.getX() >> 4) - this.chunkXOffset;
         int int_2 = (pos.getZ() >> 4) - this.chunkZOffset;
         return this.chunks[int_1][int_2].getBlockEntity(pos, creationType);
@@ -174,6 +215,9 @@ public class FastRenderRegion implements RenderAttachedBlockView {
 
     @Override
     public Biome getBiome(BlockPos pos) {
+        if(chunks == null) {
+            return Biomes.PLAINS;
+        }
         int int_1 = (pos.getX() >> 4) - this.chunkXOffset;
         int int_2 = (pos.getZ() >> 4) - this.chunkZOffset;
         return this.chunks[int_1][int_2].getBiome(pos);
@@ -181,12 +225,13 @@ public class FastRenderRegion implements RenderAttachedBlockView {
 
     @Override
     public int getLightLevel(LightType type, BlockPos pos) {
-        return this.world.getLightLevel(type, pos);
+        final World world = this.world;
+        return world == null ? replayLight.getLightLevel(type, pos) : world.getLightLevel(type, pos);
     }
 
     @Override
     public Object getBlockEntityRenderAttachment(BlockPos pos) {
-        return renderFunc.apply(pos);
+        return renderFunc == null ? null : renderFunc.apply(pos);
     }
     
     public int cachedBrightness(BlockPos pos) {
@@ -16,33 +16,31 @@
 
 package grondag.canvas.chunk;
 
-import java.util.concurrent.ArrayBlockingQueue;
+import grondag.canvas.varia.ObjectPool;
 
 /**
  * Minimize new allocation for chunk storage copies by recycling the long arrays.
  */
 public class PackedIntegerStorageHelper {
 
-  private static final ArrayBlockingQueue<long[]> POOL_256 = new ArrayBlockingQueue<>(1024); 
-  private static final ArrayBlockingQueue<long[]> POOL_320 = new ArrayBlockingQueue<>(1024); 
+  private static final ObjectPool<long[]> POOL_256 = ObjectPool.ofBytes("PackedStorage256", 32, 1024 * 256 * 8, a -> a.length * 8, () -> new long[256]); 
+  private static final ObjectPool<long[]> POOL_320 = ObjectPool.ofBytes("PackedStorage320", 32, 1024 * 320 * 8, a -> a.length * 8, () -> new long[320]); 
 
   private static long[] claim256() {
-      final long[] result = POOL_256.poll();
-      return result == null ? new long[256] : result;
+      return POOL_256.claim();
   }
 
   private static long[] claim320() {
-      final long[] result = POOL_320.poll();
-      return result == null ? new long[320] : result;
+      return POOL_320.claim();
   }
   
   public static void releaseStorageCopy(long[] storage) {
       final int len = storage.length;
       
       if(len == 256) {
-          POOL_256.offer(storage);
+          POOL_256.release(storage);
       } else if(len == 320) {
-          POOL_320.offer(storage);
+          POOL_320.release(storage);
       }
   }
     
@@ -35,6 +35,24 @@ public abstract class UploadableChunk<V extends DrawableChunk> {
      * Will be called from client thread - is where flush/unmap needs to happen.
      */
     public abstract V produceDrawable();
+    
+    /** For profiling */
+    public final int quadCount() {
+        int result = 0;
+        final int limit = delegates.size();
+        for (int i = 0; i < limit; i++)
+            result += delegates.get(i).vertexCount() / 4;
+        return result;
+    }
+    
+    /** For profiling */
+    public final int byteCount() {
+        int result = 0;
+        final int limit = delegates.size();
+        for (int i = 0; i < limit; i++)
+            result += delegates.get(i).bufferDelegate().byteCount();
+        return result;
+    }
 
     /**
      * Called if {@link #produceDrawable()} will not be called, so can release
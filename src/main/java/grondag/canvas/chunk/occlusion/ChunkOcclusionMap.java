@@ -17,26 +17,24 @@
 package grondag.canvas.chunk.occlusion;
 
 import java.util.Set;
-import java.util.concurrent.ArrayBlockingQueue;
 
+import grondag.canvas.varia.ObjectPool;
 import it.unimi.dsi.fastutil.shorts.Short2ByteOpenHashMap;
 import net.minecraft.util.math.Direction;
 
 @SuppressWarnings("serial")
 public class ChunkOcclusionMap extends Short2ByteOpenHashMap {
-    private static ArrayBlockingQueue<ChunkOcclusionMap> occlusionMaps = new ArrayBlockingQueue<>(4096);
+    private static final ObjectPool<ChunkOcclusionMap> occlusionMaps = ObjectPool.ofCount("ChunkOcclusionMap", 32, 4096, ChunkOcclusionMap::new);
 
     public static ChunkOcclusionMap claim() {
-        ChunkOcclusionMap result = occlusionMaps.poll();
-        if (result == null)
-            result = new ChunkOcclusionMap();
-        else
-            result.clear();
+        // no-op when new
+        final ChunkOcclusionMap result = occlusionMaps.claim();
+        result.clear();
         return result;
     }
 
     public static void release(ChunkOcclusionMap map) {
-        occlusionMaps.offer(map);
+        occlusionMaps.release(map);
     }
 
     public Set<Direction> getFaceSet(int index) {
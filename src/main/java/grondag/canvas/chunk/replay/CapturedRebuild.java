@@ -0,0 +1,301 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+
+package grondag.canvas.chunk.replay;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import grondag.canvas.chunk.ChunkPaletteCopier.PaletteCopy;
+import grondag.canvas.chunk.FastRenderRegion;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.nbt.NbtHelper;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.LightType;
+
+/**
+ * Inputs of one chunk rebuild: the 27 section copies around the chunk being built,
+ * sky and block light for every position the rebuild can read, positions of block
+ * entities and the camera position used for translucent sorting.<p>
+ * 
+ * Block states are written as registry names and property values, not raw ids, so
+ * captures load in any game instance with the same blocks registered.
+ */
+public class CapturedRebuild implements FastRenderRegion.LightSource {
+    private static final int MAGIC = 0x43435242; // CCRB
+    private static final int VERSION = 1;
+    
+    static final int SECTION_COUNT = 27;
+    static final int SECTION_SIZE = 4096;
+    
+    /** Light smoothing reads four blocks past each side of the chunk - nothing reads farther */
+    static final int LIGHT_MARGIN = 4;
+    static final int LIGHT_DIAMETER = 16 + LIGHT_MARGIN * 2;
+    private static final int LIGHT_COUNT = LIGHT_DIAMETER * LIGHT_DIAMETER * LIGHT_DIAMETER;
+    
+    /** Light outside the captured window - open sky, no block light */
+    private static final byte DEFAULT_LIGHT = (byte) 0xF0;
+    
+    public final int originX;
+    public final int originY;
+    public final int originZ;
+    
+    public final double cameraX;
+    public final double cameraY;
+    public final double cameraZ;
+    
+    final BlockState[] palette;
+    
+    /** Palette indices, {@link #SECTION_SIZE} per section in section index order */
+    final int[] blocks;
+    
+    /** Sky light in high nibble, block light in low nibble */
+    final byte[] light;
+    
+    /** Packed relative to origin: x, y, z */
+    final int[] blockEntities;
+    
+    private PaletteCopy[] sectionCopies;
+    
+    private CapturedRebuild(int originX, int originY, int originZ, double cameraX, double cameraY, double cameraZ, BlockState[] palette, int[] blocks, byte[] light, int[] blockEntities) {
+        this.originX = originX;
+        this.originY = originY;
+        this.originZ = originZ;
+        this.cameraX = cameraX;
+        this.cameraY = cameraY;
+        this.cameraZ = cameraZ;
+        this.palette = palette;
+        this.blocks = blocks;
+        this.light = light;
+        this.blockEntities = blockEntities;
+    }
+    
+    private static int sectionIndex(int x, int y, int z) {
+        return x + y * 3 + z * 9;
+    }
+    
+    private static int lightIndex(int x, int y, int z) {
+        return x + (y + z * LIGHT_DIAMETER) * LIGHT_DIAMETER;
+    }
+    
+    /**
+     * Copies rebuild inputs from a region that is still prepared. Reads the same section
+     * copies the rebuild used, so state matches the rebuild even if the world has moved on.
+     * Light is read from the world and may be slightly newer.
+     */
+    public static CapturedRebuild capture(FastRenderRegion region, BlockPos origin, double cameraX, double cameraY, double cameraZ, Collection<BlockEntity> globalEntities, Collection<BlockEntity> chunkEntities) {
+        final Object2IntOpenHashMap<BlockState> paletteMap = new Object2IntOpenHashMap<>();
+        paletteMap.defaultReturnValue(-1);
+        final ObjectArrayList<BlockState> palette = new ObjectArrayList<>();
+        final int[] blocks = new int[SECTION_COUNT * SECTION_SIZE];
+        
+        for(int x = 0; x < 3; x++) {
+            for(int y = 0; y < 3; y++) {
+                for(int z = 0; z < 3; z++) {
+                    final PaletteCopy copy = region.sectionCopies[x | (y << 2) | (z << 4)];
+                    final int base = sectionIndex(x, y, z) * SECTION_SIZE;
+                    for(int i = 0; i < SECTION_SIZE; i++) {
+                        final BlockState state = copy.apply(i);
+                        int index = paletteMap.getInt(state);
+                        if(index == -1) {
+                            index = palette.size();
+                            palette.add(state);
+                            paletteMap.put(state, index);
+                        }
+                        blocks[base + i] = index;
+                    }
+                }
+            }
+        }
+        
+        final BlockPos.Mutable searchPos = new BlockPos.Mutable();
+        final int minX = origin.getX() - LIGHT_MARGIN;
+        final int minY = origin.getY() - LIGHT_MARGIN;
+        final int minZ = origin.getZ() - LIGHT_MARGIN;
+        final byte[] light = new byte[LIGHT_COUNT];
+        
+        for(int z = 0; z < LIGHT_DIAMETER; z++) {
+            for(int y = 0; y < LIGHT_DIAMETER; y++) {
+                for(int x = 0; x < LIGHT_DIAMETER; x++) {
+                    searchPos.set(x + minX, y + minY, z + minZ);
+                    final int sky = region.getLightLevel(LightType.SKY, searchPos);
+                    final int block = region.getLightLevel(LightType.BLOCK, searchPos);
+                    light[lightIndex(x, y, z)] = (byte) ((sky << 4) | block);
+                }
+            }
+        }
+        
+        final int[] entities = new int[(globalEntities.size() + chunkEntities.size()) * 3];
+        int i = 0;
+        for(BlockEntity be : globalEntities) {
+            i = packEntity(be, origin, entities, i);
+        }
+        for(BlockEntity be : chunkEntities) {
+            i = packEntity(be, origin, entities, i);
+        }
+        
+        return new CapturedRebuild(origin.getX(), origin.getY(), origin.getZ(), cameraX, cameraY, cameraZ, 
+                palette.toArray(new BlockState[palette.size()]), blocks, light, entities);
+    }
+    
+    private static int packEntity(BlockEntity be, BlockPos origin, int[] entities, int i) {
+        final BlockPos pos = be.getPos();
+        entities[i++] = pos.getX() - origin.getX();
+        entities[i++] = pos.getY() - origin.getY();
+        entities[i++] = pos.getZ() - origin.getZ();
+        return i;
+    }
+    
+    /**
+     * Section copies backed by captured data, indexed like {@link FastRenderRegion#sectionCopies}.
+     * Created once and retained so repeated replays don't allocate.
+     */
+    public PaletteCopy[] sectionCopies() {
+        PaletteCopy[] result = sectionCopies;
+        if(result != null) {
+            return result;
+        }
+        
+        result = new PaletteCopy[64];
+        final BlockState[] palette = this.palette;
+        final int[] blocks = this.blocks;
+        
+        for(int x = 0; x < 3; x++) {
+            for(int y = 0; y < 3; y++) {
+                for(int z = 0; z < 3; z++) {
+                    final int base = sectionIndex(x, y, z) * SECTION_SIZE;
+                    result[x | (y << 2) | (z << 4)] = i -> palette[blocks[base + i]];
+                }
+            }
+        }
+        sectionCopies = result;
+        return result;
+    }
+    
+    /** One block outside the section being rebuilt, same as vanilla region. */
+    public BlockPos posFrom() {
+        return new BlockPos(originX - 1, originY - 1, originZ - 1);
+    }
+    
+    public int blockEntityCount() {
+        return blockEntities.length / 3;
+    }
+    
+    @Override
+    public int getLightLevel(LightType type, BlockPos pos) {
+        final int x = pos.getX() - originX + LIGHT_MARGIN;
+        final int y = pos.getY() - originY + LIGHT_MARGIN;
+        final int z = pos.getZ() - originZ + LIGHT_MARGIN;
+        
+        final int packed;
+        if(x < 0 || y < 0 || z < 0 || x >= LIGHT_DIAMETER || y >= LIGHT_DIAMETER || z >= LIGHT_DIAMETER) {
+            packed = DEFAULT_LIGHT;
+        } else {
+            packed = light[lightIndex(x, y, z)];
+        }
+        
+        return type == LightType.SKY ? (packed >> 4) & 0xF : packed & 0xF;
+    }
+    
+    public void write(File file) throws IOException {
+        try(DataOutputStream out = new DataOutputStream(new GZIPOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(originX);
+            out.writeInt(originY);
+            out.writeInt(originZ);
+            out.writeDouble(cameraX);
+            out.writeDouble(cameraY);
+            out.writeDouble(cameraZ);
+            
+            out.writeInt(palette.length);
+            for(BlockState state : palette) {
+                NbtIo.write(NbtHelper.fromBlockState(state), out);
+            }
+            
+            // palettes are almost always small - shorts halve file size before compression
+            final boolean wide = palette.length > Short.MAX_VALUE;
+            out.writeBoolean(wide);
+            for(int b : blocks) {
+                if(wide) {
+                    out.writeInt(b);
+                } else {
+                    out.writeShort(b);
+                }
+            }
+            
+            out.write(light);
+            
+            out.writeInt(blockEntities.length);
+            for(int v : blockEntities) {
+                out.writeInt(v);
+            }
+        }
+    }
+    
+    public static CapturedRebuild read(File file) throws IOException {
+        try(DataInputStream in = new DataInputStream(new GZIPInputStream(new FileInputStream(file)))) {
+            if(in.readInt() != MAGIC) {
+                throw new IOException("Not a captured rebuild: " + file);
+            }
+            
+            final int version = in.readInt();
+            if(version != VERSION) {
+                throw new IOException("Unsupported capture version " + version + ": " + file);
+            }
+            
+            final int originX = in.readInt();
+            final int originY = in.readInt();
+            final int originZ = in.readInt();
+            final double cameraX = in.readDouble();
+            final double cameraY = in.readDouble();
+            final double cameraZ = in.readDouble();
+            
+            final BlockState[] palette = new BlockState[in.readInt()];
+            for(int i = 0; i < palette.length; i++) {
+                // unknown blocks become air
+                palette[i] = NbtHelper.toBlockState(NbtIo.read(in));
+            }
+            
+            final boolean wide = in.readBoolean();
+            final int[] blocks = new int[SECTION_COUNT * SECTION_SIZE];
+            for(int i = 0; i < blocks.length; i++) {
+                blocks[i] = wide ? in.readInt() : in.readShort();
+            }
+            
+            final byte[] light = new byte[LIGHT_COUNT];
+            in.readFully(light);
+            
+            final int[] entities = new int[in.readInt()];
+            for(int i = 0; i < entities.length; i++) {
+                entities[i] = in.readInt();
+            }
+            
+            return new CapturedRebuild(originX, originY, originZ, cameraX, cameraY, cameraZ, palette, blocks, light, entities);
+        }
+    }
+}
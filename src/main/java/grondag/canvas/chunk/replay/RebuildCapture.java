@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+
+package grondag.canvas.chunk.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import grondag.canvas.CanvasMod;
+import grondag.canvas.Configurator;
+import grondag.canvas.chunk.FastRenderRegion;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Writes inputs of live chunk rebuilds to the canvas_capture folder under the game 
+ * directory when enabled in config. Output is read by {@link ReplayRunner}.
+ */
+public class RebuildCapture {
+    private RebuildCapture() {}
+    
+    /** Enough for a meaningful replay without filling a disk if left on by mistake */
+    private static final int MAX_CAPTURES = 256;
+    
+    private static final AtomicInteger count = new AtomicInteger();
+    
+    public static boolean isActive() {
+        return Configurator.captureRebuilds && count.get() < MAX_CAPTURES;
+    }
+    
+    /** Restarts numbering and limit - new captures overwrite old */
+    public static void forceReload() {
+        count.set(0);
+    }
+    
+    public static File captureDir() {
+        return new File(FabricLoader.getInstance().getGameDirectory(), "canvas_capture");
+    }
+    
+    /**
+     * Called from rebuild threads after tessellation, while region is still prepared.
+     */
+    public static void capture(FastRenderRegion region, BlockPos origin, double cameraX, double cameraY, double cameraZ, Collection<BlockEntity> globalEntities, Collection<BlockEntity> chunkEntities) {
+        final int index = count.getAndIncrement();
+        if(index >= MAX_CAPTURES) {
+            return;
+        }
+        
+        final File dir = captureDir();
+        if(!dir.exists() && !dir.mkdir()) {
+            return;
+        }
+        
+        final CapturedRebuild capture = CapturedRebuild.capture(region, origin, cameraX, cameraY, cameraZ, globalEntities, chunkEntities);
+        
+        try {
+            capture.write(new File(dir, String.format("rebuild_%03d.bin", index)));
+        } catch (IOException e) {
+            CanvasMod.LOG.warn("Unable to save chunk rebuild capture", e);
+            return;
+        }
+        
+        if(index == MAX_CAPTURES - 1) {
+            CanvasMod.LOG.info("Captured " + MAX_CAPTURES + " chunk rebuilds to " + dir.getAbsolutePath());
+        }
+    }
+}
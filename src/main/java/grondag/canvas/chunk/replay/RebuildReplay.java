@@ -0,0 +1,254 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+
+package grondag.canvas.chunk.replay;
+
+import java.util.zip.CRC32;
+
+import grondag.canvas.apiimpl.Canvas;
+import grondag.canvas.apiimpl.MutableQuadViewImpl;
+import grondag.canvas.apiimpl.RenderMaterialImpl;
+import grondag.canvas.apiimpl.rendercontext.TerrainRenderContext;
+import grondag.canvas.apiimpl.util.MeshEncodingHelper;
+import grondag.canvas.buffer.packing.BufferPacker;
+import grondag.canvas.buffer.packing.VertexCollector;
+import grondag.canvas.buffer.packing.VertexCollectorList;
+import grondag.canvas.chunk.FastRenderRegion;
+import grondag.canvas.draw.DelegateLists;
+import grondag.canvas.draw.DrawableDelegate;
+import grondag.canvas.light.LightSmoother;
+import grondag.canvas.material.ShaderProps;
+import grondag.canvas.material.VertexEncodingContext;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.fabricmc.fabric.api.renderer.v1.mesh.QuadEmitter;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockRenderLayer;
+import net.minecraft.block.BlockRenderType;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.render.chunk.ChunkOcclusionGraph;
+import net.minecraft.client.render.chunk.ChunkOcclusionGraphBuilder;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+
+/**
+ * Runs captured rebuild inputs through the terrain pipeline without a client: light
+ * smoothing, occlusion, vertex encoding, translucent sorting and buffer packing.<p>
+ * 
+ * Baked models and the block render manager need a running client, so tessellation
+ * is a stand-in that emits one flat-lit unit face for every side vanilla would not
+ * cull. Quad counts, material mix and sort load follow the captured world, but vertex
+ * data is not what the real renderer would produce. Fluids are skipped for the same reason.<p>
+ * 
+ * {@link Lighting} selects how stand-in quads are lit, so lighting lookup cost can be
+ * compared on captured worlds. Several quads per face stand in for models that have
+ * more than one quad on the same cull face.<p>
+ * 
+ * Not thread-safe. Use one instance per thread.
+ */
+public class RebuildReplay {
+    private static final Direction[] FACES = Direction.values();
+    
+    public static enum Lighting {
+        /** Region brightness cache, as used by smooth lighting */
+        REGION_CACHE,
+        /** Flat lighting with a world lookup for every quad */
+        FLAT_UNCACHED,
+        /** Flat lighting memoized per block and cull face, same as BlockRenderInfo */
+        FLAT_MEMOIZED
+    }
+    
+    private static class ReplayQuad extends MutableQuadViewImpl {
+        private ReplayQuad() {
+            begin(new int[MeshEncodingHelper.MAX_STRIDE], 0);
+        }
+        
+        @Override
+        public QuadEmitter emit() {
+            return this;
+        }
+    }
+    
+    private final VertexCollectorList solidCollector = new VertexCollectorList(false);
+    private final VertexCollectorList translucentCollector = new VertexCollectorList(true);
+    private final ReplayBuffer buffer = new ReplayBuffer();
+    private final ReplayQuad quad = new ReplayQuad();
+    private final VertexEncodingContext encodingContext = new VertexEncodingContext();
+    private final BlockPos.Mutable searchPos = new BlockPos.Mutable();
+    private final BlockPos.Mutable neighborPos = new BlockPos.Mutable();
+    private final CRC32 occlusionCrc = new CRC32();
+    private final RenderMaterialImpl.Value[] layerMaterials = new RenderMaterialImpl.Value[BlockRenderLayer.values().length];
+    private final Lighting lighting;
+    private final int quadsPerFace;
+    private final int[] flatBrightness = new int[FACES.length];
+    private int flatBrightnessFlags;
+    
+    private int quadCount;
+    private int byteCount;
+    
+    public RebuildReplay() {
+        this(Lighting.REGION_CACHE, 1);
+    }
+    
+    public RebuildReplay(Lighting lighting, int quadsPerFace) {
+        this.lighting = lighting;
+        this.quadsPerFace = quadsPerFace;
+        for(BlockRenderLayer layer : BlockRenderLayer.values()) {
+            layerMaterials[layer.ordinal()] = Canvas.INSTANCE.materialFinder().blendMode(0, layer).find();
+        }
+    }
+    
+    /** Quads emitted by all replays since last {@link #resetTotals()} */
+    public int quadCount() {
+        return quadCount;
+    }
+    
+    /** Bytes packed by all replays since last {@link #resetTotals()} */
+    public int byteCount() {
+        return byteCount;
+    }
+    
+    /** Combined checksum of vertex data and occlusion graphs since last {@link #resetTotals()} */
+    public long checksum() {
+        return buffer.checksum() * 31 + occlusionCrc.getValue();
+    }
+    
+    public void resetTotals() {
+        quadCount = 0;
+        byteCount = 0;
+        buffer.resetChecksum();
+        occlusionCrc.reset();
+    }
+    
+    public void replay(CapturedRebuild capture) {
+        final FastRenderRegion region = FastRenderRegion.claim().prepareReplay(capture.sectionCopies(), capture.posFrom(), capture);
+        final BlockPos.Mutable searchPos = this.searchPos;
+        final int xMin = capture.originX;
+        final int yMin = capture.originY;
+        final int zMin = capture.originZ;
+        
+        searchPos.set(xMin, yMin, zMin);
+        LightSmoother.computeSmoothedBrightness(searchPos, region, region.brightnessCache);
+        
+        solidCollector.clear();
+        solidCollector.setRelativeRenderOrigin(xMin, yMin, zMin);
+        translucentCollector.clear();
+        translucentCollector.setRelativeRenderOrigin(xMin, yMin, zMin);
+        
+        // PERF: avoid allocation - same as live rebuild
+        final ChunkOcclusionGraphBuilder visibilityData = new ChunkOcclusionGraphBuilder();
+        
+        for (int xPos = xMin; xPos < xMin + 16; xPos++) {
+            for (int yPos = yMin; yPos < yMin + 16; yPos++) {
+                for (int zPos = zMin; zPos < zMin + 16; zPos++) {
+                    final BlockState blockState = region.getBlockState(xPos, yPos, zPos);
+                    searchPos.set(xPos, yPos, zPos);
+                    if (blockState.isFullOpaque(region, searchPos)) {
+                        visibilityData.markClosed(searchPos);
+                    }
+                    
+                    if (blockState.getRenderType() == BlockRenderType.MODEL) {
+                        tesselateBlock(region, blockState, searchPos);
+                    }
+                }
+            }
+        }
+        
+        final ChunkOcclusionGraph graph = visibilityData.build();
+        for(Direction from : FACES) {
+            for(Direction to : FACES) {
+                occlusionCrc.update(graph.isVisibleThrough(from, to) ? 1 : 0);
+            }
+        }
+        
+        buffer.reset();
+        
+        if(!solidCollector.isEmpty()) {
+            releaseDelegates(BufferPacker.pack(solidCollector.packingListSolid(), solidCollector, buffer));
+        }
+        
+        if(!translucentCollector.isEmpty()) {
+            translucentCollector.setViewCoordinates(capture.cameraX, capture.cameraY, capture.cameraZ);
+            releaseDelegates(BufferPacker.pack(translucentCollector.packingListTranslucent(), translucentCollector, buffer));
+        }
+        
+        // stands in for GL upload
+        buffer.upload();
+        byteCount += buffer.bytesPacked();
+        
+        region.release();
+    }
+    
+    private static void releaseDelegates(ObjectArrayList<DrawableDelegate> delegates) {
+        final int limit = delegates.size();
+        for(int i = 0; i < limit; i++) {
+            delegates.get(i).release();
+        }
+        DelegateLists.releaseDelegateList(delegates);
+    }
+    
+    private void tesselateBlock(FastRenderRegion region, BlockState blockState, BlockPos pos) {
+        final RenderMaterialImpl.Value mat = layerMaterials[blockState.getBlock().getRenderLayer().ordinal()];
+        final int shaderFlags = mat.shaderFlags() | RenderMaterialImpl.SHADER_FLAGS_DISABLE_AO;
+        final ReplayQuad quad = this.quad;
+        
+        flatBrightnessFlags = 0;
+        
+        for(Direction face : FACES) {
+            if(!Block.shouldDrawSide(blockState, region, pos, face)) {
+                continue;
+            }
+            
+            for(int i = 0; i < quadsPerFace; i++) {
+                quad.clear();
+                quad.material(mat);
+                quad.square(face, 0, 0, 1, 1, 0);
+                
+                final int brightness = brightness(region, blockState, pos, face);
+                quad.lightmap(brightness, brightness, brightness, brightness);
+                quad.spriteColor(0, -1, -1, -1, -1);
+                quad.sprite(0, 0, 0, 0);
+                quad.sprite(1, 0, 0, 1);
+                quad.sprite(2, 0, 1, 1);
+                quad.sprite(3, 0, 1, 0);
+                
+                final VertexCollectorList collectors = mat.renderLayer == BlockRenderLayer.TRANSLUCENT ? translucentCollector : solidCollector;
+                final VertexCollector output = collectors.get(mat, ShaderProps.classify(mat, quad, TerrainRenderContext.contextFunc(mat)));
+                output.format().encode(quad, encodingContext.prepare(mat, TerrainRenderContext.contextFunc(mat), pos, null, shaderFlags), output);
+                quadCount++;
+            }
+        }
+    }
+    
+    private int brightness(FastRenderRegion region, BlockState blockState, BlockPos pos, Direction face) {
+        switch(lighting) {
+        case FLAT_UNCACHED:
+            return blockState.getBlockBrightness(region, neighborPos.set(pos).setOffset(face));
+            
+        case FLAT_MEMOIZED: {
+            final int faceId = face.ordinal();
+            final int mask = 1 << faceId;
+            if((flatBrightnessFlags & mask) == 0) {
+                flatBrightness[faceId] = blockState.getBlockBrightness(region, neighborPos.set(pos).setOffset(face));
+                flatBrightnessFlags |= mask;
+            }
+            return flatBrightness[faceId];
+        }
+            
+        default:
+            return region.cachedBrightness(neighborPos.set(pos).setOffset(face));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+
+package grondag.canvas.chunk.replay;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import grondag.canvas.buffer.allocation.AbstractBuffer;
+import grondag.canvas.buffer.allocation.AllocationProvider;
+import grondag.canvas.buffer.allocation.BufferDelegate;
+
+/**
+ * Stands in for VBO buffers during replay. Packed vertex data stays on the heap and
+ * "upload" folds the bytes into a checksum instead of sending them to GL.
+ */
+class ReplayBuffer extends AbstractBuffer implements AllocationProvider {
+    private ByteBuffer buffer = ByteBuffer.allocate(0x40000).order(ByteOrder.nativeOrder());
+    private int byteOffset = 0;
+    private final CRC32 crc = new CRC32();
+    
+    void reset() {
+        byteOffset = 0;
+    }
+    
+    int bytesPacked() {
+        return byteOffset;
+    }
+    
+    long checksum() {
+        return crc.getValue();
+    }
+    
+    void resetChecksum() {
+        crc.reset();
+    }
+    
+    @Override
+    public ByteBuffer byteBuffer() {
+        return buffer;
+    }
+
+    @Override
+    public boolean isVbo() {
+        return false;
+    }
+    
+    @Override
+    public void upload() {
+        final ByteBuffer bytes = buffer.duplicate();
+        bytes.position(0);
+        bytes.limit(byteOffset);
+        crc.update(bytes);
+    }
+
+    @Override
+    public void claimAllocation(int byteCount, Consumer<BufferDelegate> consumer) {
+        final int needed = byteOffset + byteCount;
+        if(needed > buffer.capacity()) {
+            final ByteBuffer grown = ByteBuffer.allocate(Math.max(needed, buffer.capacity() * 2)).order(ByteOrder.nativeOrder());
+            buffer.position(0);
+            buffer.limit(byteOffset);
+            grown.put(buffer);
+            grown.clear();
+            buffer = grown;
+        }
+        consumer.accept(BufferDelegate.claim(this, byteOffset, byteCount));
+        byteOffset = needed;
+    }
+}
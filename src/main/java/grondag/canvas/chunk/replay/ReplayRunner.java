@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+
+package grondag.canvas.chunk.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.Bootstrap;
+
+/**
+ * Replays chunk rebuilds captured with the captureRebuilds debug option, without a
+ * client or GPU. Reports rebuilds per second, bytes allocated per rebuild and a checksum
+ * of the output so regressions and behavior changes can be told apart.<p>
+ * 
+ * Usage: {@code ReplayRunner [-w warmupPasses] [-i passes] <capture folder or files>...}<br>
+ * Run with "gradlew replay -PreplayArgs=..." to get the game on the classpath.
+ */
+public class ReplayRunner {
+    public static void main(String[] args) throws IOException {
+        int warmup = 5;
+        int passes = 10;
+        final ObjectArrayList<File> files = new ObjectArrayList<>();
+        
+        for(int i = 0; i < args.length; i++) {
+            final String arg = args[i];
+            if(arg.equals("-w") && i + 1 < args.length) {
+                warmup = Integer.parseInt(args[++i]);
+            } else if(arg.equals("-i") && i + 1 < args.length) {
+                passes = Integer.parseInt(args[++i]);
+            } else {
+                addFiles(new File(arg), files);
+            }
+        }
+        
+        if(files.isEmpty()) {
+            System.out.println("No captures found. Usage: ReplayRunner [-w warmupPasses] [-i passes] <capture folder or files>...");
+            return;
+        }
+        
+        Bootstrap.initialize();
+        
+        final CapturedRebuild[] captures = new CapturedRebuild[files.size()];
+        int blockEntities = 0;
+        for(int i = 0; i < captures.length; i++) {
+            captures[i] = CapturedRebuild.read(files.get(i));
+            blockEntities += captures[i].blockEntityCount();
+        }
+        
+        System.out.println(String.format("Loaded %d captured rebuilds with %d block entities", captures.length, blockEntities));
+        
+        final RebuildReplay replay = new RebuildReplay();
+        
+        for(int p = 0; p < warmup; p++) {
+            for(CapturedRebuild c : captures) {
+                replay.replay(c);
+            }
+        }
+        
+        long checksum = 0;
+        long totalNanos = 0;
+        long totalBytes = 0;
+        
+        for(int p = 0; p < passes; p++) {
+            replay.resetTotals();
+            final long startBytes = allocatedBytes();
+            final long start = System.nanoTime();
+            
+            for(CapturedRebuild c : captures) {
+                replay.replay(c);
+            }
+            
+            final long nanos = System.nanoTime() - start;
+            final long bytes = allocatedBytes() - startBytes;
+            totalNanos += nanos;
+            totalBytes += bytes;
+            
+            if(p == 0) {
+                checksum = replay.checksum();
+            } else if(replay.checksum() != checksum) {
+                System.out.println(String.format("WARNING: pass %d checksum %016x differs from first pass %016x - output is not deterministic", p, replay.checksum(), checksum));
+            }
+            
+            System.out.println(String.format("Pass %d: %.1f rebuilds/s, %d bytes allocated/rebuild", p, captures.length * 1e9 / nanos, bytes / captures.length));
+        }
+        
+        if(passes > 0) {
+            final long rebuilds = (long) captures.length * passes;
+            System.out.println(String.format("Average: %.1f rebuilds/s, %d bytes allocated/rebuild", rebuilds * 1e9 / totalNanos, totalBytes / rebuilds));
+            System.out.println(String.format("Output: %d quads, %d bytes packed, checksum %016x", replay.quadCount(), replay.byteCount(), checksum));
+        }
+    }
+    
+    private static void addFiles(File file, ObjectArrayList<File> files) {
+        if(file.isDirectory()) {
+            final File[] children = file.listFiles((d, n) -> n.endsWith(".bin"));
+            if(children != null) {
+                // sorted so replay order and checksum don't depend on the file system
+                Arrays.sort(children);
+                files.addAll(Arrays.asList(children));
+            }
+        } else if(file.exists()) {
+            files.add(file);
+        }
+    }
+    
+    /** Bytes allocated by this thread so far, or zero if the JVM doesn't track it */
+    private static long allocatedBytes() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
@@ -33,6 +33,8 @@ import grondag.canvas.chunk.DrawableChunk;
 import grondag.canvas.light.LightmapHdTexture;
 import grondag.canvas.material.ShaderContext;
 import grondag.canvas.varia.CanvasGlHelper;
+import grondag.canvas.varia.GlStateTracker;
+import grondag.canvas.varia.RenderMetrics;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap.Entry;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
@@ -102,16 +104,23 @@ public class CanvasChunkRenderList {
 
     private void addSolidChunkInner(ChunkRenderer renderChunkIn, SolidRenderList solidList) {
         final DrawableChunk.Solid solidDrawable = ((ChunkRendererExt) renderChunkIn).canvas_solidDrawable();
-        if (solidDrawable != null)
+        if (solidDrawable != null) {
+            RenderMetrics.increment(RenderMetrics.CHUNKS_DRAWN);
             solidDrawable.prepareSolidRender(solidList);
+        }
     }
 
     public void renderChunkLayer(BlockRenderLayer layer) {
+        GlStateTracker.beginPass();
         LightmapHdTexture.instance().enable();
-        if (layer == BlockRenderLayer.SOLID)
+        final long start = RenderMetrics.startStage();
+        if (layer == BlockRenderLayer.SOLID) {
             renderChunkLayerSolid();
-        else
+            RenderMetrics.endStage(RenderMetrics.NANOS_SOLID, start);
+        } else {
             renderChunkLayerTranslucent();
+            RenderMetrics.endStage(RenderMetrics.NANOS_TRANSLUCENT, start);
+        }
         LightmapHdTexture.instance().disable();
     }
 
@@ -224,6 +233,7 @@ public class CanvasChunkRenderList {
             final DrawableChunk.Translucent drawable = ((ChunkRendererExt) renderchunk).canvas_translucentDrawable();
             if (drawable == null)
                 continue;
+            RenderMetrics.increment(RenderMetrics.CHUNKS_DRAWN);
             updateViewMatrix(renderchunk.getOrigin());
             drawable.renderChunkTranslucent();
         }
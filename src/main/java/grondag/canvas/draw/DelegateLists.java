@@ -16,24 +16,19 @@
 
 package grondag.canvas.draw;
 
-import java.util.concurrent.ArrayBlockingQueue;
-
+import grondag.canvas.varia.ObjectPool;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 
 public class DelegateLists {
-    private static final ArrayBlockingQueue<ObjectArrayList<DrawableDelegate>> delegateLists = new ArrayBlockingQueue<>(
-            4096);
+    private static final ObjectPool<ObjectArrayList<DrawableDelegate>> delegateLists = ObjectPool.ofCount("DelegateList", 64, 4096, ObjectArrayList::new);
 
     public static ObjectArrayList<DrawableDelegate> getReadyDelegateList() {
-        ObjectArrayList<DrawableDelegate> result = delegateLists.poll();
-        if (result == null)
-            result = new ObjectArrayList<>();
-        return result;
+        return delegateLists.claim();
     }
 
     public static void releaseDelegateList(ObjectArrayList<DrawableDelegate> list) {
         if (!list.isEmpty())
             list.clear();
-        delegateLists.offer(list);
+        delegateLists.release(list);
     }
 }
@@ -17,7 +17,6 @@
 package grondag.canvas.draw;
 
 import java.nio.ByteBuffer;
-import java.util.concurrent.ArrayBlockingQueue;
 
 import org.lwjgl.opengl.GL11;
 
@@ -30,11 +29,14 @@ import grondag.canvas.buffer.allocation.BufferDelegate;
 import grondag.canvas.material.MaterialState;
 import grondag.canvas.material.MaterialVertexFormat;
 import grondag.canvas.varia.CanvasGlHelper;
+import grondag.canvas.varia.GlStateTracker;
+import grondag.canvas.varia.ObjectPool;
+import grondag.canvas.varia.RenderMetrics;
 import grondag.canvas.varia.VaoStore;
 import net.minecraft.client.render.VertexFormatElement;
 
 public class DrawableDelegate {
-    private static final ArrayBlockingQueue<DrawableDelegate> store = new ArrayBlockingQueue<DrawableDelegate>(4096);
+    private static final ObjectPool<DrawableDelegate> store = ObjectPool.ofCount("DrawableDelegate", 64, 4096, DrawableDelegate::new);
     
     /**
      * Signals the gl buffer not determined.  
@@ -67,10 +69,7 @@ public class DrawableDelegate {
     }
     
     public static DrawableDelegate claim(BufferDelegate bufferDelegate, MaterialState renderState, int vertexCount, MaterialVertexFormat format) {
-        DrawableDelegate result = store.poll();
-        if(result == null) {
-            result = new DrawableDelegate();
-        }
+        final DrawableDelegate result = store.claim();
         result.bufferDelegate = bufferDelegate;
         result.materialState = renderState;
         result.vertexCount = vertexCount;
@@ -107,6 +106,10 @@ public class DrawableDelegate {
     public BufferDelegate bufferDelegate() {
         return this.bufferDelegate;
     }
+    
+    public int vertexCount() {
+        return this.vertexCount;
+    }
 
     /**
      * Instances that share the same GL buffer will have the same ID. Allows sorting
@@ -152,6 +155,10 @@ public class DrawableDelegate {
         if (this.bufferDelegate.buffer().isDisposed())
             return;
 
+        if (RenderMetrics.enabled()) {
+            RenderMetrics.increment(RenderMetrics.DRAW_CALLS);
+            RenderMetrics.add(RenderMetrics.QUADS_DRAWN, vertexCount >> 2);
+        }
         GlStateManager.drawArrays(GL11.GL_QUADS, vertexOffset, vertexCount);
     }
 
@@ -166,7 +173,7 @@ public class DrawableDelegate {
                 vaoBufferId = -1;
             }
             materialState =  null;
-            store.offer(this);
+            store.release(this);
         }
     }
     
@@ -178,11 +185,8 @@ public class DrawableDelegate {
     void bindVao(MaterialVertexFormat format, boolean isNewBuffer) {
         if (vaoBufferId == -1) {
             vaoBufferId = VaoStore.claimVertexArray();
-            CanvasGlHelper.glBindVertexArray(vaoBufferId);
-            if(Configurator.logGlStateChanges) {
-                CanvasMod.LOG.info(String.format("GlState: GlStateManager.enableClientState(%d)", GL11.GL_VERTEX_ARRAY));
-            }
-            GlStateManager.enableClientState(GL11.GL_VERTEX_ARRAY);
+            GlStateTracker.bindVertexArray(vaoBufferId);
+            GlStateTracker.enableVertexArray();
             CanvasGlHelper.enableAttributesVao(format.attributeCount);
             if(Configurator.logGlStateChanges) {
                 CanvasMod.LOG.info(String.format("GlState: GlStateManager.vertexPointer(%d, %d, %d, %d)", 3, VertexFormatElement.Format.FLOAT.getGlId(), format.vertexStrideBytes, bufferDelegate.byteOffset()));
@@ -190,7 +194,7 @@ public class DrawableDelegate {
             GlStateManager.vertexPointer(3, VertexFormatElement.Format.FLOAT.getGlId(), format.vertexStrideBytes, bufferDelegate.byteOffset());
             format.bindAttributeLocations(bufferDelegate.byteOffset(), format.attributeCount);
         } else {
-            CanvasGlHelper.glBindVertexArray(vaoBufferId);
+            GlStateTracker.bindVertexArray(vaoBufferId);
         }
     }
     
@@ -221,11 +225,10 @@ public class DrawableDelegate {
             vertexOffset = 0;
             boundByteOffset = byteOffset;
             buffer.position(byteOffset);
+            GlStateTracker.enableVertexArray();
             if(Configurator.logGlStateChanges) {
-                CanvasMod.LOG.info(String.format("GlState: GlStateManager.enableClientState(%d)", GL11.GL_VERTEX_ARRAY));
                 CanvasMod.LOG.info(String.format("GlState: GlStateManager.vertexPointer(%d, %d, %d, %s)", 3, VertexFormatElement.Format.FLOAT.getGlId(), format.vertexStrideBytes, buffer.toString()));
             }
-            GlStateManager.enableClientState(GL11.GL_VERTEX_ARRAY);
             GlStateManager.vertexPointer(3, VertexFormatElement.Format.FLOAT.getGlId(), format.vertexStrideBytes, buffer);
             format.enableAndBindAttributes(buffer, byteOffset);
         } else {
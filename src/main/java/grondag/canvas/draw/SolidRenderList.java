@@ -19,10 +19,6 @@ package grondag.canvas.draw;
 import java.util.ArrayDeque;
 import java.util.function.Consumer;
 
-import org.lwjgl.opengl.GL11;
-
-import com.mojang.blaze3d.platform.GlStateManager;
-
 import grondag.canvas.apiimpl.MaterialConditionImpl;
 import grondag.canvas.apiimpl.MaterialShaderImpl;
 import grondag.canvas.buffer.allocation.BindStateManager;
@@ -31,6 +27,7 @@ import grondag.canvas.material.MaterialState;
 import grondag.canvas.material.ShaderContext;
 import grondag.canvas.material.ShaderManager;
 import grondag.canvas.varia.CanvasGlHelper;
+import grondag.canvas.varia.GlStateTracker;
 import it.unimi.dsi.fastutil.Arrays;
 import it.unimi.dsi.fastutil.Swapper;
 import it.unimi.dsi.fastutil.ints.IntComparator;
@@ -106,22 +103,27 @@ public class SolidRenderList implements Consumer<ObjectArrayList<DrawableDelegat
         MaterialShaderImpl lastShader = null;
         int lastProps = -1;
         
-        final int frameIndex = ShaderManager.INSTANCE.frameIndex();
+        final long conditionMask = MaterialConditionImpl.blockMask(ShaderManager.INSTANCE.frameIndex());
 
         for (int i = 0; i < limit; i++) {
             final DrawableDelegate b = (DrawableDelegate) draws[i];
             final MaterialState state = b.materialState();
-            final MaterialConditionImpl condition = state.condition;
             
-            if(!condition.affectBlocks || condition.compute(frameIndex)) {
-                if(state.shader != lastShader || state.shaderProps != lastProps) {
-                    state.activate(context);
-                    lastShader = state.shader;
-                    lastProps = state.shaderProps;
+            if((conditionMask & state.condition.mask) == 0) {
+                // delegates are sorted by state - skip the rest of this group
+                while (i + 1 < limit && ((DrawableDelegate) draws[i + 1]).materialState() == state) {
+                    i++;
                 }
-                b.bind();
-                b.draw();
+                continue;
+            }
+            
+            if(state.shader != lastShader || state.shaderProps != lastProps) {
+                state.activate(context);
+                lastShader = state.shader;
+                lastProps = state.shaderProps;
             }
+            b.bind();
+            b.draw();
         }
         delegates.clear();
     }
@@ -132,9 +134,9 @@ public class SolidRenderList implements Consumer<ObjectArrayList<DrawableDelegat
      */
     public static void postDrawCleanup() {
         if (CanvasGlHelper.isVaoEnabled()) {
-            CanvasGlHelper.glBindVertexArray(0);
+            GlStateTracker.bindVertexArray(0);
         }
-        GlStateManager.disableClientState(GL11.GL_VERTEX_ARRAY);
+        GlStateTracker.disableVertexArray();
         CanvasGlHelper.enableAttributes(0, true);
         BindStateManager.unbind();
         GlProgram.deactivate();
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.canvas.jfr;
+
+/**
+ * Java Flight Recorder events for the terrain pipeline, safe to call on any JVM.<p>
+ * 
+ * Call sites only see {@code Object} tokens so that nothing outside {@link JfrEvents}
+ * links against {@code jdk.jfr}. On JVMs without the event API every method reduces
+ * to a constant check. When JFR is present but no recording has the event enabled,
+ * begin methods return null without allocating an event.<p>
+ * 
+ * Record with {@code jcmd <pid> JFR.start} and enable the "Canvas" category.
+ * Block tessellation events are off by default because of their volume.
+ */
+public final class CanvasEvents {
+    private CanvasEvents() {}
+    
+    public static final boolean AVAILABLE = detect();
+    
+    private static boolean detect() {
+        try {
+            Class.forName("jdk.jfr.Event", false, CanvasEvents.class.getClassLoader());
+            return true;
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+    
+    public static Object beginRegionCapture() {
+        return AVAILABLE ? JfrEvents.beginRegionCapture() : null;
+    }
+    
+    public static Object beginTessellate() {
+        return AVAILABLE ? JfrEvents.beginTessellate() : null;
+    }
+    
+    public static Object beginOcclusion() {
+        return AVAILABLE ? JfrEvents.beginOcclusion() : null;
+    }
+    
+    public static Object beginSort() {
+        return AVAILABLE ? JfrEvents.beginSort() : null;
+    }
+    
+    public static Object beginPack() {
+        return AVAILABLE ? JfrEvents.beginPack() : null;
+    }
+    
+    public static Object beginProduceDrawable() {
+        return AVAILABLE ? JfrEvents.beginProduceDrawable() : null;
+    }
+    
+    public static Object beginLightmap() {
+        return AVAILABLE ? JfrEvents.beginLightmap() : null;
+    }
+    
+    public static Object beginLightmapUpload() {
+        return AVAILABLE ? JfrEvents.beginLightmapUpload() : null;
+    }
+    
+    /**
+     * Sets section reported by sort and pack events on this thread - those run
+     * below the level where section is known. Call at start of rebuild or resort.
+     */
+    public static void setSection(int blockX, int blockY, int blockZ) {
+        if (AVAILABLE) {
+            JfrEvents.setSection(blockX, blockY, blockZ);
+        }
+    }
+    
+    /** Commits region capture, tessellation or occlusion events. Coordinates are block coordinates. */
+    public static void endSection(Object event, int blockX, int blockY, int blockZ) {
+        if (event != null) {
+            JfrEvents.endSection(event, blockX, blockY, blockZ);
+        }
+    }
+    
+    /** Commits sort or pack events using section from {@link #setSection(int, int, int)}. */
+    public static void endBuffer(Object event, int quadCount, int byteCount) {
+        if (event != null) {
+            JfrEvents.endBuffer(event, quadCount, byteCount);
+        }
+    }
+    
+    /** Commits produce drawable events. Coordinates are block coordinates. */
+    public static void endBuffer(Object event, int blockX, int blockY, int blockZ, int quadCount, int byteCount) {
+        if (event != null) {
+            JfrEvents.endBuffer(event, blockX, blockY, blockZ, quadCount, byteCount);
+        }
+    }
+    
+    public static void endLightmap(Object event, boolean isAo, int index) {
+        if (event != null) {
+            JfrEvents.endLightmap(event, isAo, index);
+        }
+    }
+    
+    public static void endLightmapUpload(Object event, int uploadCount, int byteCount) {
+        if (event != null) {
+            JfrEvents.endLightmapUpload(event, uploadCount, byteCount);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package grondag.canvas.jfr;
+
+import java.util.function.Supplier;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Event types and JFR-linked half of {@link CanvasEvents}. Not loaded unless the
+ * JFR event API is present.
+ */
+final class JfrEvents {
+    private JfrEvents() {}
+    
+    @Category({"Canvas", "Terrain"})
+    @StackTrace(false)
+    static abstract class SectionEvent extends Event {
+        @Label("Section X")
+        int sectionX;
+        
+        @Label("Section Y")
+        int sectionY;
+        
+        @Label("Section Z")
+        int sectionZ;
+    }
+    
+    static abstract class BufferEvent extends SectionEvent {
+        @Label("Quads")
+        int quadCount;
+        
+        @Label("Size")
+        @DataAmount
+        int byteCount;
+    }
+    
+    @Name("canvas.RegionCapture")
+    @Label("Region Capture")
+    @Description("Copy of world state for a chunk section rebuild")
+    static class RegionCaptureEvent extends SectionEvent {}
+    
+    @Name("canvas.Tessellate")
+    @Label("Block Tessellation")
+    @Description("Quad output for one block - high volume")
+    @Enabled(false)
+    static class TessellateEvent extends SectionEvent {}
+    
+    @Name("canvas.Occlusion")
+    @Label("Occlusion Build")
+    @Description("Visibility graph for a chunk section")
+    static class OcclusionEvent extends SectionEvent {}
+    
+    @Name("canvas.TranslucentSort")
+    @Label("Translucent Sort")
+    @Description("Quad sort for a translucent chunk section")
+    static class SortEvent extends BufferEvent {}
+    
+    @Name("canvas.BufferPack")
+    @Label("Buffer Pack")
+    @Description("Copy of collected vertex data into a transfer buffer")
+    static class PackEvent extends BufferEvent {}
+    
+    @Name("canvas.ProduceDrawable")
+    @Label("Produce Drawable")
+    @Description("Buffer upload for a chunk section on the render thread")
+    static class ProduceDrawableEvent extends BufferEvent {}
+    
+    @Name("canvas.LightmapGenerate")
+    @Label("Lightmap Generation")
+    @Category({"Canvas", "Lightmap"})
+    @StackTrace(false)
+    static class LightmapEvent extends Event {
+        @Label("Ambient Occlusion")
+        boolean isAo;
+        
+        @Label("Index")
+        int index;
+    }
+    
+    @Name("canvas.LightmapUpload")
+    @Label("Lightmap Texture Upload")
+    @Category({"Canvas", "Lightmap"})
+    @StackTrace(false)
+    static class LightmapUploadEvent extends Event {
+        @Label("Uploads")
+        int uploadCount;
+        
+        @Label("Size")
+        @DataAmount
+        int byteCount;
+    }
+    
+    private static final ThreadLocal<int[]> SECTION = ThreadLocal.withInitial(() -> new int[3]);
+    
+    // Event types are checked first so nothing is allocated unless a recording has the event enabled
+    private static final EventType REGION_CAPTURE = EventType.getEventType(RegionCaptureEvent.class);
+    private static final EventType TESSELLATE = EventType.getEventType(TessellateEvent.class);
+    private static final EventType OCCLUSION = EventType.getEventType(OcclusionEvent.class);
+    private static final EventType SORT = EventType.getEventType(SortEvent.class);
+    private static final EventType PACK = EventType.getEventType(PackEvent.class);
+    private static final EventType PRODUCE_DRAWABLE = EventType.getEventType(ProduceDrawableEvent.class);
+    private static final EventType LIGHTMAP = EventType.getEventType(LightmapEvent.class);
+    private static final EventType LIGHTMAP_UPLOAD = EventType.getEventType(LightmapUploadEvent.class);
+    
+    private static Object begin(EventType type, Supplier<? extends Event> factory) {
+        if (!type.isEnabled()) {
+            return null;
+        }
+        
+        final Event event = factory.get();
+        if (event.isEnabled()) {
+            event.begin();
+            return event;
+        } else {
+            return null;
+        }
+    }
+    
+    static Object beginRegionCapture() {
+        return begin(REGION_CAPTURE, RegionCaptureEvent::new);
+    }
+    
+    static Object beginTessellate() {
+        return begin(TESSELLATE, TessellateEvent::new);
+    }
+    
+    static Object beginOcclusion() {
+        return begin(OCCLUSION, OcclusionEvent::new);
+    }
+    
+    static Object beginSort() {
+        return begin(SORT, SortEvent::new);
+    }
+    
+    static Object beginPack() {
+        return begin(PACK, PackEvent::new);
+    }
+    
+    static Object beginProduceDrawable() {
+        return begin(PRODUCE_DRAWABLE, ProduceDrawableEvent::new);
+    }
+    
+    static Object beginLightmap() {
+        return begin(LIGHTMAP, LightmapEvent::new);
+    }
+    
+    static Object beginLightmapUpload() {
+        return begin(LIGHTMAP_UPLOAD, LightmapUploadEvent::new);
+    }
+    
+    static void setSection(int blockX, int blockY, int blockZ) {
+        final int[] section = SECTION.get();
+        section[0] = blockX >> 4;
+        section[1] = blockY >> 4;
+        section[2] = blockZ >> 4;
+    }
+    
+    static void endSection(Object event, int blockX, int blockY, int blockZ) {
+        final SectionEvent e = (SectionEvent) event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.sectionX = blockX >> 4;
+            e.sectionY = blockY >> 4;
+            e.sectionZ = blockZ >> 4;
+            e.commit();
+        }
+    }
+    
+    static void endBuffer(Object event, int quadCount, int byteCount) {
+        final BufferEvent e = (BufferEvent) event;
+        e.end();
+        if (e.shouldCommit()) {
+            final int[] section = SECTION.get();
+            e.sectionX = section[0];
+            e.sectionY = section[1];
+            e.sectionZ = section[2];
+            e.quadCount = quadCount;
+            e.byteCount = byteCount;
+            e.commit();
+        }
+    }
+    
+    static void endBuffer(Object event, int blockX, int blockY, int blockZ, int quadCount, int byteCount) {
+        final BufferEvent e = (BufferEvent) event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.sectionX = blockX >> 4;
+            e.sectionY = blockY >> 4;
+            e.sectionZ = blockZ >> 4;
+            e.quadCount = quadCount;
+            e.byteCount = byteCount;
+            e.commit();
+        }
+    }
+    
+    static void endLightmap(Object event, boolean isAo, int index) {
+        final LightmapEvent e = (LightmapEvent) event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.isAo = isAo;
+            e.index = index;
+            e.commit();
+        }
+    }
+    
+    static void endLightmapUpload(Object event, int uploadCount, int byteCount) {
+        final LightmapUploadEvent e = (LightmapUploadEvent) event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.uploadCount = uploadCount;
+            e.byteCount = byteCount;
+            e.commit();
+        }
+    }
+}
@@ -1,27 +1,24 @@
 package grondag.canvas.light;
 
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.function.IntBinaryOperator;
 
+import grondag.canvas.varia.ObjectPool;
+
 
 /**
  * Handles vanilla-style calculations for ao and light blending.
  */
 public class AoFaceCalc {
-    private static final ArrayBlockingQueue<AoFaceCalc> POOL = new ArrayBlockingQueue<>(512);
+    private static final ObjectPool<AoFaceCalc> POOL = ObjectPool.ofCount("AoFaceCalc", 64, 512, AoFaceCalc::new);
     
     public static AoFaceCalc claim() {
-        AoFaceCalc result = POOL.poll();
-        if (result == null) {
-            result = new AoFaceCalc();
-        }
-        return result;
+        return POOL.claim();
     }
     
     private AoFaceCalc() {}
     
     public void release() {
-        POOL.offer(this);
+        POOL.release(this);
     }
     
     int aoBottomRight;
@@ -5,27 +5,40 @@ import static grondag.canvas.light.LightmapHd.lightIndex;
 import net.minecraft.util.math.MathHelper;
 
 final class AoMapHd {
+    /** Bilinear corner weights for each padded pixel, indexed by {@link LightmapHd#lightIndex(int, int)} */
+    private static final float[] TOP_LEFT = new float[LightmapSizer.lightmapPixels];
+    private static final float[] TOP_RIGHT = new float[LightmapSizer.lightmapPixels];
+    private static final float[] BOTTOM_RIGHT = new float[LightmapSizer.lightmapPixels];
+    private static final float[] BOTTOM_LEFT = new float[LightmapSizer.lightmapPixels];
     
+    static {
+        for(int u = 0; u < LightmapSizer.paddedSize; u++) {
+            for(int v = 0; v < LightmapSizer.paddedSize; v++) {
+                float uDist = (float)u / LightmapSizer.aoSize;
+                float vDist = (float)v / LightmapSizer.aoSize;
+                final int i = lightIndex(u, v);
+                TOP_LEFT[i] = (1 - uDist) * (1 - vDist);
+                TOP_RIGHT[i] = uDist * (1 - vDist);
+                BOTTOM_RIGHT[i] = uDist * vDist;
+                BOTTOM_LEFT[i] = (1 - uDist) * vDist;
+            }
+        }
+    }
+    
+    /** Float operation order matches the former per-pixel formulation so output is identical */
     static void computeAo(int[] light, long key, int index) {
+        final float topLeft = LightKey.topLeftAo(key) / 255f;
+        final float topRight = LightKey.topRightAo(key) / 255f;
+        final float bottomRight = LightKey.bottomRightAo(key) / 255f;
+        final float bottomLeft = LightKey.bottomLeftAo(key) / 255f;
         
-      final float topLeft = LightKey.topLeftAo(key) / 255f;
-      final float topRight = LightKey.topRightAo(key) / 255f;
-      final float bottomRight = LightKey.bottomRightAo(key) / 255f;
-      final float bottomLeft = LightKey.bottomLeftAo(key) / 255f;
-
-      
-      for(int u = 0; u < LightmapSizer.paddedSize; u++) {
-          for(int v = 0; v < LightmapSizer.paddedSize; v++) {
-              float uDist = (float)u / LightmapSizer.aoSize;
-              float vDist = (float)v / LightmapSizer.aoSize;
-              
-              float tl = (1 - uDist) * (1 - vDist) * topLeft;
-              float tr = uDist * (1 - vDist) * topRight;
-              float br = uDist * vDist * bottomRight;
-              float bl = (1 - uDist) * vDist * bottomLeft;
-              light[lightIndex(u, v)] = output(tl + tr + br + bl);
-          }
-      }
+        for(int i = 0; i < LightmapSizer.lightmapPixels; i++) {
+            float tl = TOP_LEFT[i] * topLeft;
+            float tr = TOP_RIGHT[i] * topRight;
+            float br = BOTTOM_RIGHT[i] * bottomRight;
+            float bl = BOTTOM_LEFT[i] * bottomLeft;
+            light[i] = output(tl + tr + br + bl);
+        }
     }
     
     static int output(float in) {
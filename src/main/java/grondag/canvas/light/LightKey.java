@@ -23,6 +23,40 @@ public final class LightKey {
     
     private static final BooleanElement IS_AO = PACKER.createBooleanElement();
     
+    /** 
+     * Square symmetry that maps the canonical key back to the key that was requested.
+     * Never part of the map key - see {@link #canonicalize(long)}.
+     */
+    private static final IntElement SYMMETRY = PACKER.createIntElement(0, 7);
+    
+    /** Symmetry bits - applied to neighbor offsets after the transpose */
+    public static final int FLIP_U = 1;
+    public static final int FLIP_V = 2;
+    public static final int TRANSPOSE = 4;
+    
+    /** Neighbor elements indexed by (dv + 1) * 3 + du + 1 */
+    private static final IntElement[] ELEMENTS = {
+            TOP_LEFT, TOP, TOP_RIGHT,
+            LEFT, CENTER, RIGHT,
+            BOTTOM_LEFT, BOTTOM, BOTTOM_RIGHT};
+    
+    /** For each symmetry, index of the source element for each element of the transformed key */
+    private static final int[][] SOURCES = new int[8][9];
+    
+    static {
+        for(int s = 0; s < 8; s++) {
+            for(int dv = -1; dv <= 1; dv++) {
+                for(int du = -1; du <= 1; du++) {
+                    int u = (s & TRANSPOSE) == 0 ? du : dv;
+                    int v = (s & TRANSPOSE) == 0 ? dv : du;
+                    if((s & FLIP_U) != 0) u = -u;
+                    if((s & FLIP_V) != 0) v = -v;
+                    SOURCES[s][(dv + 1) * 3 + du + 1] = (v + 1) * 3 + u + 1;
+                }
+            }
+        }
+    }
+    
     static long toLightmapKey(
             int top,
             int left,
@@ -135,4 +169,40 @@ public final class LightKey {
     public static boolean isAo(long key) {
         return IS_AO.getValue(key);
     }
+    
+    /**
+     * Lightmap output is equivariant under the eight symmetries of the square, so
+     * keys that are rotations or reflections of each other can share one texture.
+     * Returns the lowest-valued key among all symmetric variants, with the symmetry
+     * needed to recover the input key encoded in the result. Use {@link #symmetry(long)}
+     * and {@link #withoutSymmetry(long)} to split the result.
+     */
+    static long canonicalize(long key) {
+        final long base = IS_AO.setValue(IS_AO.getValue(key), 0);
+        long best = key;
+        int bestSymmetry = 0;
+        
+        for(int s = 1; s < 8; s++) {
+            final int[] sources = SOURCES[s];
+            long k = base;
+            for(int i = 0; i < 9; i++) {
+                k = ELEMENTS[i].setValue(ELEMENTS[sources[i]].getValue(key), k);
+            }
+            
+            if(k < best) {
+                best = k;
+                bestSymmetry = s;
+            }
+        }
+        
+        return SYMMETRY.setValue(bestSymmetry, best);
+    }
+    
+    static int symmetry(long key) {
+        return SYMMETRY.getValue(key);
+    }
+    
+    static long withoutSymmetry(long key) {
+        return SYMMETRY.setValue(0, key);
+    }
 }
@@ -17,7 +17,7 @@ public class LightSmoother {
     private static final int BLUR_RADIUS = 2;
     private static final int MARGIN = BLUR_RADIUS + 2;
     private static final int POS_DIAMETER = 16 + MARGIN * 2;
-    private static final int POS_COUNT = POS_DIAMETER * POS_DIAMETER * POS_DIAMETER;
+    static final int POS_COUNT = POS_DIAMETER * POS_DIAMETER * POS_DIAMETER;
     private static final int Y_INC = POS_DIAMETER;
     private static final int Z_INC = POS_DIAMETER * POS_DIAMETER;
 
@@ -41,59 +41,62 @@ public class LightSmoother {
         final int minZ = chunkOrigin.getZ() - MARGIN;
 
         FastRenderRegion view = (FastRenderRegion) blockViewIn;
+        
+        // track if light is uniform for all non-opaque blocks - blur is an identity operation when it is
+        int blockMin = Integer.MAX_VALUE, blockMax = Integer.MIN_VALUE;
+        int skyMin = Integer.MAX_VALUE, skyMax = Integer.MIN_VALUE;
 
-        for(int x = 0; x < POS_DIAMETER; x++) {
+        // iterate in array order so writes are sequential
+        for(int z = 0; z < POS_DIAMETER; z++) {
             for(int y = 0; y < POS_DIAMETER; y++) {
-                for(int z = 0; z < POS_DIAMETER; z++) {
+                for(int x = 0; x < POS_DIAMETER; x++) {
                     final int bx = x + minX;
                     final int by = y + minY;
                     final int bz = z + minZ;
                     smoothPos.set(bx, by, bz);
                     
-                    BlockState state = view.getBlockState(bx, by, bz);
-                    //PERF: consider packed pos
-                    // don't use cache here because we are populating the cache
-                    final int packedLight = view.directBrightness(smoothPos);
-
-                    //PERF: use cache
-                    final boolean opaque = state.isFullOpaque(view, smoothPos);
-//                    //                    subtractedCache.put(packedPos, (short) subtracted);
-
+                    final BlockState state = view.getBlockState(bx, by, bz);
                     final int i = index(x, y , z);
-                    if(opaque) {
+                    
+                    //PERF: use cache
+                    if(state.isFullOpaque(view, smoothPos)) {
                         block[i] = OPAQUE;
                         sky[i] = OPAQUE;
-                    } else 
-                    if(packedLight == 0) {
-                        block[i] = 0;
-                        sky[i] = 0;
-                    } else {
-                        block[i] = (packedLight & 0xFF);
-                        sky[i] = ((packedLight >>> 16) & 0xFF);
+                        continue;
                     }
+                    
+                    // don't use cache here because we are populating the cache
+                    // and reuse state already retrieved instead of view.directBrightness()
+                    final int packedLight = state.getBlockBrightness(view, smoothPos);
+                    final int b = packedLight & 0xFF;
+                    final int k = (packedLight >>> 16) & 0xFF;
+                    block[i] = b;
+                    sky[i] = k;
+                    
+                    if(b < blockMin) blockMin = b;
+                    if(b > blockMax) blockMax = b;
+                    if(k < skyMin) skyMin = k;
+                    if(k > skyMax) skyMax = k;
                 }
             }
         }
 
         int[] work = help.c;
-        smooth(BLUR_RADIUS + 1, block, work);
-        smooth(BLUR_RADIUS, work, block);
-        //        smooth(1, block, work);
-        //        float[] swap = block;
-        //        block = work;
-        //        work = swap;
-
-        smooth(BLUR_RADIUS + 1, sky, work);
-        smooth(BLUR_RADIUS, work, sky);
-        //        smooth(1, sky, work);
-        //        swap = sky;
-        //        sky = work;
-        //        work = swap;
+        
+        if(blockMin < blockMax) {
+            smooth(BLUR_RADIUS + 1, block, work);
+            smooth(BLUR_RADIUS, work, block);
+        }
+
+        if(skyMin < skyMax) {
+            smooth(BLUR_RADIUS + 1, sky, work);
+            smooth(BLUR_RADIUS, work, sky);
+        }
 
         final int limit = 16 + MARGIN + 1;
-        for(int x = MARGIN - 2; x < limit; x++) {
+        for(int z = MARGIN - 2; z < limit; z++) {
             for(int y = MARGIN - 2; y < limit; y++) {
-                for(int z = MARGIN - 2; z < limit; z++) {
+                for(int x = MARGIN - 2; x < limit; x++) {
                     final long packedPos = PackedBlockPos.pack(x + minX, y + minY, z + minZ);
                     final int i = index(x, y , z);
                     final int b = MathHelper.clamp(((block[i]) * 104 + 51) / 100, 0, 240);
@@ -112,7 +115,13 @@ public class LightSmoother {
     private static final int OUTER_DIST = (0xFFFF - INNER_DIST) / 2;
     private static final int INNER_PLUS = INNER_DIST + OUTER_DIST;
     
-    private static void smooth(int margin, int[] src, int[] dest) {
+    /**
+     * Opaque neighbors contribute their weight to the center sample, so uniform
+     * input is preserved exactly. Formulated without branches and iterated with
+     * unit stride so that each row is a simple data-parallel loop the JIT can
+     * vectorize. Results are identical to the conditional formulation.
+     */
+    static void smooth(int margin, int[] src, int[] dest) {
         final int xBase = MARGIN - margin;
         final int xLimit = POS_DIAMETER - MARGIN + margin;
 
@@ -120,103 +129,44 @@ public class LightSmoother {
         final int yLimit = xLimit * Y_INC;
         final int zBase = xBase * Z_INC;
         final int zLimit = xLimit * Z_INC;
-        
 
         // X PASS
-        for(int x = xBase; x < xLimit; x++) {
+        for(int z = zBase; z < zLimit; z += Z_INC) {
             for(int y = yBase; y < yLimit; y += Y_INC) {
-                for(int z = zBase; z < zLimit; z += Z_INC) {
-                    int i = x + y + z;
-
-                    int c = src[i];
-                    if(c == OPAQUE) {
-                        dest[i] = OPAQUE;
-                        continue;
-                    }
-
-//                    int a = src[index(x + 1, y, z)];
-//                    int b = src[index(x - 1, y, z)];
-                    int a = src[i + 1];
-                    int b = src[i - 1];
-
-                    if(a == OPAQUE) {
-                        if(b == OPAQUE) {
-                            dest[i] = c;
-                        } else {
-                            dest[i] = (b * OUTER_DIST + c * INNER_PLUS + 0x7FFF) >> 16 ;
-                        }
-                    } else if(b == OPAQUE) {
-                        dest[i] = (a * OUTER_DIST + c * INNER_PLUS + 0x7FFF) >> 16;
-                    } else {
-                        dest[i] = (a * OUTER_DIST + b * OUTER_DIST + c * INNER_DIST + 0x7FFF) >> 16;
-                    }
-                }
+                blurRow(src, dest, z + y + xBase, z + y + xLimit, 1);
             }
         }
 
-        // Y PASS
-        for(int x = xBase; x < xLimit; x++) {
+        // Y PASS - note arrays are swapped here
+        for(int z = zBase; z < zLimit; z += Z_INC) {
             for(int y = yBase; y < yLimit; y += Y_INC) {
-                for(int z = zBase; z < zLimit; z += Z_INC) {
-                    int i = x + y + z;
-
-                    // Note arrays are swapped here
-                    int c = dest[i];
-                    if(c == OPAQUE) {
-                        src[i] = OPAQUE;
-                        continue;
-                    }
-
-//                    int a = dest[index(x, y - 1, z)];
-//                    int b = dest[index(x, y + 1, z)];
-                    int a = dest[i + Y_INC];
-                    int b = dest[i - Y_INC];
-
-                    if(a == OPAQUE) {
-                        if(b == OPAQUE) {
-                            src[i] = c;
-                        } else {
-                            src[i] = (b * OUTER_DIST + c * INNER_PLUS + 0x7FFF) >> 16;
-                        }
-                    } else if(b == OPAQUE) {
-                        src[i] = (a * OUTER_DIST + c * INNER_PLUS + 0x7FFF) >> 16;
-                    } else {
-                        src[i] = (a * OUTER_DIST + b * OUTER_DIST + c * INNER_DIST + 0x7FFF) >> 16;
-                    }
-                }
+                blurRow(dest, src, z + y + xBase, z + y + xLimit, Y_INC);
             }
         }
-        // Z PASS
-        for(int x = xBase; x < xLimit; x++) {
+        
+        // Z PASS - arrays are swapped back to original roles here
+        for(int z = zBase; z < zLimit; z += Z_INC) {
             for(int y = yBase; y < yLimit; y += Y_INC) {
-                for(int z = zBase; z < zLimit; z += Z_INC) {
-                    int i = x + y + z;
-
-                    // Arrays are swapped back to original roles here
-                    int c = src[i];
-                    if(c == OPAQUE) {
-                        dest[i] = OPAQUE;
-                        continue;
-                    }
-
-//                    int a = src[index(x, y, z - 1)];
-//                    int b = src[index(x, y, z + 1)];
-                    int a = src[i + Z_INC];
-                    int b = src[i - Z_INC];
-
-                    if(a == OPAQUE) {
-                        if(b == OPAQUE) {
-                            dest[i] = c;
-                        } else {
-                            dest[i] = (b * OUTER_DIST + c * INNER_PLUS + 0x7FFF) >> 16;
-                        }
-                    } else if(b == OPAQUE) {
-                        dest[i] = (a * OUTER_DIST + c * INNER_PLUS + 0x7FFF) >> 16;
-                    } else {
-                        dest[i] = (a * OUTER_DIST + b * OUTER_DIST + c * INNER_DIST + 0x7FFF) >> 16;
-                    }
-                }
+                blurRow(src, dest, z + y + xBase, z + y + xLimit, Z_INC);
             }
         }
     }
+    
+    private static void blurRow(int[] src, int[] dest, int start, int end, int offset) {
+        for(int i = start; i < end; i++) {
+            final int c = src[i];
+            final int a = src[i + offset];
+            final int b = src[i - offset];
+            
+            // all ones if opaque, zero otherwise
+            final int aMask = a >> 31;
+            final int bMask = b >> 31;
+            
+            final int cWeight = INNER_DIST + (OUTER_DIST & aMask) + (OUTER_DIST & bMask);
+            final int result = ((a & ~aMask) * OUTER_DIST + (b & ~bMask) * OUTER_DIST + c * cWeight + 0x7FFF) >> 16;
+            
+            // opaque center stays opaque
+            dest[i] = result | (c >> 31);
+        }
+    }
 }
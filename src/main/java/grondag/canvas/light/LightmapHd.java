@@ -5,6 +5,7 @@ import java.util.function.ToLongFunction;
 
 import grondag.canvas.CanvasMod;
 import grondag.canvas.apiimpl.QuadViewImpl;
+import grondag.canvas.jfr.CanvasEvents;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import net.minecraft.client.resource.language.I18n;
 import net.minecraft.util.math.MathHelper;
@@ -81,9 +82,14 @@ public class LightmapHd {
         return v * LightmapSizer.paddedSize + u;
     }
     
-    // PERF: can reduce texture consumption 8X by reusing rotations/inversions 
+    /**
+     * Rotations and reflections of the same light pattern share a single
+     * canonical lightmap. The returned instance is oriented to the requested
+     * pattern and transforms u,v accordingly in {@link #coord(QuadViewImpl, int)}.
+     */
     private static LightmapHd find(AoFaceData faceData, ToLongFunction<AoFaceData> mapper) {
-        long key = mapper.applyAsLong(faceData);
+        final long canonical = LightKey.canonicalize(mapper.applyAsLong(faceData));
+        final long key = LightKey.withoutSymmetry(canonical);
         
         LightmapHd result = MAP.get(key);
         
@@ -97,13 +103,17 @@ public class LightmapHd {
             }
         }
         
-        return result;
+        return result.oriented(LightKey.symmetry(canonical));
     }
     
     public final int uMinImg;
     public final int vMinImg;
     private final int[] light;
     public final boolean isAo;
+    /** Transform from requested u,v to canonical u,v - see {@link LightKey#canonicalize(long)} */
+    private final int symmetry;
+    /** Shared by all orientations of the same canonical lightmap, lazily populated */
+    private final LightmapHd[] orientations;
     
     private LightmapHd(long key) {
         final int index = nextIndex.getAndIncrement();
@@ -115,6 +125,9 @@ public class LightmapHd {
         // or simply output to the texture directly
         this.light = new int[LightmapSizer.lightmapPixels];
         isAo = LightKey.isAo(key);
+        symmetry = 0;
+        orientations = new LightmapHd[8];
+        orientations[0] = this;
         
         if(index >= LightmapSizer.maxCount) {
             if(errorNoticeNeeded) {
@@ -122,16 +135,40 @@ public class LightmapHd {
                 errorNoticeNeeded = false;
             }
         } else {
+            final Object event = CanvasEvents.beginLightmap();
             if(isAo) {
                 AoMapHd.computeAo(light, key, index);
             } else {
                 LightmapHdCalc.computeLight(light, key, index);
             }
+            CanvasEvents.endLightmap(event, isAo, index);
             
             LightmapHdTexture.instance().enque(this);
         }
     }
     
+    private LightmapHd(LightmapHd canonical, int symmetry) {
+        uMinImg = canonical.uMinImg;
+        vMinImg = canonical.vMinImg;
+        light = canonical.light;
+        isAo = canonical.isAo;
+        orientations = canonical.orientations;
+        this.symmetry = symmetry;
+    }
+    
+    /** 
+     * Instances are immutable so a race here at worst creates a redundant
+     * instance that is later discarded.
+     */
+    private LightmapHd oriented(int symmetry) {
+        LightmapHd result = orientations[symmetry];
+        if(result == null) {
+            result = new LightmapHd(this, symmetry);
+            orientations[symmetry] = result;
+        }
+        return result;
+    }
+    
     /**
      * Handles padding
      */
@@ -139,15 +176,41 @@ public class LightmapHd {
         return light[v * LightmapSizer.paddedSize + u];
     }
     
+    /**
+     * Padded pixels in row-major order. Not a copy - do not modify.
+     */
+    int[] pixels() {
+        return light;
+    }
+    
     public int coord(QuadViewImpl q, int i) {
+        float uq = q.u[i];
+        float vq = q.v[i];
+        
+        // inverse of canonical transform: flips first, then transpose
+        final int symmetry = this.symmetry;
+        if(symmetry != 0) {
+            if((symmetry & LightKey.FLIP_U) != 0) {
+                uq = 1 - uq;
+            }
+            if((symmetry & LightKey.FLIP_V) != 0) {
+                vq = 1 - vq;
+            }
+            if((symmetry & LightKey.TRANSPOSE) != 0) {
+                final float swap = uq;
+                uq = vq;
+                vq = swap;
+            }
+        }
+        
         final int u, v;
         
         if(isAo) {
-            u = Math.round((uMinImg + 0.5f  + q.u[i] * LightmapSizer.aoSize) * LightmapSizer.textureToBuffer);
-            v = Math.round((vMinImg + 0.5f  + q.v[i] * LightmapSizer.aoSize) * LightmapSizer.textureToBuffer);
+            u = Math.round((uMinImg + 0.5f  + uq * LightmapSizer.aoSize) * LightmapSizer.textureToBuffer);
+            v = Math.round((vMinImg + 0.5f  + vq * LightmapSizer.aoSize) * LightmapSizer.textureToBuffer);
         } else {
-            u = Math.round((uMinImg + 1  + q.u[i] * LightmapSizer.lightmapSize) * LightmapSizer.textureToBuffer);
-            v = Math.round((vMinImg + 1  + q.v[i] * LightmapSizer.lightmapSize) * LightmapSizer.textureToBuffer);
+            u = Math.round((uMinImg + 1  + uq * LightmapSizer.lightmapSize) * LightmapSizer.textureToBuffer);
+            v = Math.round((vMinImg + 1  + vq * LightmapSizer.lightmapSize) * LightmapSizer.textureToBuffer);
         }
         
         return u | (v << 16);
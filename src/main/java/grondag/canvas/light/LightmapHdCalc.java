@@ -2,15 +2,59 @@ package grondag.canvas.light;
 
 import static grondag.canvas.light.LightmapHd.*;
 
-import it.unimi.dsi.fastutil.ints.Int2IntFunction;
-
+/**
+ * Generates 4x4 (6x6 padded) lightmaps from a quantized light key.<p>
+ *
+ * Pixel placement is table-driven and corner interpolation uses only locals so that
+ * no lambdas or thread-locals are touched per pixel. Float operations are performed
+ * in the same order as the original formulation so output is bit-for-bit identical.
+ */
 final class LightmapHdCalc {
+    /**
+     * Light array indices for each quadrant, indexed by v * 3 + u where u, v are
+     * zero-based distance from center. Replaces former NEG/POS index functions.
+     */
+    private static final int[] TOP_LEFT = quadrant(false, false);
+    private static final int[] TOP_RIGHT = quadrant(true, false);
+    private static final int[] BOTTOM_LEFT = quadrant(false, true);
+    private static final int[] BOTTOM_RIGHT = quadrant(true, true);
+
+    /** Bilinear factors for each quadrant pixel, indexed same as quadrant arrays */
+    private static final float[] U_LINEAR = new float[9];
+    private static final float[] V_LINEAR = new float[9];
+
+    static {
+        for(int u = 0; u <= LightmapSizer.radius; u++) {
+            for(int v = 0; v <= LightmapSizer.radius; v++) {
+                final float uLinear = 1f - (u + 0.5f) / LightmapSizer.lightmapSize;
+                final float vLinear = 1f - (v + 0.5f) / LightmapSizer.lightmapSize;
+
+                assert uLinear >= 0 && uLinear <= 1f;
+                assert vLinear >= 0 && vLinear <= 1f;
+
+                U_LINEAR[v * 3 + u] = uLinear;
+                V_LINEAR[v * 3 + u] = vLinear;
+            }
+        }
+    }
+
+    private static int[] quadrant(boolean uPositive, boolean vPositive) {
+        final int[] result = new int[9];
+        for(int u = 0; u <= LightmapSizer.radius; u++) {
+            for(int v = 0; v <= LightmapSizer.radius; v++) {
+                final int uIndex = uPositive ? LightmapSizer.radius + 1 + u : LightmapSizer.radius - u;
+                final int vIndex = vPositive ? LightmapSizer.radius + 1 + v : LightmapSizer.radius - v;
+                result[v * 3 + u] = lightIndex(uIndex, vIndex);
+            }
+        }
+        return result;
+    }
+
     static float input(int b) {
         return b == AoFaceData.OPAQUE ? AoFaceData.OPAQUE : b / 16f;
     }
-    
+
     static void computeLight(int[] light, long key, int index) {
-        // PERF: use integer math
         final float center = input(LightKey.center(key));
         final float top = input(LightKey.top(key));
         final float bottom = input(LightKey.bottom(key));
@@ -22,138 +66,167 @@ final class LightmapHdCalc {
         final float bottomLeft = input(LightKey.bottomLeft(key));
 
         // Note: won't work for other than 4x4 interior, 6x6 padded
-        computeQuadrant(center, left, top, topLeft, light, LightmapSizer.NEG, LightmapSizer.NEG);
-        computeQuadrant(center, right, top, topRight, light, LightmapSizer.POS, LightmapSizer.NEG);
-        computeQuadrant(center, left, bottom, bottomLeft, light, LightmapSizer.NEG, LightmapSizer.POS);
-        computeQuadrant(center, right, bottom, bottomRight, light, LightmapSizer.POS, LightmapSizer.POS);
+        computeQuadrant(center, left, top, topLeft, light, TOP_LEFT);
+        computeQuadrant(center, right, top, topRight, light, TOP_RIGHT);
+        computeQuadrant(center, left, bottom, bottomLeft, light, BOTTOM_LEFT);
+        computeQuadrant(center, right, bottom, bottomRight, light, BOTTOM_RIGHT);
     }
-    
-    private static void computeQuadrant(float center, float uSide, float vSide, float corner, int light[], Int2IntFunction uFunc, Int2IntFunction vFunc) {
+
+    private static void computeQuadrant(float center, float uSide, float vSide, float corner, int light[], int[] quadrant) {
         //FIX: handle error case when center is missing
         if(uSide == AoFaceData.OPAQUE) {
             if(vSide == AoFaceData.OPAQUE) {
                 // fully enclosed
-                computeOpen(center, center - 0.5f, center - 0.5f, center - 0.5f, light, uFunc, vFunc);
+                computeOpen(center, center - 0.5f, center - 0.5f, center - 0.5f, light, quadrant);
             } else if (corner == AoFaceData.OPAQUE) {
                 // U + corner enclosing
-                computeOpen(center, center - 0.5f, vSide, vSide - 0.5f, light, uFunc, vFunc);
+                computeOpen(center, center - 0.5f, vSide, vSide - 0.5f, light, quadrant);
             } else {
                 // U side enclosing
-                computeOpaqueU(center, vSide, corner, light, uFunc, vFunc);
+                //  Layout  S = self, C = corner
+                //  V C V
+                //  S x S
+                //  V C V
+                computeCorner(corner, center, vSide, light, quadrant, OPAQUE_U);
             }
         } else if(vSide == AoFaceData.OPAQUE) {
             if(corner == AoFaceData.OPAQUE) {
                 // V + corner enclosing
-                computeOpen(center, uSide, center - 0.5f, uSide - 0.5f, light, uFunc, vFunc);
+                computeOpen(center, uSide, center - 0.5f, uSide - 0.5f, light, quadrant);
             } else {
                 // V side enclosing
-                computeOpaqueV(center, uSide, corner, light, uFunc, vFunc);
+                //  Layout  S = self, C = corner
+                //  U S U
+                //  C x C
+                //  U S U
+                computeCorner(center, corner, uSide, light, quadrant, OPAQUE_V);
             }
-            
+
         } else if(corner == AoFaceData.OPAQUE) {
             // opaque corner
-            computeOpaqueCorner(center, uSide, vSide, light, uFunc, vFunc);
-            
+            //  Layout
+            //  U C
+            //  x V
+            computeCorner(uSide, vSide, center, light, quadrant, OPAQUE_CORNER);
+
         } else {
             // all open
-            computeOpen(center, uSide, vSide, corner, light, uFunc, vFunc);
+            computeOpen(center, uSide, vSide, corner, light, quadrant);
         }
     }
-    
-    static void computeOpen(float center, float uSide, float vSide, float corner, int light[], Int2IntFunction uFunc, Int2IntFunction vFunc) {
-        for(int u = 0; u <= LightmapSizer.radius; u++) {
-            for(int v = 0; v <= LightmapSizer.radius; v++) {
-                final float uLinear = 1f - (u + 0.5f) / LightmapSizer.lightmapSize;
-                final float vLinear = 1f - (v + 0.5f) / LightmapSizer.lightmapSize;
-                
-                assert uLinear >= 0 && uLinear <= 1f;
-                assert vLinear >= 0 && vLinear <= 1f;
-                
-                float linear = center * (uLinear * vLinear) 
-                        + corner * (1 - uLinear) * (1 - vLinear)
-                        + uSide * ((1 - uLinear) * (vLinear))
-                        + vSide * ((uLinear) * (1 - vLinear));
-                
-                light[lightIndex(uFunc.applyAsInt(u), vFunc.applyAsInt(v))] = output(linear);
-            }
+
+    static void computeOpen(float center, float uSide, float vSide, float corner, int light[], int[] quadrant) {
+        for(int i = 0; i < 9; i++) {
+            final float uLinear = U_LINEAR[i];
+            final float vLinear = V_LINEAR[i];
+
+            float linear = center * (uLinear * vLinear)
+                    + corner * (1 - uLinear) * (1 - vLinear)
+                    + uSide * ((1 - uLinear) * (vLinear))
+                    + vSide * ((uLinear) * (1 - vLinear));
+
+            light[quadrant[i]] = output(linear);
         }
     }
-    
-    static void computeOpaqueU(float center, float vSide, float corner, int light[], Int2IntFunction uFunc, Int2IntFunction vFunc) {
-        //  Layout  S = self, C = corner
-        //  V C V
-        //  S x S
-        //  V C V
-        
-        LightmapCornerHelper help = LightmapCornerHelper.prepareThreadlocal(corner, center, vSide);
-        
-        //  F G H
-        //  J K L
-        //  M N O
-        light[lightIndex(uFunc.applyAsInt(0), vFunc.applyAsInt(0))] = output(help.o());
-        light[lightIndex(uFunc.applyAsInt(1), vFunc.applyAsInt(0))] = output(help.n());
-        light[lightIndex(uFunc.applyAsInt(2), vFunc.applyAsInt(0))] = output(help.m());
-        
-        light[lightIndex(uFunc.applyAsInt(0), vFunc.applyAsInt(1))] = output(help.l());
-        light[lightIndex(uFunc.applyAsInt(1), vFunc.applyAsInt(1))] = output(help.k());
-        light[lightIndex(uFunc.applyAsInt(2), vFunc.applyAsInt(1))] = output(help.j());
-        
-        light[lightIndex(uFunc.applyAsInt(0), vFunc.applyAsInt(2))] = output(help.h());
-        light[lightIndex(uFunc.applyAsInt(1), vFunc.applyAsInt(2))] = output(help.g());
-        light[lightIndex(uFunc.applyAsInt(2), vFunc.applyAsInt(2))] = output(help.f());
-        
-    }
-    
-    static void computeOpaqueV(float center, float uSide, float corner, int light[], Int2IntFunction uFunc, Int2IntFunction vFunc) {
-        //  Layout  S = self, C = corner
-        //  U S U
-        //  C x C
-        //  U S U
-        //  
-        LightmapCornerHelper help = LightmapCornerHelper.prepareThreadlocal(center, corner, uSide);
-        
-        //  A B C
-        //  E F G
-        //  I J K
-        light[lightIndex(uFunc.applyAsInt(0), vFunc.applyAsInt(0))] = output(help.a());
-        light[lightIndex(uFunc.applyAsInt(1), vFunc.applyAsInt(0))] = output(help.b());
-        light[lightIndex(uFunc.applyAsInt(2), vFunc.applyAsInt(0))] = output(help.c());
-        
-        light[lightIndex(uFunc.applyAsInt(0), vFunc.applyAsInt(1))] = output(help.e());
-        light[lightIndex(uFunc.applyAsInt(1), vFunc.applyAsInt(1))] = output(help.f());
-        light[lightIndex(uFunc.applyAsInt(2), vFunc.applyAsInt(1))] = output(help.g());
-        
-        light[lightIndex(uFunc.applyAsInt(0), vFunc.applyAsInt(2))] = output(help.i());
-        light[lightIndex(uFunc.applyAsInt(1), vFunc.applyAsInt(2))] = output(help.j());
-        light[lightIndex(uFunc.applyAsInt(2), vFunc.applyAsInt(2))] = output(help.k());
-    }
-    
-    static void computeOpaqueCorner(float center, float uSide, float vSide, int light[], Int2IntFunction uFunc, Int2IntFunction vFunc) {
-        LightmapCornerHelper help = LightmapCornerHelper.prepareThreadlocal(uSide, vSide, center);
-        
-        //  Layout
-        //  U C
-        //  x V
-        
-        //  B C D
-        //  F G H
-        //  J K L
-        light[lightIndex(uFunc.applyAsInt(0), vFunc.applyAsInt(0))] = output(help.d());
-        light[lightIndex(uFunc.applyAsInt(1), vFunc.applyAsInt(0))] = output(help.c());
-        light[lightIndex(uFunc.applyAsInt(2), vFunc.applyAsInt(0))] = output(help.b());
-        
-        light[lightIndex(uFunc.applyAsInt(0), vFunc.applyAsInt(1))] = output(help.h());
-        light[lightIndex(uFunc.applyAsInt(1), vFunc.applyAsInt(1))] = output(help.g());
-        light[lightIndex(uFunc.applyAsInt(2), vFunc.applyAsInt(1))] = output(help.f());
-        
-        light[lightIndex(uFunc.applyAsInt(0), vFunc.applyAsInt(2))] = output(help.l());
-        light[lightIndex(uFunc.applyAsInt(1), vFunc.applyAsInt(2))] = output(help.k());
-        light[lightIndex(uFunc.applyAsInt(2), vFunc.applyAsInt(2))] = output(help.j());
+
+    private static final int OPAQUE_U = 0;
+    private static final int OPAQUE_V = 1;
+    private static final int OPAQUE_CORNER = 2;
+
+    /**
+     *
+     * Computations assumes the following layout/naming conventions
+     *
+     * u               x
+     *   A   B   C   D
+     *
+     *   E   F   G   H             where I, J, K are obscured pixels in the corner
+     *   ------|                   and u,x,v are brightness values
+     *   I   J | K   L             and other capital letters are pixels/results
+     *         |                   to be computed
+     *       M | N   O
+     *                 v
+     *
+     *  A = .25x + .75u         B = .5x + .5u       C = .75x + .25u
+     *  D = x
+     *  H = .75x + .25v         L = .5x _ .5v       O = .25x + .75v
+     *  I = A - .3215   M = O - .3215
+     *  F = .5u + .25x + .25v - .15625     K = .5v + .25x + .25u - .15625
+     *  J = mean(IFKM)  E = mean(AFI)   N = mean(MKO)  G = mean(FCHK)
+     *
+     *  The above started out as barycentric interpolation but was then hand-tweaked to look good.
+     *  There's no other logic to it.
+     */
+    private static void computeCorner(float u, float v, float x, int[] light, int[] quadrant, int layout) {
+        final float a = 0.25f * x + 0.75f * u;
+        final float b = 0.5f * x + 0.5f * u;
+        final float c = 0.75f * x + 0.25f * u;
+        final float h = 0.75f * x + 0.25f * v;
+        final float l = 0.5f * x + 0.5f * v;
+        final float o = 0.25f * x + 0.75f * v;
+        final float i = a - 0.3215f;
+        final float m = o - 0.3215f;
+        final float f = 0.5f * u + 0.25f * x + 0.25f * v;
+        final float k = 0.5f * v + 0.25f * x + 0.25f * u;
+
+        switch(layout) {
+        case OPAQUE_U:
+            //  F G H
+            //  J K L
+            //  M N O
+            light[quadrant[0]] = output(o);
+            light[quadrant[1]] = output((m + k + o) * 0.3333333f);
+            light[quadrant[2]] = output(m);
+
+            light[quadrant[3]] = output(l);
+            light[quadrant[4]] = output(k);
+            light[quadrant[5]] = output((i + k + f + m) * 0.25f);
+
+            light[quadrant[6]] = output(h);
+            light[quadrant[7]] = output((f + c + h + k) * 0.25f);
+            light[quadrant[8]] = output(f);
+            break;
+
+        case OPAQUE_V:
+            //  A B C
+            //  E F G
+            //  I J K
+            light[quadrant[0]] = output(a);
+            light[quadrant[1]] = output(b);
+            light[quadrant[2]] = output(c);
+
+            light[quadrant[3]] = output((a + f + i) * 0.3333333f);
+            light[quadrant[4]] = output(f);
+            light[quadrant[5]] = output((f + c + h + k) * 0.25f);
+
+            light[quadrant[6]] = output(i);
+            light[quadrant[7]] = output((i + k + f + m) * 0.25f);
+            light[quadrant[8]] = output(k);
+            break;
+
+        case OPAQUE_CORNER:
+        default:
+            //  B C D
+            //  F G H
+            //  J K L
+            light[quadrant[0]] = output(x);
+            light[quadrant[1]] = output(c);
+            light[quadrant[2]] = output(b);
+
+            light[quadrant[3]] = output(h);
+            light[quadrant[4]] = output((f + c + h + k) * 0.25f);
+            light[quadrant[5]] = output(f);
+
+            light[quadrant[6]] = output(l);
+            light[quadrant[7]] = output(k);
+            light[quadrant[8]] = output((i + k + f + m) * 0.25f);
+            break;
+        }
     }
-    
+
     static int output(float in) {
         int result = Math.round(in * 17f);
-        
+
         if(result < 0) {
             result = 0;
         } else if(result > 255) {
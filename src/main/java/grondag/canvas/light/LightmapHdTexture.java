@@ -1,6 +1,7 @@
 package grondag.canvas.light;
 
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL21;
@@ -8,7 +9,10 @@ import org.lwjgl.opengl.GL21;
 import com.mojang.blaze3d.platform.GlStateManager;
 
 import grondag.canvas.Configurator;
+import grondag.canvas.jfr.CanvasEvents;
 import grondag.canvas.varia.DitherTexture;
+import grondag.canvas.varia.GlStateTracker;
+import grondag.canvas.varia.RenderMetrics;
 import grondag.canvas.varia.SimpleImage;
 import grondag.canvas.varia.SimpleTexture;
 import net.fabricmc.api.EnvType;
@@ -37,9 +41,29 @@ public class LightmapHdTexture implements AutoCloseable {
         }
     }
     
+    /** Width and height of dirty-tracking tiles, in pixels */
+    private static final int TILE_SIZE = 64;
+    private static final int TILES_PER_AXIS = (LightmapSizer.texSize + TILE_SIZE - 1) / TILE_SIZE;
+    private static final int TILE_COUNT = TILES_PER_AXIS * TILES_PER_AXIS;
+    /** Upload no more than this many bytes per frame - remaining tiles are uploaded on later frames */
+    private static final int MAX_UPLOAD_BYTES_PER_FRAME = 1024 * 1024;
+    /** Upload no more than this many sub-rectangles per frame */
+    private static final int MAX_UPLOADS_PER_FRAME = 64;
+    
     private SimpleTexture texture;
     private SimpleImage image;
-
+    
+    /** 
+     * Filter parameters are texture object state - only set when texture or mode changes.
+     * Uploads reset filtering to nearest, so every upload must clear this.
+     */
+    private int paramTextureId = -1;
+    private int paramMode = -1;
+    
+    /** One bit per tile, set by rebuild threads and cleared on render thread when uploaded */
+    private final AtomicLongArray dirtyTiles = new AtomicLongArray((TILE_COUNT + 63) >> 6);
+    private final AtomicBoolean hasDirtyTiles = new AtomicBoolean();
+    
     private LightmapHdTexture() {
         this.texture = new SimpleTexture(new SimpleImage(1, GL11.GL_RED, LightmapSizer.texSize, LightmapSizer.texSize, false), GL11.GL_RED);
         this.image = this.texture.getImage();
@@ -49,21 +73,46 @@ public class LightmapHdTexture implements AutoCloseable {
     private void clear() {
         this.image.clearLuminance((byte)255);
         this.texture.upload();
+        paramTextureId = -1;
+        
+        for(int i = 0; i < dirtyTiles.length(); i++) {
+            dirtyTiles.set(i, 0);
+        }
+        hasDirtyTiles.set(false);
     }
 
-    private static final ConcurrentLinkedQueue<LightmapHd> updates = new ConcurrentLinkedQueue<>();
-    
     public void enque(LightmapHd lightmap) {
-        final SimpleImage image = this.image;
         final int uMap = lightmap.uMinImg;
         final int vMap = lightmap.vMinImg;
         
-        for(int u = 0; u < LightmapSizer.paddedSize; u++) {
-            for(int v = 0; v < LightmapSizer.paddedSize; v++) {
-                image.setLuminance(uMap + u, vMap + v, (byte)lightmap.pixel(u,v));
+        image.setLuminance(uMap, vMap, LightmapSizer.paddedSize, LightmapSizer.paddedSize, lightmap.pixels());
+        
+        final int tMax = (vMap + LightmapSizer.paddedSize - 1) / TILE_SIZE;
+        final int sMax = (uMap + LightmapSizer.paddedSize - 1) / TILE_SIZE;
+        
+        for(int t = vMap / TILE_SIZE; t <= tMax; t++) {
+            for(int s = uMap / TILE_SIZE; s <= sMax; s++) {
+                markDirty(t * TILES_PER_AXIS + s);
             }
         }
-        updates.add(lightmap);
+        
+        hasDirtyTiles.set(true);
+    }
+    
+    private void markDirty(int tile) {
+        final long mask = 1L << (tile & 63);
+        final int word = tile >> 6;
+        if((dirtyTiles.get(word) & mask) == 0) {
+            dirtyTiles.getAndAccumulate(word, mask, (a, b) -> a | b);
+        }
+    }
+    
+    /** Clears and returns true if tile was dirty */
+    private boolean claimDirty(int tile) {
+        final long mask = 1L << (tile & 63);
+        final int word = tile >> 6;
+        return (dirtyTiles.get(word) & mask) != 0 
+                && (dirtyTiles.getAndAccumulate(word, ~mask, (a, b) -> a & b) & mask) != 0;
     }
     
     @Override
@@ -95,8 +144,16 @@ public class LightmapHdTexture implements AutoCloseable {
         this.texture.bindTexture();
         
         final int mode = Configurator.lightmapDebug ? GL11.GL_NEAREST : GL11.GL_LINEAR;
-        GlStateManager.texParameter(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, mode);
-        GlStateManager.texParameter(GL11.GL_TEXTURE_2D,  GL11.GL_TEXTURE_MAG_FILTER, mode);
+        final int textureId = this.texture.getGlId();
+        if (mode == paramMode && textureId == paramTextureId) {
+            GlStateTracker.skipped(GlStateTracker.TEXTURE);
+        } else {
+            GlStateTracker.issued(GlStateTracker.TEXTURE);
+            paramMode = mode;
+            paramTextureId = textureId;
+            GlStateManager.texParameter(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, mode);
+            GlStateManager.texParameter(GL11.GL_TEXTURE_2D,  GL11.GL_TEXTURE_MAG_FILTER, mode);
+        }
         GlStateManager.color4f(1.0F, 1.0F, 1.0F, 1.0F);
         GlStateManager.enableTexture();
         GlStateManager.activeTexture(GL21.GL_TEXTURE0);
@@ -104,37 +161,66 @@ public class LightmapHdTexture implements AutoCloseable {
 
     private int frameCounter = 0;
     
+    /** 
+     * Uploads dirty tiles, coalescing horizontal runs of dirty tiles into single
+     * sub-rectangle uploads. Stops when the per-frame byte or upload budget is exhausted.
+     */
     public void onRenderTick() {
         frameCounter++;
         
-        if(updates.isEmpty() || frameCounter < Configurator.maxLightmapDelayFrames) {
+        if(!hasDirtyTiles.get() || frameCounter < Configurator.maxLightmapDelayFrames) {
             return;
         }
         
         frameCounter = 0;
         
-        int uMin = Integer.MAX_VALUE;
-        int vMin = Integer.MAX_VALUE;
-        int uMax = Integer.MIN_VALUE;
-        int vMax = Integer.MIN_VALUE;
-
-        LightmapHd map;
-        while((map = updates.poll()) != null) {
-            final int uMap = map.uMinImg;
-            final int vMap = map.vMinImg;
-            uMin = Math.min(uMin, uMap);
-            vMin = Math.min(vMin, vMap);
-            uMax = Math.max(uMax, uMap + LightmapSizer.paddedSize);
-            vMax = Math.max(vMax, vMap + LightmapSizer.paddedSize);
-        }
+        // cleared first so that concurrent enque will re-signal
+        hasDirtyTiles.set(false);
         
-        if(uMin == Integer.MAX_VALUE) {
-            return;
+        final int tileBytes = TILE_SIZE * TILE_SIZE;
+        int budget = MAX_UPLOAD_BYTES_PER_FRAME;
+        int uploads = 0;
+        final Object event = CanvasEvents.beginLightmapUpload();
+        
+        tiles:
+        for(int t = 0; t < TILES_PER_AXIS; t++) {
+            final int rowStart = t * TILES_PER_AXIS;
+            int s = 0;
+            
+            while(s < TILES_PER_AXIS) {
+                if(budget < tileBytes || uploads >= MAX_UPLOADS_PER_FRAME) {
+                    // resume next frame
+                    hasDirtyTiles.set(true);
+                    break tiles;
+                }
+                
+                if(!claimDirty(rowStart + s)) {
+                    s++;
+                    continue;
+                }
+                
+                final int sStart = s++;
+                budget -= tileBytes;
+                
+                while(s < TILES_PER_AXIS && budget >= tileBytes && claimDirty(rowStart + s)) {
+                    budget -= tileBytes;
+                    s++;
+                }
+                
+                final int u = sStart * TILE_SIZE;
+                final int v = t * TILE_SIZE;
+                final int w = Math.min(s * TILE_SIZE, LightmapSizer.texSize) - u;
+                final int h = Math.min(v + TILE_SIZE, LightmapSizer.texSize) - v;
+                this.texture.uploadPartial(u, v, w, h);
+                RenderMetrics.add(RenderMetrics.BYTES_UPLOADED, w * h);
+                uploads++;
+            }
         }
         
-        uMin = (uMin / 4) * 4;
-        final int w = ((uMax - uMin + 3) / 4) * 4;
+        if(uploads > 0) {
+            paramTextureId = -1;
+        }
         
-        this.texture.uploadPartial(uMin, vMin, w, vMax - vMin);
+        CanvasEvents.endLightmapUpload(event, uploads, MAX_UPLOAD_BYTES_PER_FRAME - budget);
     }
-}
\ No newline at end of file
+}
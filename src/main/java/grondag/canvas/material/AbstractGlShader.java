@@ -30,8 +30,6 @@ import com.mojang.blaze3d.platform.GLX;
 
 import grondag.canvas.CanvasMod;
 import grondag.canvas.Configurator;
-import grondag.canvas.Configurator.AoMode;
-import grondag.canvas.Configurator.DiffuseMode;
 import grondag.canvas.varia.CanvasGlHelper;
 import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.client.MinecraftClient;
@@ -48,8 +46,10 @@ abstract class AbstractGlShader {
     private final int shaderProps;
     private final ShaderContext context;
 
+    private String source = null;
     private int glId = -1;
     private boolean needsLoad = true;
+    private boolean needsStatus = false;
     private boolean isErrored = false;
 
     AbstractGlShader(Identifier shaderSource, int shaderType, int shaderProps, ShaderContext context) {
@@ -64,20 +64,47 @@ abstract class AbstractGlShader {
      */
     public final void forceReload() {
         this.needsLoad = true;
+        this.needsStatus = false;
+        this.source = null;
+    }
+    
+    /**
+     * Preprocessed source, retained until next reload.
+     */
+    public final String source() {
+        String result = source;
+        if(result == null) {
+            result = getSource();
+            source = result;
+        }
+        return result;
     }
 
     public final int glId() {
         if (this.needsLoad)
-            this.load();
+            this.compile();
 
+        if (this.needsStatus)
+            this.checkStatus();
+        
         return this.isErrored ? -1 : this.glId;
     }
 
-    private final void load() {
+    /**
+     * Issues compile if needed but does not wait for the result, so drivers
+     * with parallel compile can keep working. Status is checked on next {@link #glId()}.
+     */
+    public final int compileId() {
+        if (this.needsLoad)
+            this.compile();
+
+        return this.isErrored ? -1 : this.glId;
+    }
+    
+    private final void compile() {
         needsLoad = false;
+        needsStatus = false;
         isErrored = false;
-        String source = null;
-        String error = null;
         
         try {
             if (glId <= 0) {
@@ -89,11 +116,20 @@ abstract class AbstractGlShader {
                 }
             }
             
-            source = getSource();
-            
-            GLX.glShaderSource(glId, source);
+            GLX.glShaderSource(glId, source());
             GLX.glCompileShader(glId);
-
+            needsStatus = true;
+        } catch (Exception e) {
+            isErrored = true;
+            onError(e.getMessage());
+        }
+    }
+    
+    private final void checkStatus() {
+        needsStatus = false;
+        String error = null;
+        
+        try {
             if (GLX.glGetShaderi(glId, GLX.GL_COMPILE_STATUS) == GL11.GL_FALSE) {
                 isErrored = true;
                 error = CanvasGlHelper.getShaderInfoLog(glId);
@@ -101,34 +137,36 @@ abstract class AbstractGlShader {
                     error = "Unknown OpenGL Error.";
                 }
             }
-
         } catch (Exception e) {
             isErrored = true;
             error = e.getMessage();
         }
         
         if(this.isErrored) {
-            if(this.glId > 0) {
-                GLX.glDeleteShader(glId);
-                this.glId = -1;
-            }
-            
-            if(Configurator.conciseErrors) {
-                if(!isErrorNoticeComplete) {
-                    if(Configurator.conciseErrors)
-                    CanvasMod.LOG.error(I18n.translate("error.canvas.fail_create_any_shader"));
-                    isErrorNoticeComplete = true;
-                }
-            } else {
-                CanvasMod.LOG.error(I18n.translate("error.canvas.fail_create_shader", this.shaderSource.toString(), Integer.toString(this.shaderProps), error));
-            }
-            outputDebugSource(source, error);
-            
+            onError(error);
         } else if(Configurator.shaderDebug) {
             outputDebugSource(source, null);
         }
     }
     
+    private void onError(String error) {
+        if(this.glId > 0) {
+            GLX.glDeleteShader(glId);
+            this.glId = -1;
+        }
+        
+        if(Configurator.conciseErrors) {
+            if(!isErrorNoticeComplete) {
+                if(Configurator.conciseErrors)
+                CanvasMod.LOG.error(I18n.translate("error.canvas.fail_create_any_shader"));
+                isErrorNoticeComplete = true;
+            }
+        } else {
+            CanvasMod.LOG.error(I18n.translate("error.canvas.fail_create_shader", this.shaderSource.toString(), Integer.toString(this.shaderProps), error));
+        }
+        outputDebugSource(source, error);
+    }
+    
     public static void forceReloadErrors() {
         isErrorNoticeComplete = false;
         clearDebugSource();
@@ -187,67 +225,8 @@ abstract class AbstractGlShader {
         }
     }
 
-    public String buildSource(String librarySource) {
-        String result = getShaderSource(this.shaderSource);
-        result = result.replaceAll("#version\\s+120", "");
-        result = librarySource + result;
-
-        final int spriteDepth = ShaderProps.spriteDepth(shaderProps);
-        
-        if(ShaderProps.cutout(shaderProps)) {
-            result = result.replaceAll("#define CUTOUT FALSE", "#define CUTOUT TRUE");
-        }
-        
-        if (spriteDepth > 1)
-            result = result.replaceAll("#define LAYER_COUNT 1", String.format("#define LAYER_COUNT %d", spriteDepth));
-        
-        result = result.replaceAll("#define CONTEXT 0", "#define CONTEXT " + context.ordinal());
-
-        if(!context.isBlock) {
-            result = result.replaceAll("#define CONTEXT_IS_BLOCK TRUE", "#define CONTEXT_IS_BLOCK FALSE");
-        }
-        
-        if(Configurator.hardcoreDarkness && context != ShaderContext.ITEM_GUI) {
-            result = result.replaceAll("#define HARDCORE_DARKNESS FALSE", "#define HARDCORE_DARKNESS TRUE");
-        }
-
-        if(Configurator.subtleFog && context != ShaderContext.ITEM_GUI) {
-            result = result.replaceAll("#define SUBTLE_FOG FALSE", "#define SUBTLE_FOG TRUE");
-        }
-        
-        if(!context.isBlock) {
-            result = result.replaceAll("#define CONTEXT_IS_BLOCK TRUE", "#define CONTEXT_IS_BLOCK FALSE");
-        }
-        
-        if(!Configurator.hdLightmaps || ((shaderProps & ShaderProps.SMOOTH_LIGHTMAPS) == 0)) {
-            result = result.replaceAll("#define ENABLE_SMOOTH_LIGHT TRUE", "#define ENABLE_SMOOTH_LIGHT FALSE");
-        }
-        
-        if(!Configurator.lightmapNoise || !Configurator.hdLightmaps) {
-            result = result.replaceAll("#define ENABLE_LIGHT_NOISE TRUE", "#define ENABLE_LIGHT_NOISE FALSE");
-        }
-        
-        if(Configurator.aoShadingMode != AoMode.NORMAL) {
-            result = result.replaceAll("#define AO_SHADING_MODE AO_MODE_NORMAL", 
-                    "#define AO_SHADING_MODE AO_MODE_" + Configurator.aoShadingMode.name());
-        }
-        
-        if(Configurator.diffuseShadingMode != DiffuseMode.NORMAL) {
-            result = result.replaceAll("#define DIFFUSE_SHADING_MODE DIFFUSE_MODE_NORMAL", 
-                    "#define DIFFUSE_SHADING_MODE DIFFUSE_MODE_" + Configurator.diffuseShadingMode.name());
-        }
-        
-        if(CanvasGlHelper.useGpuShader4() ) {
-            result = result.replaceAll("#define USE_FLAT_VARYING FALSE", "#define USE_FLAT_VARYING TRUE");
-        } else {
-            result = result.replaceAll("#extension GL_EXT_gpu_shader4 : enable", "");
-        }
-        
-        if((shaderProps & ShaderProps.WHITE_0) != 0) {
-            result = result.replaceAll("#define WHITE_0 FALSE", "#define WHITE_0 TRUE");
-        }
-        
-        return result;
+    protected String buildSource(boolean isVertex) {
+        return GlShaderManager.INSTANCE.buildSource(shaderSource, isVertex, shaderProps, context);
     }
 
     abstract String getSource();
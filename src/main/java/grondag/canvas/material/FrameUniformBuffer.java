@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+
+package grondag.canvas.material;
+
+import java.nio.ByteBuffer;
+
+import org.joml.Vector3f;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL31;
+
+import grondag.canvas.varia.CanvasGlHelper;
+import grondag.canvas.varia.GLBufferStore;
+import net.minecraft.util.math.Vec3d;
+
+/**
+ * Frame-global uniform values packed once per frame into a single uniform buffer 
+ * shared by all programs. Programs bind the block at link, so per-frame upload 
+ * cost doesn't grow with the number of shader variants.<p>
+ * 
+ * Layout is std140 and must match CanvasFrameData in common_lib.glsl.
+ */
+public final class FrameUniformBuffer {
+    private FrameUniformBuffer() {}
+    
+    /** Kept clear of low binding points other mods are most likely to use */
+    static final int BINDING = 7;
+    static final String BLOCK_NAME = "CanvasFrameData";
+    
+    // std140 offsets - float array elements have 16-byte stride
+    private static final int WORLD_OFFSET = 0;
+    private static final int EMISSIVE_OFFSET = 128;
+    private static final int EYE_OFFSET = 144;
+    private static final int TIME_OFFSET = 156;
+    private static final int FOG_OFFSET = 160;
+    private static final int BYTE_SIZE = 176;
+    
+    private static final ByteBuffer DATA = BufferUtils.createByteBuffer(BYTE_SIZE);
+    
+    private static int glBufferId = -1;
+    
+    public static boolean isEnabled() {
+        return CanvasGlHelper.isUniformBufferEnabled();
+    }
+    
+    static void upload(float[] world, Vector3f emissiveColor, Vec3d eyePos, float renderSeconds, int fogMode) {
+        final ByteBuffer data = DATA;
+        final int worldLength = Math.min(world.length, 8);
+        for(int i = 0; i < worldLength; i++) {
+            data.putFloat(WORLD_OFFSET + i * 16, world[i]);
+        }
+        
+        data.putFloat(EMISSIVE_OFFSET, emissiveColor.x);
+        data.putFloat(EMISSIVE_OFFSET + 4, emissiveColor.y);
+        data.putFloat(EMISSIVE_OFFSET + 8, emissiveColor.z);
+        data.putFloat(EMISSIVE_OFFSET + 12, 1f);
+        
+        data.putFloat(EYE_OFFSET, (float) eyePos.x);
+        data.putFloat(EYE_OFFSET + 4, (float) eyePos.y);
+        data.putFloat(EYE_OFFSET + 8, (float) eyePos.z);
+        data.putFloat(TIME_OFFSET, renderSeconds);
+        data.putInt(FOG_OFFSET, fogMode);
+        
+        if(glBufferId == -1) {
+            glBufferId = GLBufferStore.claimBuffer();
+        }
+        
+        GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, glBufferId);
+        GL15.glBufferData(GL31.GL_UNIFORM_BUFFER, data, GL15.GL_STREAM_DRAW);
+        GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, 0);
+        
+        // rebound each frame in case something else took the binding point
+        CanvasGlHelper.glBindBufferBase(GL31.GL_UNIFORM_BUFFER, BINDING, glBufferId);
+    }
+    
+    /**
+     * Call after link. Does nothing if program doesn't declare the block.
+     */
+    static void bindProgram(int programId) {
+        final int blockIndex = CanvasGlHelper.glGetUniformBlockIndex(programId, BLOCK_NAME);
+        if(blockIndex != GL31.GL_INVALID_INDEX) {
+            CanvasGlHelper.glUniformBlockBinding(programId, blockIndex, BINDING);
+        }
+    }
+}
@@ -27,6 +27,6 @@ public final class GlFragmentShader extends AbstractGlShader {
 
     @Override
     public String getSource() {
-        return buildSource(GlShaderManager.INSTANCE.fragmentLibrarySource);
+        return buildSource(false);
     }
 }
@@ -31,6 +31,8 @@ import com.mojang.blaze3d.platform.GLX;
 import grondag.canvas.CanvasMod;
 import grondag.canvas.apiimpl.MaterialShaderImpl.UniformMatrix4f;
 import grondag.canvas.varia.CanvasGlHelper;
+import grondag.canvas.varia.GlStateTracker;
+import grondag.canvas.varia.RenderMetrics;
 import grondag.frex.api.material.Uniform;
 import grondag.frex.api.material.Uniform.Uniform1f;
 import grondag.frex.api.material.Uniform.Uniform1i;
@@ -50,16 +52,22 @@ public class GlProgram {
     private static GlProgram activeProgram;
     
     public static void deactivate() {
+        GlStateTracker.issued(GlStateTracker.PROGRAM);
         activeProgram = null;
         GLX.glUseProgram(0);
     }
 
     private int progID = -1;
     private boolean isErrored = false;
+    /** true when link has been issued but result not yet checked */
+    private boolean isLinking = false;
+    /** retained between link and completion so binary can be saved */
+    private String binaryKey = null;
 
     public final GlVertexShader vertexShader;
     public final GlFragmentShader fragmentShader;
     public final int spriteDepth;
+    public final int shaderProps;
     public final boolean isSolidLayer;
     public final MaterialVertexFormat pipelineVertexFormat;
 
@@ -124,8 +132,10 @@ public class GlProgram {
             if ((this.flags & FLAG_NEEDS_INITIALIZATION) == FLAG_NEEDS_INITIALIZATION)
                 this.initializer.accept((T) this);
 
-            if ((this.flags & FLAG_NEEDS_UPLOAD) == FLAG_NEEDS_UPLOAD)
+            if ((this.flags & FLAG_NEEDS_UPLOAD) == FLAG_NEEDS_UPLOAD) {
+                RenderMetrics.increment(RenderMetrics.UNIFORM_UPLOADS);
                 this.uploadInner();
+            }
 
             this.flags = 0;
         }
@@ -469,16 +479,23 @@ public class GlProgram {
     public GlProgram(GlVertexShader vertexShader, GlFragmentShader fragmentShader, int shaderProps, boolean isSolidLayer) {
         this.vertexShader = vertexShader;
         this.fragmentShader = fragmentShader;
+        this.shaderProps = shaderProps;
         this.spriteDepth = ShaderProps.spriteDepth(shaderProps);
         this.pipelineVertexFormat = MaterialVertexFormats.fromShaderProps(shaderProps);
         this.isSolidLayer = isSolidLayer;
     }
 
     public final void activate() {
+        if (this.isLinking)
+            finishLoad();
+        
         if (this.isErrored)
             return;
 
-        if (activeProgram != this) {
+        if (activeProgram == this) {
+            GlStateTracker.skipped(GlStateTracker.PROGRAM);
+        } else {
+            GlStateTracker.issued(GlStateTracker.PROGRAM);
             activeProgram = this;
             GLX.glUseProgram(this.progID);
 
@@ -544,7 +561,18 @@ public class GlProgram {
     }
 
     public final void load() {
+        beginLoad();
+        if (isLinking)
+            finishLoad();
+    }
+    
+    /**
+     * Issues compile and link without querying results so drivers with parallel
+     * compile can do the work off-thread. Use {@link #isReady()} to complete.
+     */
+    public final void beginLoad() {
         this.isErrored = true;
+        this.isLinking = false;
 
         // prevent accumulation of uniforms in programs that aren't activated after
         // multiple reloads
@@ -555,7 +583,7 @@ public class GlProgram {
 
             this.progID = GLX.glCreateProgram();
 
-            this.isErrored = this.progID > 0 && !loadInner();
+            this.isErrored = this.progID > 0 && !beginLoadInner();
         } catch (Exception e) {
             if (this.progID > 0)
                 GLX.glDeleteProgram(progID);
@@ -563,28 +591,30 @@ public class GlProgram {
             CanvasMod.LOG.error(I18n.translate("error.canvas.program_link_failure"), e);
             this.progID = -1;
         }
-
-        if (!this.isErrored) {
-            final int limit = uniforms.size();
-            for (int i = 0; i < limit; i++)
-                uniforms.get(i).load(progID);
-        }
-
     }
 
     /**
      * Return true on success
      */
-    private final boolean loadInner() {
+    private final boolean beginLoadInner() {
         final int programID = this.progID;
         if (programID <= 0)
             return false;
 
-        final int vertId = vertexShader.glId();
+        binaryKey = CanvasGlHelper.isProgramBinaryEnabled() ? ProgramBinaryCache.key(this) : null;
+        
+        // no need to compile shaders if the driver accepts the cached binary
+        if (binaryKey != null && ProgramBinaryCache.load(programID, binaryKey)) {
+            binaryKey = null;
+            loadUniforms();
+            return true;
+        }
+        
+        final int vertId = vertexShader.compileId();
         if (vertId <= 0)
             return false;
 
-        final int fragId = fragmentShader.glId();
+        final int fragId = fragmentShader.compileId();
         if (fragId <= 0)
             return false;
 
@@ -593,14 +623,73 @@ public class GlProgram {
 
         pipelineVertexFormat.bindProgramAttributes(programID);
 
+        if (binaryKey != null)
+            CanvasGlHelper.glProgramBinaryRetrievableHint(programID);
+        
         GLX.glLinkProgram(programID);
-        if (GLX.glGetProgrami(programID, GLX.GL_LINK_STATUS) == GL11.GL_FALSE) {
-            CanvasMod.LOG.error(CanvasGlHelper.getProgramInfoLog(programID));
-            return false;
+        isLinking = true;
+        return true;
+    }
+    
+    /**
+     * True if program is linked or errored.  Never blocks when driver supports 
+     * parallel compile. Otherwise completes the link immediately.
+     */
+    public final boolean isReady() {
+        if (isLinking) {
+            if (!CanvasGlHelper.isProgramLinkComplete(progID))
+                return false;
+            
+            finishLoad();
         }
-
         return true;
     }
+    
+    private final void finishLoad() {
+        isLinking = false;
+        final int programID = this.progID;
+        
+        try {
+            // checks compile status - shader errors are logged by the shader
+            if (vertexShader.glId() <= 0 || fragmentShader.glId() <= 0) {
+                isErrored = true;
+                return;
+            }
+            
+            if (GLX.glGetProgrami(programID, GLX.GL_LINK_STATUS) == GL11.GL_FALSE) {
+                CanvasMod.LOG.error(CanvasGlHelper.getProgramInfoLog(programID));
+                isErrored = true;
+                return;
+            }
+            
+            if (binaryKey != null) {
+                ProgramBinaryCache.save(programID, binaryKey);
+                binaryKey = null;
+            }
+        } catch (Exception e) {
+            GLX.glDeleteProgram(programID);
+            CanvasMod.LOG.error(I18n.translate("error.canvas.program_link_failure"), e);
+            this.progID = -1;
+            isErrored = true;
+            return;
+        }
+        
+        loadUniforms();
+    }
+    
+    private final void loadUniforms() {
+        final int limit = uniforms.size();
+        for (int i = 0; i < limit; i++)
+            uniforms.get(i).load(progID);
+        
+        // frame-global values are in the shared block and have no location here - 
+        // don't mark them every tick only to skip the upload
+        renderTickUpdates.removeIf(u -> u.unifID == -1);
+        gameTickUpdates.removeIf(u -> u.unifID == -1);
+        
+        if (FrameUniformBuffer.isEnabled())
+            FrameUniformBuffer.bindProgram(progID);
+    }
 
     public final void onRenderTick() {
         final int limit = renderTickUpdates.size();
@@ -619,7 +708,7 @@ public class GlProgram {
     public boolean containsUniformSpec(String type, String name) {
         String regex = "(?m)^\\s*uniform\\s+" + type + "\\s+" + name + "\\s*;";
         Pattern pattern = Pattern.compile(regex);
-        return pattern.matcher(this.vertexShader.getSource()).find()
-                || pattern.matcher(this.fragmentShader.getSource()).find();
+        return pattern.matcher(this.vertexShader.source()).find()
+                || pattern.matcher(this.fragmentShader.source()).find();
     }
 }
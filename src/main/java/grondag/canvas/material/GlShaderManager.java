@@ -16,16 +16,25 @@
 
 package grondag.canvas.material;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import net.minecraft.util.Identifier;
 
 public final class GlShaderManager {
     public final static GlShaderManager INSTANCE = new GlShaderManager();
-    private Object2ObjectOpenHashMap<String, GlVertexShader> vertexShaders = new Object2ObjectOpenHashMap<>();
-    private Object2ObjectOpenHashMap<String, GlFragmentShader> fragmentShaders = new Object2ObjectOpenHashMap<>();
+    private Long2ObjectOpenHashMap<GlVertexShader> vertexShaders = new Long2ObjectOpenHashMap<>();
+    private Long2ObjectOpenHashMap<GlFragmentShader> fragmentShaders = new Long2ObjectOpenHashMap<>();
 
-    String vertexLibrarySource;
-    String fragmentLibrarySource;
+    /** Assigns a stable integer id to each shader source identifier for variant keys */
+    private final Object2IntOpenHashMap<Identifier> sourceIds = new Object2IntOpenHashMap<>();
+    
+    /** Parsed shader sources, memoized until next reload */
+    private final Object2ObjectOpenHashMap<Identifier, GlslPreprocessor.Parsed> parsedSources = new Object2ObjectOpenHashMap<>();
+    
+    private GlslPreprocessor.Parsed vertexLibrary;
+    private GlslPreprocessor.Parsed fragmentLibrary;
+    private String[] globalDefines;
 
     public static final Identifier DEFAULT_VERTEX_SOURCE = new Identifier("canvas", "shaders/default.vert");
     public static final Identifier DEFAULT_FRAGMENT_SOURCE = new Identifier("canvas", "shaders/default.frag");
@@ -38,18 +47,56 @@ public final class GlShaderManager {
     public static final Identifier COMMON_VERTEX_SOURCE = new Identifier("canvas", "shaders/vertex_lib.glsl");
     public static final Identifier COMMON_FRAGMENT_SOURCE = new Identifier("canvas", "shaders/fragment_lib.glsl");
     
-    private void loadLibrarySources() {
-        String commonSource = AbstractGlShader.getShaderSource(COMMON_SOURCE);
-        this.vertexLibrarySource = commonSource + AbstractGlShader.getShaderSource(COMMON_VERTEX_SOURCE);
-        this.fragmentLibrarySource = commonSource + AbstractGlShader.getShaderSource(COMMON_FRAGMENT_SOURCE);
+    private synchronized void loadLibrarySources() {
+        final String commonSource = AbstractGlShader.getShaderSource(COMMON_SOURCE);
+        vertexLibrary = GlslPreprocessor.parse(commonSource + AbstractGlShader.getShaderSource(COMMON_VERTEX_SOURCE));
+        fragmentLibrary = GlslPreprocessor.parse(commonSource + AbstractGlShader.getShaderSource(COMMON_FRAGMENT_SOURCE));
+        globalDefines = GlslPreprocessor.globalDefines();
+        parsedSources.clear();
+    }
+    
+    private void ensureLibrarySources() {
+        if(globalDefines == null) {
+            loadLibrarySources();
+        }
+    }
+    
+    synchronized String buildSource(Identifier shaderSource, boolean isVertex, int shaderProps, ShaderContext context) {
+        ensureLibrarySources();
+        GlslPreprocessor.Parsed parsed = parsedSources.get(shaderSource);
+        if(parsed == null) {
+            parsed = GlslPreprocessor.parse(AbstractGlShader.getShaderSource(shaderSource));
+            parsedSources.put(shaderSource, parsed);
+        }
+        return GlslPreprocessor.build(isVertex ? vertexLibrary : fragmentLibrary, parsed, GlslPreprocessor.variantDefines(globalDefines, shaderProps, context));
     }
 
-    public static String shaderKey(Identifier shaderSource, int spriteDepth, ShaderContext context) {
-        return String.format("%s.%s.%s", shaderSource.toString(), spriteDepth, context.ordinal());
+    /** Bits of variant key that hold the context ordinal */
+    private static final int CONTEXT_BITS = 8;
+    
+    static {
+        if(ShaderContext.values().length > (1 << CONTEXT_BITS)) {
+            throw new IllegalStateException("Too many shader contexts for shader variant key");
+        }
+    }
+    
+    /**
+     * Variant key: source id in high 24 bits, then all 32 bits of shader props, then context ordinal.
+     */
+    public long shaderKey(Identifier shaderSource, int shaderProps, ShaderContext context) {
+        int sourceId;
+        synchronized(sourceIds) {
+            sourceId = sourceIds.getInt(shaderSource);
+            if(sourceId == 0) {
+                sourceId = sourceIds.size() + 1;
+                sourceIds.put(shaderSource, sourceId);
+            }
+        }
+        return ((long) sourceId << (32 + CONTEXT_BITS)) | ((shaderProps & 0xFFFFFFFFL) << CONTEXT_BITS) | context.ordinal();
     }
 
     public GlVertexShader getOrCreateVertexShader(Identifier shaderSource, int shaderProps, ShaderContext context) {
-        final String shaderKey = shaderKey(shaderSource, shaderProps, context);
+        final long shaderKey = shaderKey(shaderSource, shaderProps, context);
 
         synchronized (vertexShaders) {
             GlVertexShader result = vertexShaders.get(shaderKey);
@@ -62,7 +109,7 @@ public final class GlShaderManager {
     }
 
     public GlFragmentShader getOrCreateFragmentShader(Identifier shaderSourceId, int shaderProps, ShaderContext context) {
-        final String shaderKey = shaderKey(shaderSourceId, shaderProps, context);
+        final long shaderKey = shaderKey(shaderSourceId, shaderProps, context);
 
         synchronized (fragmentShaders) {
             GlFragmentShader result = fragmentShaders.get(shaderKey);
@@ -27,6 +27,6 @@ public final class GlVertexShader extends AbstractGlShader {
 
     @Override
     public String getSource() {
-        return buildSource(GlShaderManager.INSTANCE.vertexLibrarySource);
+        return buildSource(true);
     }
 }
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+
+package grondag.canvas.material;
+
+import java.util.ArrayList;
+
+import grondag.canvas.Configurator;
+import grondag.canvas.varia.CanvasGlHelper;
+
+/**
+ * Minimal line-oriented GLSL preprocessor for shader variant generation.<p>
+ * 
+ * Sources are tokenized once into lines, with each {@code #define} of a variant-controlled
+ * name recorded as a numbered slot. Building a variant is then a single pass that emits
+ * original lines and substitutes slot values - no regular expressions or string searches.
+ */
+final class GlslPreprocessor {
+    private GlslPreprocessor() {}
+    
+    static final int CUTOUT = 0;
+    static final int LAYER_COUNT = 1;
+    static final int CONTEXT = 2;
+    static final int CONTEXT_IS_BLOCK = 3;
+    static final int HARDCORE_DARKNESS = 4;
+    static final int SUBTLE_FOG = 5;
+    static final int ENABLE_SMOOTH_LIGHT = 6;
+    static final int ENABLE_LIGHT_NOISE = 7;
+    static final int AO_SHADING_MODE = 8;
+    static final int DIFFUSE_SHADING_MODE = 9;
+    static final int USE_FLAT_VARYING = 10;
+    static final int WHITE_0 = 11;
+    static final int USE_FRAME_UBO = 12;
+    
+    private static final String[] SLOT_NAMES = {
+            "CUTOUT",
+            "LAYER_COUNT",
+            "CONTEXT",
+            "CONTEXT_IS_BLOCK",
+            "HARDCORE_DARKNESS",
+            "SUBTLE_FOG",
+            "ENABLE_SMOOTH_LIGHT",
+            "ENABLE_LIGHT_NOISE",
+            "AO_SHADING_MODE",
+            "DIFFUSE_SHADING_MODE",
+            "USE_FLAT_VARYING",
+            "WHITE_0",
+            "USE_FRAME_UBO"
+    };
+    
+    static final int SLOT_COUNT = SLOT_NAMES.length;
+    
+    /** Line kinds - non-negative values are define slots */
+    private static final int LINE_TEXT = -1;
+    private static final int LINE_VERSION = -2;
+    private static final int LINE_EXT_GPU_SHADER4 = -3;
+    private static final int LINE_EXT_UBO = -4;
+    
+    private static final String EXT_GPU_SHADER4 = "GL_EXT_gpu_shader4";
+    private static final String EXT_UBO = "GL_ARB_uniform_buffer_object";
+    
+    /**
+     * Tokenized source. Immutable once parsed and safe to share across variants.
+     */
+    static final class Parsed {
+        private final String[] lines;
+        private final int[] kinds;
+        /** for sizing output buffers */
+        private final int length;
+        
+        private Parsed(String[] lines, int[] kinds, int length) {
+            this.lines = lines;
+            this.kinds = kinds;
+            this.length = length;
+        }
+    }
+    
+    static Parsed parse(String source) {
+        final ArrayList<String> lines = new ArrayList<>();
+        final int len = source.length();
+        int start = 0;
+        
+        while(start < len) {
+            int end = source.indexOf('\n', start);
+            if(end == -1) {
+                end = len;
+            }
+            lines.add(source.substring(start, end));
+            start = end + 1;
+        }
+        
+        final int count = lines.size();
+        final String[] lineArray = lines.toArray(new String[count]);
+        final int[] kinds = new int[count];
+        
+        for(int i = 0; i < count; i++) {
+            kinds[i] = classify(lineArray[i]);
+        }
+        
+        return new Parsed(lineArray, kinds, len);
+    }
+    
+    private static int classify(String line) {
+        final int len = line.length();
+        int i = skipSpace(line, 0, len);
+        
+        if(i == len || line.charAt(i) != '#') {
+            return LINE_TEXT;
+        }
+        
+        i = skipSpace(line, i + 1, len);
+        int tokenEnd = skipToken(line, i, len);
+        final String directive = line.substring(i, tokenEnd);
+        
+        i = skipSpace(line, tokenEnd, len);
+        tokenEnd = skipToken(line, i, len);
+        final String name = line.substring(i, tokenEnd);
+        
+        switch(directive) {
+        case "version":
+            return LINE_VERSION;
+        case "extension":
+            return name.equals(EXT_GPU_SHADER4) ? LINE_EXT_GPU_SHADER4 
+                    : name.equals(EXT_UBO) ? LINE_EXT_UBO : LINE_TEXT;
+        case "define":
+            for(int s = 0; s < SLOT_COUNT; s++) {
+                if(SLOT_NAMES[s].equals(name)) {
+                    return s;
+                }
+            }
+            return LINE_TEXT;
+        default:
+            return LINE_TEXT;
+        }
+    }
+    
+    private static int skipSpace(String line, int i, int len) {
+        while(i < len && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+    
+    private static int skipToken(String line, int i, int len) {
+        while(i < len && !Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+    
+    /**
+     * Define values that depend only on configuration. Captured once per reload
+     * and then copied into each variant's define array.
+     */
+    static String[] globalDefines() {
+        final String[] result = new String[SLOT_COUNT];
+        result[AO_SHADING_MODE] = "AO_MODE_" + Configurator.aoShadingMode.name();
+        result[DIFFUSE_SHADING_MODE] = "DIFFUSE_MODE_" + Configurator.diffuseShadingMode.name();
+        result[USE_FLAT_VARYING] = bool(CanvasGlHelper.useGpuShader4());
+        result[ENABLE_LIGHT_NOISE] = bool(Configurator.lightmapNoise && Configurator.hdLightmaps);
+        result[USE_FRAME_UBO] = bool(FrameUniformBuffer.isEnabled());
+        return result;
+    }
+    
+    /**
+     * Fills variant-dependent define values for the given shader props and context.
+     */
+    static String[] variantDefines(String[] globals, int shaderProps, ShaderContext context) {
+        final String[] result = globals.clone();
+        final boolean notGui = context != ShaderContext.ITEM_GUI;
+        result[CUTOUT] = bool(ShaderProps.cutout(shaderProps));
+        result[LAYER_COUNT] = Integer.toString(ShaderProps.spriteDepth(shaderProps));
+        result[CONTEXT] = Integer.toString(context.ordinal());
+        result[CONTEXT_IS_BLOCK] = bool(context.isBlock);
+        result[HARDCORE_DARKNESS] = bool(Configurator.hardcoreDarkness && notGui);
+        result[SUBTLE_FOG] = bool(Configurator.subtleFog && notGui);
+        result[ENABLE_SMOOTH_LIGHT] = bool(Configurator.hdLightmaps && (shaderProps & ShaderProps.SMOOTH_LIGHTMAPS) != 0);
+        result[WHITE_0] = bool((shaderProps & ShaderProps.WHITE_0) != 0);
+        return result;
+    }
+    
+    private static String bool(boolean value) {
+        return value ? "TRUE" : "FALSE";
+    }
+    
+    /**
+     * Emits library followed by shader source with define slots substituted.
+     * The shader's own version directive is dropped because the library supplies it.
+     */
+    static String build(Parsed library, Parsed shader, String[] defines) {
+        final StringBuilder sb = new StringBuilder(library.length + shader.length + 256);
+        final boolean keepGpuShader4 = CanvasGlHelper.useGpuShader4();
+        final boolean keepUbo = FrameUniformBuffer.isEnabled();
+        emit(sb, library, defines, true, keepGpuShader4, keepUbo);
+        emit(sb, shader, defines, false, keepGpuShader4, keepUbo);
+        return sb.toString();
+    }
+    
+    private static void emit(StringBuilder sb, Parsed source, String[] defines, boolean keepVersion, boolean keepGpuShader4, boolean keepUbo) {
+        final String[] lines = source.lines;
+        final int[] kinds = source.kinds;
+        final int count = lines.length;
+        
+        for(int i = 0; i < count; i++) {
+            final int kind = kinds[i];
+            
+            if(kind >= 0) {
+                final String value = defines[kind];
+                if(value == null) {
+                    sb.append(lines[i]);
+                } else {
+                    sb.append("#define ").append(SLOT_NAMES[kind]).append(' ').append(value);
+                }
+            } else if(kind == LINE_TEXT 
+                    || (kind == LINE_VERSION && keepVersion) 
+                    || (kind == LINE_EXT_GPU_SHADER4 && keepGpuShader4)
+                    || (kind == LINE_EXT_UBO && keepUbo)) {
+                sb.append(lines[i]);
+            }
+            
+            sb.append('\n');
+        }
+    }
+}
@@ -28,7 +28,12 @@ public class MaterialState {
         return (shader.getIndex() << SHADER_SHIFT) | (shaderProps << ShaderProps.BITLENGTH) | condition.index;
     }
     
-    private static final Int2ObjectOpenHashMap<MaterialState> VALUES = new Int2ObjectOpenHashMap<>();
+    /** 
+     * Copy-on-write: never modified once published, so reads are safe without locking.
+     * Replaced while holding {@link #LOCK}.
+     */
+    private static volatile Int2ObjectOpenHashMap<MaterialState> VALUES = new Int2ObjectOpenHashMap<>();
+    private static final Object LOCK = new Object();
     
     public static MaterialState get(int index) {
         return VALUES.get(index);
@@ -38,11 +43,14 @@ public class MaterialState {
         final int index = computeIndex(shader, condition, shaderProps);
         MaterialState result = VALUES.get(index);
         if(result == null) {
-            synchronized(VALUES) {
-                result = VALUES.get(index);
+            synchronized(LOCK) {
+                final Int2ObjectOpenHashMap<MaterialState> oldValues = VALUES;
+                result = oldValues.get(index);
                 if(result == null) {
-                    result = new MaterialState(shader, condition, index, shaderProps);
-                    VALUES.put(index, result);
+                    result = new MaterialState(shader, condition, index, oldValues.size(), shaderProps);
+                    final Int2ObjectOpenHashMap<MaterialState> newValues = new Int2ObjectOpenHashMap<>(oldValues);
+                    newValues.put(index, result);
+                    VALUES = newValues;
                 }
             }
         }
@@ -53,15 +61,21 @@ public class MaterialState {
     public final MaterialShaderImpl shader;
     public final MaterialConditionImpl condition;
     public final int index;
+    /** 
+     * Dense, zero-based and assigned in order of creation. Use for array-based lookups
+     * instead of {@link #index}, which is sparse.
+     */
+    public final int ordinal;
     public final long sortIndex;
     //UGLY: encapsulate
     public final int shaderProps;
     public final MaterialVertexFormat format;
     
-    private MaterialState(MaterialShaderImpl shader, MaterialConditionImpl condition, int index, int shaderProps) {
+    private MaterialState(MaterialShaderImpl shader, MaterialConditionImpl condition, int index, int ordinal, int shaderProps) {
         this.shader = shader;
         this.condition = condition;
         this.index = index;
+        this.ordinal = ordinal;
         this.shaderProps = shaderProps;
         assert ShaderProps.spriteDepth(shaderProps) > 0;
         this.format = MaterialVertexFormats.fromShaderProps(shaderProps);
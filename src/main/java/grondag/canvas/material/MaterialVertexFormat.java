@@ -38,8 +38,14 @@ public class MaterialVertexFormat {
 
     public final int index;
     
+    /** {@link MaterialVertexFormats#generation()} when created - older formats have been replaced by a reload */
+    public final int generation;
+    
+    private final QuadEncoder encoder;
+    
     public MaterialVertexFormat(int index, Collection<MaterialVertextFormatElement> elementsIn) {
         this.index = index;
+        this.generation = MaterialVertexFormats.generation();
         elements = new MaterialVertextFormatElement[elementsIn.size()];
         elementsIn.toArray(elements);
         
@@ -52,9 +58,45 @@ public class MaterialVertexFormat {
         }
         this.attributeCount = count;
         this.vertexStrideBytes = bytes;
+        
+        final int spriteDepth = elementsIn.contains(MaterialVertextFormatElement.TERTIARY_TEX_2F) ? 3
+                : elementsIn.contains(MaterialVertextFormatElement.SECONDARY_TEX_2F) ? 2 : 1;
+        
+        this.encoder = new QuadEncoder(
+                elementsIn.contains(MaterialVertextFormatElement.BASE_RGBA_4UB), 
+                elementsIn.contains(MaterialVertextFormatElement.HD_BLOCK_LIGHTMAP_2US), 
+                spriteDepth, 
+                bytes / 4);
     }
 
     public void encode(QuadViewImpl q, VertexEncodingContext context, VertexCollector output) {
+        encoder.encode(q, context, output);
+    }
+    
+    /** Ints needed to encode one quad in this format */
+    public int quadIntStride() {
+        return encoder.quadIntStride();
+    }
+    
+    /** 
+     * Encodes attributes that do not depend on location or lighting (texture coordinates, normals)
+     * for the quad at the given position of a mesh template. Template must hold at least
+     * (quadIndex + 1) * {@link #quadIntStride()} ints.
+     */
+    public void encodeTemplate(QuadViewImpl q, int[] template, int quadIndex) {
+        encoder.encodeTemplate(q, template, quadIndex * encoder.quadIntStride());
+    }
+    
+    public void encodeFromTemplate(int[] template, int quadIndex, QuadViewImpl q, VertexEncodingContext context, VertexCollector output) {
+        encoder.encodeFromTemplate(template, quadIndex * encoder.quadIntStride(), q, context, output);
+    }
+    
+    /**
+     * Encodes one attribute at a time through the format elements. Output is identical to 
+     * {@link #encode(QuadViewImpl, VertexEncodingContext, VertexCollector)} and it is retained 
+     * as a reference implementation for validation and benchmarks.
+     */
+    public void encodeGeneric(QuadViewImpl q, VertexEncodingContext context, VertexCollector output) {
         final MaterialVertextFormatElement[] elements = this.elements;
         for(int i = 0; i < 4; i++) {
             for(MaterialVertextFormatElement e : elements) {
@@ -134,6 +176,20 @@ public class MaterialVertexFormat {
         }
     }
 
+    /**
+     * Attribute names in binding order. Part of the program binary cache key
+     * because attribute locations are baked into the binary.
+     */
+    public String attributeNames() {
+        final StringBuilder sb = new StringBuilder();
+        for (MaterialVertextFormatElement e : elements) {
+            if (e.attributeName != null) {
+                sb.append(e.attributeName).append(';');
+            }
+        }
+        return sb.toString();
+    }
+    
     /**
      * Used by shader to bind attribute names.
      */
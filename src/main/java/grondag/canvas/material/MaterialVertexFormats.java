@@ -19,6 +19,9 @@ import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 public final class MaterialVertexFormats {
     private static final Int2ObjectOpenHashMap<MaterialVertexFormat> MAP = new Int2ObjectOpenHashMap<>();
     private static final ObjectArrayList<MaterialVertexFormat> LIST = new ObjectArrayList<>();
+    
+    /** Incremented on reload - formats from older generations are no longer handed out */
+    private static volatile int generation = 0;
 
     // Note that all logic for what is in or out is in ShaderProps
     // so that if compact is disabled we'll never see those options here
@@ -43,10 +46,15 @@ public final class MaterialVertexFormats {
         return LIST.get(index);
     }
     
+    public static int generation() {
+        return generation;
+    }
+    
     public static void forceReload() {
         synchronized(MAP) {
             MAP.clear();
             LIST.clear();
+            generation++;
         }
     }
     
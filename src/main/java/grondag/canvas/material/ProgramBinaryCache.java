@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+
+package grondag.canvas.material;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL41;
+
+import com.mojang.blaze3d.platform.GLX;
+
+import grondag.canvas.CanvasMod;
+import grondag.canvas.varia.CanvasGlHelper;
+import net.fabricmc.loader.api.FabricLoader;
+
+/**
+ * Stores linked program binaries under the game directory so later launches and
+ * resource reloads can skip shader compilation and linking.<p>
+ * 
+ * Entries are keyed by a digest of the driver identification, the preprocessed
+ * vertex and fragment source, shader props and attribute bindings. Anything the
+ * driver rejects is deleted and the program is linked from source as usual.
+ */
+final class ProgramBinaryCache {
+    private ProgramBinaryCache() {}
+    
+    private static final int MAGIC = 0x43425042; // CBPB
+    
+    private static final int GL_PROGRAM_BINARY_LENGTH = GL41.GL_PROGRAM_BINARY_LENGTH;
+    
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    private static File cacheDir() {
+        return new File(FabricLoader.getInstance().getGameDirectory(), "canvas_shader_cache");
+    }
+    
+    static String key(GlProgram program) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            update(digest, GLX.getVendor());
+            update(digest, GLX.getRenderer());
+            update(digest, GLX.getOpenGLVersion());
+            update(digest, Integer.toString(program.shaderProps));
+            update(digest, program.pipelineVertexFormat.attributeNames());
+            update(digest, program.vertexShader.source());
+            update(digest, program.fragmentShader.source());
+            
+            final byte[] hash = digest.digest();
+            final char[] chars = new char[hash.length * 2];
+            for(int i = 0; i < hash.length; i++) {
+                chars[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+                chars[i * 2 + 1] = HEX[hash[i] & 0xF];
+            }
+            return new String(chars);
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+    
+    private static void update(MessageDigest digest, String value) {
+        if(value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        // separator so adjacent values can't alias
+        digest.update((byte) 0);
+    }
+    
+    private static File file(String key) {
+        return new File(cacheDir(), key + ".bin");
+    }
+    
+    /**
+     * Returns true if a cached binary was found and the driver accepted it.
+     * Program will be linked and ready for use in that case.
+     */
+    static boolean load(int programId, String key) {
+        final File file = file(key);
+        if(!file.exists()) {
+            return false;
+        }
+        
+        final int format;
+        final ByteBuffer binary;
+        
+        try(DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if(in.readInt() != MAGIC) {
+                file.delete();
+                return false;
+            }
+            
+            format = in.readInt();
+            final int length = in.readInt();
+            if(length <= 0 || length != file.length() - 12) {
+                file.delete();
+                return false;
+            }
+            
+            final byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            binary = BufferUtils.createByteBuffer(length);
+            binary.put(bytes);
+            binary.flip();
+        } catch (IOException e) {
+            file.delete();
+            return false;
+        }
+        
+        CanvasGlHelper.glProgramBinary(programId, format, binary);
+        
+        if(GLX.glGetProgrami(programId, GLX.GL_LINK_STATUS) == GL11.GL_FALSE) {
+            // usually a driver update with same identification strings - stale entry
+            file.delete();
+            return false;
+        }
+        
+        return true;
+    }
+    
+    static void save(int programId, String key) {
+        final int length = GLX.glGetProgrami(programId, GL_PROGRAM_BINARY_LENGTH);
+        if(length <= 0) {
+            return;
+        }
+        
+        final ByteBuffer binary = BufferUtils.createByteBuffer(length);
+        final int[] written = new int[1];
+        final int[] format = new int[1];
+        CanvasGlHelper.glGetProgramBinary(programId, written, format, binary);
+        
+        final int size = written[0];
+        if(size <= 0) {
+            return;
+        }
+        
+        final File dir = cacheDir();
+        if(!dir.exists() && !dir.mkdir()) {
+            return;
+        }
+        
+        final byte[] bytes = new byte[size];
+        binary.get(bytes, 0, size);
+        
+        // write then rename so a crash can't leave a truncated entry under the real name
+        final File target = file(key);
+        final File temp = new File(dir, key + ".tmp");
+        try(DataOutputStream out = new DataOutputStream(new FileOutputStream(temp))) {
+            out.writeInt(MAGIC);
+            out.writeInt(format[0]);
+            out.writeInt(size);
+            out.write(bytes);
+        } catch (IOException e) {
+            CanvasMod.LOG.debug("Unable to save shader program binary", e);
+            temp.delete();
+            return;
+        }
+        
+        target.delete();
+        if(!temp.renameTo(target)) {
+            temp.delete();
+        }
+    }
+}
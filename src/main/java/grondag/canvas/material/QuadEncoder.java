@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+
+package grondag.canvas.material;
+
+import grondag.canvas.apiimpl.QuadViewImpl;
+import grondag.canvas.apiimpl.rendercontext.ItemRenderContext;
+import grondag.canvas.apiimpl.util.ColorHelper;
+import grondag.canvas.buffer.packing.VertexCollector;
+import grondag.canvas.light.LightmapHd;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Hand-unrolled equivalent of the per-element {@link VertexAttributeEncoder} loop
+ * in {@link MaterialVertexFormat#encodeGeneric(QuadViewImpl, VertexEncodingContext, VertexCollector)}.<p>
+ * 
+ * Every format uses this one final class, with the optional elements selected by
+ * final fields. That keeps the call site monomorphic and inlinable. Each quad is
+ * written with a single capacity check directly into the collector array.<p>
+ * 
+ * Output must match the element encoders exactly. Element order is fixed by
+ * {@link MaterialVertexFormats}: position, [color 0], uv 0, lightmap, [hd block, hd sky, hd ao],
+ * normal/ao, [color 1, uv 1, [color 2, uv 2]].
+ */
+final class QuadEncoder {
+    private final boolean hasColor0;
+    private final boolean hasHdLightmaps;
+    private final int spriteDepth;
+    private final int quadIntStride;
+    
+    QuadEncoder(boolean hasColor0, boolean hasHdLightmaps, int spriteDepth, int vertexIntStride) {
+        this.hasColor0 = hasColor0;
+        this.hasHdLightmaps = hasHdLightmaps;
+        this.spriteDepth = spriteDepth;
+        this.quadIntStride = vertexIntStride * 4;
+        
+        assert vertexIntStride == 3 + (hasColor0 ? 1 : 0) + 2 + 1 + (hasHdLightmaps ? 3 : 0) + 1 + (spriteDepth - 1) * 3;
+    }
+    
+    void encode(QuadViewImpl q, VertexEncodingContext c, VertexCollector output) {
+        int k = output.allocate(quadIntStride);
+        final int[] data = output.rawData();
+        
+        final BlockPos pos = c.pos;
+        final boolean hasPos = pos != null;
+        final double xOrigin = hasPos ? pos.getX() - output.renderOriginX() : 0;
+        final double yOrigin = hasPos ? pos.getY() - output.renderOriginY() : 0;
+        final double zOrigin = hasPos ? pos.getZ() - output.renderOriginZ() : 0;
+        
+        final boolean isItemWorld = c.context == ShaderContext.ITEM_WORLD;
+        final int itemLight = isItemWorld ? ItemRenderContext.playerLightmap() : 0;
+        final int shaderFlags = c.shaderFlags << 16;
+        
+        final boolean isItem = c.context.isItem;
+        final float[] aoData = c.aoData;
+        
+        final int matDepth = c.mat.spriteDepth();
+        
+        final LightmapHd blockLight = q.blockLight;
+        final LightmapHd skyLight = q.skyLight;
+        final LightmapHd aoShade = q.aoShade;
+        
+        for(int i = 0; i < 4; i++) {
+            if(hasPos) {
+                data[k++] = Float.floatToRawIntBits((float)(xOrigin + q.x(i)));
+                data[k++] = Float.floatToRawIntBits((float)(yOrigin + q.y(i)));
+                data[k++] = Float.floatToRawIntBits((float)(zOrigin + q.z(i)));
+            } else {
+                data[k++] = Float.floatToRawIntBits(q.x(i));
+                data[k++] = Float.floatToRawIntBits(q.y(i));
+                data[k++] = Float.floatToRawIntBits(q.z(i));
+            }
+            
+            if(hasColor0) {
+                data[k++] = q.spriteColor(i, 0);
+            }
+            
+            data[k++] = Float.floatToRawIntBits(q.spriteU(i, 0));
+            data[k++] = Float.floatToRawIntBits(q.spriteV(i, 0));
+            
+            int packedLight = q.lightmap(i);
+            if(isItemWorld) {
+                packedLight = ColorHelper.maxBrightness(packedLight, itemLight);
+            }
+            data[k++] = (packedLight & 0xFF) | (((packedLight >> 16) & 0xFF) << 8) | shaderFlags;
+            
+            if(hasHdLightmaps) {
+                data[k++] = blockLight == null ? 0 : blockLight.coord(q, i);
+                data[k++] = skyLight == null ? 0 : skyLight.coord(q, i);
+                data[k++] = aoShade == null ? 0 : aoShade.coord(q, i);
+            }
+            
+            if(isItem) {
+                data[k++] = q.packedNormal(i) | 0x7F000000;
+            } else {
+                final int ao = aoData == null ? 0xFF000000 : ((Math.round(aoData[i] * 254) - 127) << 24);
+                data[k++] = q.packedNormal(i) | ao;
+            }
+            
+            if(spriteDepth > 1) {
+                if(matDepth > 1) {
+                    data[k++] = q.spriteColor(i, 1);
+                    data[k++] = Float.floatToRawIntBits(q.spriteU(i, 1));
+                    data[k++] = Float.floatToRawIntBits(q.spriteV(i, 1));
+                } else {
+                    data[k++] = -1;
+                    data[k++] = 0;
+                    data[k++] = 0;
+                }
+                
+                if(spriteDepth > 2) {
+                    if(matDepth > 2) {
+                        data[k++] = q.spriteColor(i, 2);
+                        data[k++] = Float.floatToRawIntBits(q.spriteU(i, 2));
+                        data[k++] = Float.floatToRawIntBits(q.spriteV(i, 2));
+                    } else {
+                        data[k++] = -1;
+                        data[k++] = 0;
+                        data[k++] = 0;
+                    }
+                }
+            }
+        }
+    }
+    
+    int quadIntStride() {
+        return quadIntStride;
+    }
+    
+    /**
+     * Writes the parts of a quad that do not depend on location, block color or lighting:
+     * texture coordinates and normals. Other values are placeholders that
+     * {@link #encodeFromTemplate(int[], int, QuadViewImpl, VertexEncodingContext, VertexCollector)}
+     * will overwrite.
+     */
+    void encodeTemplate(QuadViewImpl q, int[] target, int k) {
+        final int matDepth = q.material().spriteDepth();
+        
+        for(int i = 0; i < 4; i++) {
+            // position
+            k += 3;
+            
+            if(hasColor0) {
+                k++;
+            }
+            
+            target[k++] = Float.floatToRawIntBits(q.spriteU(i, 0));
+            target[k++] = Float.floatToRawIntBits(q.spriteV(i, 0));
+            
+            // lightmap
+            k++;
+            
+            if(hasHdLightmaps) {
+                k += 3;
+            }
+            
+            target[k++] = q.packedNormal(i);
+            
+            if(spriteDepth > 1) {
+                if(matDepth > 1) {
+                    k++;
+                    target[k++] = Float.floatToRawIntBits(q.spriteU(i, 1));
+                    target[k++] = Float.floatToRawIntBits(q.spriteV(i, 1));
+                } else {
+                    target[k++] = -1;
+                    target[k++] = 0;
+                    target[k++] = 0;
+                }
+                
+                if(spriteDepth > 2) {
+                    if(matDepth > 2) {
+                        k++;
+                        target[k++] = Float.floatToRawIntBits(q.spriteU(i, 2));
+                        target[k++] = Float.floatToRawIntBits(q.spriteV(i, 2));
+                    } else {
+                        target[k++] = -1;
+                        target[k++] = 0;
+                        target[k++] = 0;
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Same output as {@link #encode(QuadViewImpl, VertexEncodingContext, VertexCollector)} but
+     * copies texture coordinates and normals from a template made by {@link #encodeTemplate(QuadViewImpl, int[], int)}.
+     * Only position, colors and lighting are read from the quad.
+     */
+    void encodeFromTemplate(int[] template, int templateIndex, QuadViewImpl q, VertexEncodingContext c, VertexCollector output) {
+        int k = output.allocate(quadIntStride);
+        final int[] data = output.rawData();
+        System.arraycopy(template, templateIndex, data, k, quadIntStride);
+        
+        final BlockPos pos = c.pos;
+        final boolean hasPos = pos != null;
+        final double xOrigin = hasPos ? pos.getX() - output.renderOriginX() : 0;
+        final double yOrigin = hasPos ? pos.getY() - output.renderOriginY() : 0;
+        final double zOrigin = hasPos ? pos.getZ() - output.renderOriginZ() : 0;
+        
+        final boolean isItemWorld = c.context == ShaderContext.ITEM_WORLD;
+        final int itemLight = isItemWorld ? ItemRenderContext.playerLightmap() : 0;
+        final int shaderFlags = c.shaderFlags << 16;
+        
+        final boolean isItem = c.context.isItem;
+        final float[] aoData = c.aoData;
+        
+        final int matDepth = c.mat.spriteDepth();
+        
+        final LightmapHd blockLight = q.blockLight;
+        final LightmapHd skyLight = q.skyLight;
+        final LightmapHd aoShade = q.aoShade;
+        
+        for(int i = 0; i < 4; i++) {
+            if(hasPos) {
+                data[k++] = Float.floatToRawIntBits((float)(xOrigin + q.x(i)));
+                data[k++] = Float.floatToRawIntBits((float)(yOrigin + q.y(i)));
+                data[k++] = Float.floatToRawIntBits((float)(zOrigin + q.z(i)));
+            } else {
+                data[k++] = Float.floatToRawIntBits(q.x(i));
+                data[k++] = Float.floatToRawIntBits(q.y(i));
+                data[k++] = Float.floatToRawIntBits(q.z(i));
+            }
+            
+            if(hasColor0) {
+                data[k++] = q.spriteColor(i, 0);
+            }
+            
+            // uv from template
+            k += 2;
+            
+            int packedLight = q.lightmap(i);
+            if(isItemWorld) {
+                packedLight = ColorHelper.maxBrightness(packedLight, itemLight);
+            }
+            data[k++] = (packedLight & 0xFF) | (((packedLight >> 16) & 0xFF) << 8) | shaderFlags;
+            
+            if(hasHdLightmaps) {
+                data[k++] = blockLight == null ? 0 : blockLight.coord(q, i);
+                data[k++] = skyLight == null ? 0 : skyLight.coord(q, i);
+                data[k++] = aoShade == null ? 0 : aoShade.coord(q, i);
+            }
+            
+            // normal from template
+            if(isItem) {
+                data[k++] |= 0x7F000000;
+            } else {
+                data[k++] |= aoData == null ? 0xFF000000 : ((Math.round(aoData[i] * 254) - 127) << 24);
+            }
+            
+            if(spriteDepth > 1) {
+                // uv and defaults from template
+                if(matDepth > 1) {
+                    data[k] = q.spriteColor(i, 1);
+                }
+                k += 3;
+                
+                if(spriteDepth > 2) {
+                    if(matDepth > 2) {
+                        data[k] = q.spriteColor(i, 2);
+                    }
+                    k += 3;
+                }
+            }
+        }
+    }
+}
@@ -25,7 +25,10 @@ import grondag.canvas.light.AoVertexClampFunction;
 import grondag.canvas.light.LightmapHd;
 import grondag.canvas.light.LightmapHdTexture;
 import grondag.canvas.varia.DitherTexture;
+import grondag.canvas.varia.FogStateExt;
 import grondag.canvas.varia.FogStateExtHolder;
+import grondag.canvas.varia.GlStateTracker;
+import grondag.canvas.varia.RenderMetrics;
 import grondag.canvas.varia.WorldDataManager;
 import grondag.fermion.sc.unordered.SimpleUnorderedArrayList;
 import grondag.frex.api.material.UniformRefreshFrequency;
@@ -112,6 +115,10 @@ public final class ShaderManager implements ClientTickCallback {
         for (int i = 0; i < limit; i++) {
             this.shaders.get(i).forceReload();
         }
+        ShaderWarmup.forceReload();
+        
+        // programs may be used before first frame - GUI at title screen
+        uploadFrameData();
     }
 
     public final synchronized MaterialShaderImpl create(Identifier vertexShaderSource, Identifier fragmentShaderSource) {
@@ -136,6 +143,20 @@ public final class ShaderManager implements ClientTickCallback {
         return shaders.get(index);
     }
 
+    /**
+     * Shader with the given sources, or null if none registered.
+     */
+    public final synchronized MaterialShaderImpl find(Identifier vertexShaderSource, Identifier fragmentShaderSource) {
+        final int limit = shaders.size();
+        for (int i = 0; i < limit; i++) {
+            final MaterialShaderImpl shader = shaders.get(i);
+            if(shader.vertexSource().equals(vertexShaderSource) && shader.fragmentSource().equals(fragmentShaderSource)) {
+                return shader;
+            }
+        }
+        return null;
+    }
+    
     public final MaterialShaderImpl getDefault() {
         return defaultShader;
     }
@@ -224,16 +245,34 @@ public final class ShaderManager implements ClientTickCallback {
         
         //UGLY: need central tick handler
         DitherTexture.instance().tick();
+        
+        if((tickIndex & 0xFF) == 0) {
+            ShaderWarmup.save();
+        }
     }
     
     public void onRenderTick() {
         frameIndex++;
+        GlStateTracker.onRenderTick();
+        RenderMetrics.onRenderTick();
+        uploadFrameData();
+        ShaderWarmup.onRenderTick();
         final int limit = shaders.size();
         for (int i = 0; i < limit; i++) {
             shaders.get(i).onRenderTick();
         }
     }
 
+    private void uploadFrameData() {
+        if (!FrameUniformBuffer.isEnabled())
+            return;
+        
+        final Entity player = MinecraftClient.getInstance().player;
+        final Vec3d eyePos = player == null ? Vec3d.ZERO : player.getCameraPosVec(fractionalTicks);
+        final FogStateExt fog = FogStateExtHolder.INSTANCE;
+        FrameUniformBuffer.upload(WorldDataManager.uniformData(), emissiveColor, eyePos, renderSeconds, fog == null ? 0 : fog.getMode());
+    }
+    
     public float renderSeconds() {
         return this.renderSeconds;
     }
@@ -68,16 +68,26 @@ public abstract class ShaderProps {
             flags |= SMOOTH_LIGHTMAPS;
         }
         
-        return (material.spriteDepth() << FLAGS_LENGTH) | flags;
+        return props(material.spriteDepth(), flags);
+    }
+    
+    /** Combines sprite depth with any of the flags above */
+    public static int props(int spriteDepth, int flags) {
+        return (spriteDepth << FLAGS_LENGTH) | flags;
     }
     
     public static int spriteDepth(int props) {
-        assert ((props >> FLAGS_LENGTH) & 3) > 0;
+        assert rawSpriteDepth(props) > 0;
+        return rawSpriteDepth(props);
+    }
+    
+    /** Same as {@link #spriteDepth(int)} without the check - zero for props that did not come from {@link #classify} */
+    public static int rawSpriteDepth(int props) {
         return (props >> FLAGS_LENGTH) & 3;
     }
     
     public static int waterProps() {
-        return 1 << FLAGS_LENGTH;
+        return props(1, 0);
     }
     
     public static boolean cutout(int props) {
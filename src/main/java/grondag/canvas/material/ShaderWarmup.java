@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+
+package grondag.canvas.material;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.LinkedHashSet;
+
+import grondag.canvas.CanvasMod;
+import grondag.canvas.apiimpl.MaterialShaderImpl;
+import grondag.canvas.varia.CanvasGlHelper;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.util.Identifier;
+
+/**
+ * Remembers which program variants were used and prepares them ahead of need
+ * in later sessions, so first appearance of a material doesn't hitch.<p>
+ * 
+ * GL work has to happen on the render thread, so variants are started a few
+ * per frame. With parallel compile the driver finishes them off-thread and
+ * {@link MaterialShaderImpl} draws with the default shader until they are ready.
+ */
+public final class ShaderWarmup {
+    private ShaderWarmup() {}
+    
+    /** Programs started per frame when compile is serial. Each one blocks. */
+    private static final int SERIAL_PER_FRAME = 1;
+    
+    /** Programs started per frame when driver compiles in parallel. */
+    private static final int PARALLEL_PER_FRAME = 16;
+    
+    private static final LinkedHashSet<String> VARIANTS = new LinkedHashSet<>();
+    private static final ArrayDeque<String> QUEUE = new ArrayDeque<>();
+    private static boolean isLoaded = false;
+    private static boolean isDirty = false;
+    
+    private static File file() {
+        return new File(new File(FabricLoader.getInstance().getGameDirectory(), "canvas_shader_cache"), "variants.txt");
+    }
+    
+    private static String line(Identifier vertexSource, Identifier fragmentSource, ShaderContext context, int shaderProps) {
+        return vertexSource.toString() + " " + fragmentSource.toString() + " " + context.name() + " " + Integer.toHexString(shaderProps);
+    }
+    
+    /**
+     * Call when a program variant is first created.
+     */
+    public static void record(Identifier vertexSource, Identifier fragmentSource, ShaderContext context, int shaderProps) {
+        synchronized(VARIANTS) {
+            if(VARIANTS.add(line(vertexSource, fragmentSource, context, shaderProps))) {
+                isDirty = true;
+            }
+        }
+    }
+    
+    /**
+     * Call after resource reload. Queues all known variants for preparation.
+     */
+    static void forceReload() {
+        synchronized(VARIANTS) {
+            if(!isLoaded) {
+                isLoaded = true;
+                read();
+            }
+            QUEUE.clear();
+            QUEUE.addAll(VARIANTS);
+        }
+    }
+    
+    private static void read() {
+        final File file = file();
+        if(!file.exists()) {
+            return;
+        }
+        
+        try(BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                if(!line.isEmpty()) {
+                    VARIANTS.add(line);
+                }
+            }
+        } catch (IOException e) {
+            CanvasMod.LOG.debug("Unable to read shader variant list", e);
+        }
+    }
+    
+    /**
+     * Writes variant list if anything new was recorded. Safe to call often.
+     */
+    static void save() {
+        final String[] lines;
+        synchronized(VARIANTS) {
+            if(!isDirty) {
+                return;
+            }
+            isDirty = false;
+            lines = VARIANTS.toArray(new String[VARIANTS.size()]);
+        }
+        
+        final File file = file();
+        final File dir = file.getParentFile();
+        if(!dir.exists() && !dir.mkdir()) {
+            return;
+        }
+        
+        try(FileWriter writer = new FileWriter(file, false)) {
+            for(String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            CanvasMod.LOG.debug("Unable to save shader variant list", e);
+        }
+    }
+    
+    /**
+     * Call once per frame on render thread.
+     */
+    static void onRenderTick() {
+        if(QUEUE.isEmpty()) {
+            return;
+        }
+        
+        int budget = CanvasGlHelper.isParallelShaderCompileEnabled() ? PARALLEL_PER_FRAME : SERIAL_PER_FRAME;
+        
+        synchronized(VARIANTS) {
+            while(budget > 0 && !QUEUE.isEmpty()) {
+                if(prepare(QUEUE.poll())) {
+                    budget--;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Returns true if a program was started. Malformed or unmatched entries are
+     * skipped but retained - the shader may belong to a mod not present this session.
+     */
+    private static boolean prepare(String line) {
+        final String[] tokens = line.split(" ");
+        if(tokens.length != 4) {
+            return false;
+        }
+        
+        try {
+            final MaterialShaderImpl shader = ShaderManager.INSTANCE.find(new Identifier(tokens[0]), new Identifier(tokens[1]));
+            final ShaderContext context = ShaderContext.valueOf(tokens[2]);
+            final int shaderProps = Integer.parseInt(tokens[3], 16);
+            
+            if(shader == null || ShaderProps.rawSpriteDepth(shaderProps) == 0 || (shaderProps >>> ShaderProps.BITLENGTH) != 0) {
+                return false;
+            }
+            
+            return shader.prepare(context, shaderProps);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -18,17 +18,22 @@ package grondag.canvas.mixin;
 
 import org.spongepowered.asm.mixin.Mixin;
 
+import grondag.canvas.apiimpl.QuadShape;
 import grondag.canvas.varia.BakedQuadExt;
 import net.minecraft.client.render.model.BakedQuad;
 
 /**
  * Canvas does shading in GPU, so we need to avoid modifying colors
  * on CPU and also indicate when diffuse should be disabled. This
- * handles the second problem.
+ * handles the second problem.<p>
+ * 
+ * Also holds geometry flags and face normal so they aren't recomputed
+ * every time the quad is rendered.
  */
 @Mixin(BakedQuad.class)
 public abstract class MixinBakedQuad implements BakedQuadExt{
     private boolean disableDiffuse = false;
+    private QuadShape shape = null;
 
     @Override
     public boolean canvas_disableDiffuse() {
@@ -39,4 +44,14 @@ public abstract class MixinBakedQuad implements BakedQuadExt{
     public void canvas_disableDiffuse(boolean disable) {
         disableDiffuse = disable;
     }
+
+    @Override
+    public QuadShape canvas_shape() {
+        return shape;
+    }
+
+    @Override
+    public void canvas_shape(QuadShape shape) {
+        this.shape = shape;
+    }
 }
@@ -43,7 +43,10 @@ import grondag.canvas.chunk.DrawableChunk.Solid;
 import grondag.canvas.chunk.DrawableChunk.Translucent;
 import grondag.canvas.chunk.FastRenderRegion;
 import grondag.canvas.chunk.UploadableChunk;
+import grondag.canvas.chunk.replay.RebuildCapture;
+import grondag.canvas.jfr.CanvasEvents;
 import grondag.canvas.material.ShaderProps;
+import grondag.canvas.varia.RenderMetrics;
 import net.minecraft.block.BlockRenderLayer;
 import net.minecraft.block.BlockRenderType;
 import net.minecraft.block.BlockState;
@@ -129,13 +132,35 @@ public abstract class MixinChunkRenderer implements ChunkRendererExt {
     @Override
     public void canvas_solidUpload() {
         final UploadableChunk.Solid uploadBuffer = uploadSolid.getAndSet(null);
-        solidDrawable = uploadBuffer == null ? null : uploadBuffer.produceDrawable();
+        if (uploadBuffer != null) {
+            RenderMetrics.uploadConsumed();
+        }
+        if (uploadBuffer == null) {
+            solidDrawable = null;
+        } else {
+            final Object event = CanvasEvents.beginProduceDrawable();
+            final int quads = event == null ? 0 : uploadBuffer.quadCount();
+            final int bytes = event == null ? 0 : uploadBuffer.byteCount();
+            solidDrawable = uploadBuffer.produceDrawable();
+            CanvasEvents.endBuffer(event, origin.getX(), origin.getY(), origin.getZ(), quads, bytes);
+        }
     }
 
     @Override
     public void canvas_translucentUpload() {
         final UploadableChunk.Translucent uploadBuffer = uploadTranslucent.getAndSet(null);
-        translucentDrawable = uploadBuffer == null ? null : uploadBuffer.produceDrawable();
+        if (uploadBuffer != null) {
+            RenderMetrics.uploadConsumed();
+        }
+        if (uploadBuffer == null) {
+            translucentDrawable = null;
+        } else {
+            final Object event = CanvasEvents.beginProduceDrawable();
+            final int quads = event == null ? 0 : uploadBuffer.quadCount();
+            final int bytes = event == null ? 0 : uploadBuffer.byteCount();
+            translucentDrawable = uploadBuffer.produceDrawable();
+            CanvasEvents.endBuffer(event, origin.getX(), origin.getY(), origin.getZ(), quads, bytes);
+        }
     }
 
     @Override
@@ -153,7 +178,7 @@ public abstract class MixinChunkRenderer implements ChunkRendererExt {
 
     @Inject(method = "rebuildChunk", at = @At("HEAD"), cancellable = true, require = 1)
     private void onRebuildChunk(final float x, final float y, final float z, final ChunkRenderTask chunkRenderTask, final CallbackInfo ci) {
-        
+        final long start = RenderMetrics.startStage();
         final TerrainRenderContext renderContext = TerrainRenderContext.POOL.get();
         final ChunkRebuildHelper help = renderContext.chunkRebuildHelper;
         help.clear();
@@ -161,6 +186,7 @@ public abstract class MixinChunkRenderer implements ChunkRendererExt {
         final ChunkRenderData chunkRenderData = ChunkRenderDataStore.claim();
         final ChunkRenderDataExt chunkDataExt = (ChunkRenderDataExt) chunkRenderData;
         final BlockPos.Mutable origin = this.origin;
+        CanvasEvents.setSection(origin.getX(), origin.getY(), origin.getZ());
 
         final World world = this.world;
 
@@ -258,11 +284,17 @@ public abstract class MixinChunkRenderer implements ChunkRendererExt {
                         }
                     }
                 }
+                
+                if (RebuildCapture.isActive()) {
+                    RebuildCapture.capture(renderRegion, origin, x, y, z, blockEntities, chunkRenderData.getBlockEntities());
+                }
 
                 if(!help.solidCollector.isEmpty()) {
                     chunkRenderData.markBufferInitialized(BlockRenderLayer.SOLID);
                     chunkDataExt.canvas_setNonEmpty(BlockRenderLayer.SOLID);
-                    UploadableChunk.Solid abandoned = uploadSolid.getAndSet(help.solidCollector.packUploadSolid());
+                    final UploadableChunk.Solid packed = help.solidCollector.packUploadSolid();
+                    UploadableChunk.Solid abandoned = uploadSolid.getAndSet(packed);
+                    RenderMetrics.uploadReplaced(packed, abandoned);
                     if(abandoned != null) {
                         abandoned.cancel();
                     }
@@ -274,7 +306,9 @@ public abstract class MixinChunkRenderer implements ChunkRendererExt {
                     chunkDataExt.canvas_setNonEmpty(BlockRenderLayer.TRANSLUCENT);
                     vcl.setViewCoordinates(x, y, z);
                     chunkDataExt.canvas_collectorState(vcl.getCollectorState(null));
-                    UploadableChunk.Translucent abandoned = uploadTranslucent.getAndSet(vcl.packUploadTranslucent());
+                    final UploadableChunk.Translucent packed = vcl.packUploadTranslucent();
+                    UploadableChunk.Translucent abandoned = uploadTranslucent.getAndSet(packed);
+                    RenderMetrics.uploadReplaced(packed, abandoned);
                     if(abandoned != null) {
                         abandoned.cancel();
                     }
@@ -287,7 +321,9 @@ public abstract class MixinChunkRenderer implements ChunkRendererExt {
                 BlockModelRenderer.disableBrightnessCache();
             }
 
+            final Object occlusionEvent = CanvasEvents.beginOcclusion();
             chunkRenderData.setOcclusionGraph(visibilityData.build());
+            CanvasEvents.endSection(occlusionEvent, origin.getX(), origin.getY(), origin.getZ());
             
             this.lock.lock();
             try {
@@ -305,12 +341,17 @@ public abstract class MixinChunkRenderer implements ChunkRendererExt {
             }
         }
        
+        if (start != 0) {
+            RenderMetrics.increment(RenderMetrics.REBUILDS);
+            RenderMetrics.endStage(RenderMetrics.NANOS_REBUILD, start);
+        }
         
         ci.cancel();
     }
     
     @Inject(method = "resortTransparency", at = @At("HEAD"), cancellable = true, require = 1)
     public void onResortTransparency(float x, float y, float z, ChunkRenderTask chunkRenderTask, CallbackInfo ci) {
+        final long start = RenderMetrics.startStage();
         final ChunkRenderData chunkRenderData = chunkRenderTask.getRenderData();
         final ChunkRenderDataExt chunkDataExt = (ChunkRenderDataExt) chunkRenderData;
         int[][] collectorState = chunkDataExt.canvas_collectorState();
@@ -319,11 +360,19 @@ public abstract class MixinChunkRenderer implements ChunkRendererExt {
             translucentCollector.loadCollectorState(collectorState);
             translucentCollector.setViewCoordinates(x, y, z);
             translucentCollector.setRelativeRenderOrigin(origin.getX(), origin.getY(), origin.getZ());
-            UploadableChunk.Translucent abandoned = uploadTranslucent.getAndSet(translucentCollector.packUploadTranslucent());
+            CanvasEvents.setSection(origin.getX(), origin.getY(), origin.getZ());
+            final UploadableChunk.Translucent packed = translucentCollector.packUploadTranslucent();
+            UploadableChunk.Translucent abandoned = uploadTranslucent.getAndSet(packed);
+            RenderMetrics.uploadReplaced(packed, abandoned);
             if(abandoned != null) {
                 abandoned.cancel();
             }
         }
+        
+        if (start != 0) {
+            RenderMetrics.increment(RenderMetrics.RESORTS);
+            RenderMetrics.endStage(RenderMetrics.NANOS_RESORT, start);
+        }
         ci.cancel();
      }
 }
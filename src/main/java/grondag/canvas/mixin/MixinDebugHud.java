@@ -25,6 +25,8 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 import grondag.canvas.Configurator;
 import grondag.canvas.light.LightmapHd;
+import grondag.canvas.varia.GlStateTracker;
+import grondag.canvas.varia.RenderMetrics;
 import net.minecraft.client.gui.hud.DebugHud;
 
 @Mixin(DebugHud.class)
@@ -34,5 +36,13 @@ public class MixinDebugHud {
         if(Configurator.hdLightmaps) {
             ci.getReturnValue().add("Canvas HD Lightmap Occupancy: " + LightmapHd.occupancyReport());
         }
+        if(RenderMetrics.enabled()) {
+            final List<String> lines = ci.getReturnValue();
+            lines.add("Canvas GL calls (issued/skipped): " + GlStateTracker.report());
+            lines.add("Canvas render metrics - last frame:");
+            RenderMetrics.report(lines, false);
+            lines.add("Canvas render metrics - rolling average:");
+            RenderMetrics.report(lines, true);
+        }
     }
 }
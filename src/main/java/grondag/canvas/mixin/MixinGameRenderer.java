@@ -2,9 +2,12 @@ package grondag.canvas.mixin;
 
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.ModifyArg;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 import grondag.canvas.Configurator;
+import grondag.canvas.apiimpl.rendercontext.ItemRenderContext;
 import net.minecraft.client.render.GameRenderer;
 import net.minecraft.util.SystemUtil;
 
@@ -15,4 +18,9 @@ public class MixinGameRenderer {
         long val = SystemUtil.getMeasuringTimeNano() + Configurator.minChunkBudgetNanos;
         return Math.max(nanos, val);
     }
+    
+    @Inject(method = "render", at = @At("RETURN"))
+    private void afterRender(float tickDelta, long startTime, boolean tick, CallbackInfo ci) {
+        ItemRenderContext.flushGuiItems();
+    }
 }
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+
+package grondag.canvas.mixin;
+
+import java.nio.FloatBuffer;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import com.mojang.blaze3d.platform.GlStateManager;
+
+import grondag.canvas.varia.VanillaGlState;
+
+@Mixin(GlStateManager.class)
+public abstract class MixinGlStateManager {
+    @Inject(method = "matrixMode", at = @At("HEAD"))
+    private static void onMatrixMode(int mode, CallbackInfo ci) {
+        VanillaGlState.onMatrixMode(mode);
+    }
+    
+    @Inject(method = "pushMatrix", at = @At("HEAD"))
+    private static void onPushMatrix(CallbackInfo ci) {
+        VanillaGlState.onPushMatrix();
+    }
+    
+    @Inject(method = "popMatrix", at = @At("HEAD"))
+    private static void onPopMatrix(CallbackInfo ci) {
+        VanillaGlState.onPopMatrix();
+    }
+    
+    @Inject(method = "loadIdentity", at = @At("HEAD"))
+    private static void onLoadIdentity(CallbackInfo ci) {
+        VanillaGlState.onLoadIdentity();
+    }
+    
+    @Inject(method = "translatef", at = @At("HEAD"))
+    private static void onTranslatef(float x, float y, float z, CallbackInfo ci) {
+        VanillaGlState.onTranslate(x, y, z);
+    }
+    
+    @Inject(method = "translated", at = @At("HEAD"))
+    private static void onTranslated(double x, double y, double z, CallbackInfo ci) {
+        VanillaGlState.onTranslate((float) x, (float) y, (float) z);
+    }
+    
+    @Inject(method = "scalef", at = @At("HEAD"))
+    private static void onScalef(float x, float y, float z, CallbackInfo ci) {
+        VanillaGlState.onScale(x, y, z);
+    }
+    
+    @Inject(method = "scaled", at = @At("HEAD"))
+    private static void onScaled(double x, double y, double z, CallbackInfo ci) {
+        VanillaGlState.onScale((float) x, (float) y, (float) z);
+    }
+    
+    @Inject(method = "rotatef", at = @At("HEAD"))
+    private static void onRotatef(float angle, float x, float y, float z, CallbackInfo ci) {
+        VanillaGlState.onRotate(angle, x, y, z);
+    }
+    
+    @Inject(method = "rotated", at = @At("HEAD"))
+    private static void onRotated(double angle, double x, double y, double z, CallbackInfo ci) {
+        VanillaGlState.onRotate((float) angle, (float) x, (float) y, (float) z);
+    }
+    
+    @Inject(method = "ortho", at = @At("HEAD"))
+    private static void onOrtho(double left, double right, double bottom, double top, double zNear, double zFar, CallbackInfo ci) {
+        VanillaGlState.onOrtho(left, right, bottom, top, zNear, zFar);
+    }
+    
+    @Inject(method = "multMatrix(Ljava/nio/FloatBuffer;)V", at = @At("HEAD"))
+    private static void onMultMatrix(FloatBuffer matrix, CallbackInfo ci) {
+        VanillaGlState.onMultMatrix(matrix);
+    }
+    
+    @Inject(method = "multMatrix(Lnet/minecraft/client/util/math/Matrix4f;)V", at = @At("HEAD"), require = 0)
+    private static void beforeMcMultMatrix(CallbackInfo ci) {
+        VanillaGlState.beforeMcMultMatrix();
+    }
+    
+    @Inject(method = "multMatrix(Lnet/minecraft/client/util/math/Matrix4f;)V", at = @At("RETURN"), require = 0)
+    private static void afterMcMultMatrix(CallbackInfo ci) {
+        VanillaGlState.afterMcMultMatrix();
+    }
+    
+    @Inject(method = "enableBlend", at = @At("HEAD"))
+    private static void onEnableBlend(CallbackInfo ci) {
+        VanillaGlState.onEnableBlend(true);
+    }
+    
+    @Inject(method = "disableBlend", at = @At("HEAD"))
+    private static void onDisableBlend(CallbackInfo ci) {
+        VanillaGlState.onEnableBlend(false);
+    }
+    
+    @Inject(method = "enableAlphaTest", at = @At("HEAD"))
+    private static void onEnableAlphaTest(CallbackInfo ci) {
+        VanillaGlState.onEnableAlphaTest(true);
+    }
+    
+    @Inject(method = "disableAlphaTest", at = @At("HEAD"))
+    private static void onDisableAlphaTest(CallbackInfo ci) {
+        VanillaGlState.onEnableAlphaTest(false);
+    }
+    
+    @Inject(method = "enableDepthTest", at = @At("HEAD"))
+    private static void onEnableDepthTest(CallbackInfo ci) {
+        VanillaGlState.onEnableDepthTest(true);
+    }
+    
+    @Inject(method = "disableDepthTest", at = @At("HEAD"))
+    private static void onDisableDepthTest(CallbackInfo ci) {
+        VanillaGlState.onEnableDepthTest(false);
+    }
+    
+    @Inject(method = "enableLighting", at = @At("HEAD"))
+    private static void onEnableLighting(CallbackInfo ci) {
+        VanillaGlState.onEnableLighting(true);
+    }
+    
+    @Inject(method = "disableLighting", at = @At("HEAD"))
+    private static void onDisableLighting(CallbackInfo ci) {
+        VanillaGlState.onEnableLighting(false);
+    }
+    
+    // enum overloads delegate to these
+    @Inject(method = "blendFunc(II)V", at = @At("HEAD"))
+    private static void onBlendFunc(int src, int dst, CallbackInfo ci) {
+        VanillaGlState.onBlendFunc(src, dst, src, dst);
+    }
+    
+    @Inject(method = "blendFuncSeparate(IIII)V", at = @At("HEAD"))
+    private static void onBlendFuncSeparate(int srcRgb, int dstRgb, int srcAlpha, int dstAlpha, CallbackInfo ci) {
+        VanillaGlState.onBlendFunc(srcRgb, dstRgb, srcAlpha, dstAlpha);
+    }
+    
+    @Inject(method = "alphaFunc", at = @At("HEAD"))
+    private static void onAlphaFunc(int func, float ref, CallbackInfo ci) {
+        VanillaGlState.onAlphaFunc(func, ref);
+    }
+    
+    @Inject(method = "color4f", at = @At("HEAD"))
+    private static void onColor4f(float r, float g, float b, float a, CallbackInfo ci) {
+        VanillaGlState.onColor(r, g, b, a);
+    }
+    
+    @Inject(method = "clearCurrentColor", at = @At("HEAD"))
+    private static void onClearCurrentColor(CallbackInfo ci) {
+        VanillaGlState.onClearColor();
+    }
+    
+    @Inject(method = "activeTexture", at = @At("HEAD"))
+    private static void onActiveTexture(int texture, CallbackInfo ci) {
+        VanillaGlState.onActiveTexture(texture);
+    }
+    
+    @Inject(method = "enableTexture", at = @At("HEAD"))
+    private static void onEnableTexture(CallbackInfo ci) {
+        VanillaGlState.onEnableTexture(true);
+    }
+    
+    @Inject(method = "disableTexture", at = @At("HEAD"))
+    private static void onDisableTexture(CallbackInfo ci) {
+        VanillaGlState.onEnableTexture(false);
+    }
+    
+    @Inject(method = "bindTexture", at = @At("HEAD"))
+    private static void onBindTexture(int texture, CallbackInfo ci) {
+        VanillaGlState.onBindTexture(texture);
+    }
+    
+    @Inject(method = "deleteTexture", at = @At("HEAD"))
+    private static void onDeleteTexture(int texture, CallbackInfo ci) {
+        VanillaGlState.onDeleteTexture(texture);
+    }
+}
@@ -32,6 +32,7 @@ import grondag.canvas.light.GuiLightingHelper;
 import grondag.canvas.material.ShaderContext;
 import grondag.frex.api.model.DynamicBakedModel;
 import net.minecraft.client.color.item.ItemColors;
+import net.minecraft.client.font.TextRenderer;
 import net.minecraft.client.render.BufferBuilder;
 import net.minecraft.client.render.Tessellator;
 import net.minecraft.client.render.item.ItemRenderer;
@@ -104,6 +105,14 @@ public abstract class MixinItemRenderer {
         }
     }
     
+    @Inject(at = @At("HEAD"), method = "renderGuiItemOverlay(Lnet/minecraft/client/font/TextRenderer;Lnet/minecraft/item/ItemStack;IILjava/lang/String;)V", cancellable = true)
+    private void onRenderGuiItemOverlay(TextRenderer textRenderer, ItemStack stack, int x, int y, String amountText, CallbackInfo ci) {
+        if(Configurator.itemShaderRender && Configurator.batchGuiItems && !stack.isEmpty()
+                && ItemRenderContext.deferGuiItemOverlay((ItemRenderer)(Object) this, textRenderer, stack, x, y, amountText)) {
+            ci.cancel();
+        }
+    }
+    
     @Inject(at = @At("HEAD"), method = "renderGuiItemModel")
     private void onRenderGuiItemModel(ItemStack itemStack, int int_1, int int_2, BakedModel bakedModel, CallbackInfo ci) {
         if(Configurator.itemShaderRender) {
@@ -32,6 +32,8 @@ import grondag.canvas.draw.SolidRenderList;
 import grondag.canvas.draw.TessellatorExt;
 import grondag.canvas.light.LightmapHdTexture;
 import grondag.canvas.material.ShaderContext;
+import grondag.canvas.varia.GlStateTracker;
+import grondag.canvas.varia.RenderMetrics;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import net.minecraft.client.render.BufferBuilder;
 import net.minecraft.client.render.Tessellator;
@@ -57,12 +59,14 @@ public class MixinTessellator implements TessellatorExt {
         final CanvasBufferBuilder buffer = (CanvasBufferBuilder)this.buffer;
         final VertexCollectorList vcList = buffer.vcList;
         if(!vcList.isEmpty()) {
+            final long start = RenderMetrics.startStage();
             final BufferPackingList packingList = vcList.packingListSolid();
             final SolidRenderList renderList = SolidRenderList.claim();
             buffer.ensureCapacity(packingList.totalBytes());
             ObjectArrayList<DrawableDelegate> delegates = BufferPacker.pack(packingList, vcList, buffer);
             renderList.accept(delegates);
             
+            GlStateTracker.beginPass();
             //PERF: lightmap tex probably not needed here, or at least make context-dependent
             LightmapHdTexture.instance().enable();
             renderList.draw(context);
@@ -76,6 +80,7 @@ public class MixinTessellator implements TessellatorExt {
             renderList.release();
             vcList.clear();
             buffer.clearAllocations();
+            RenderMetrics.endStage(RenderMetrics.NANOS_ITEMS, start);
         }        
     }
 
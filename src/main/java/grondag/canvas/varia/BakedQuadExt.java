@@ -16,7 +16,13 @@
 
 package grondag.canvas.varia;
 
+import grondag.canvas.apiimpl.QuadShape;
+
 public interface BakedQuadExt {
     boolean canvas_disableDiffuse();
     void canvas_disableDiffuse(boolean disable);
+    
+    /** Derived geometry data saved by the renderer, or null if not yet computed. */
+    QuadShape canvas_shape();
+    void canvas_shape(QuadShape shape);
 }
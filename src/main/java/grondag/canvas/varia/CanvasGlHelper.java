@@ -16,14 +16,22 @@
 
 package grondag.canvas.varia;
 
+import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 
 import org.apache.logging.log4j.Logger;
+import org.lwjgl.opengl.ARBGetProgramBinary;
+import org.lwjgl.opengl.ARBParallelShaderCompile;
+import org.lwjgl.opengl.ARBUniformBufferObject;
 import org.lwjgl.opengl.ARBVertexArrayObject;
 import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL41;
 import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.opengl.KHRParallelShaderCompile;
 
 import com.mojang.blaze3d.platform.GLX;
 
@@ -36,6 +44,11 @@ public class CanvasGlHelper {
     static private boolean vaoEnabled = false;
     static private boolean useVaoArb = false;
     static private boolean useGpuShader4 = false;
+    static private boolean programBinaryEnabled = false;
+    static private boolean useProgramBinaryArb = false;
+    static private boolean parallelShaderCompile = false;
+    static private boolean uniformBufferEnabled = false;
+    static private boolean useUniformBufferArb = false;
     
     public static void init() {
         GLCapabilities caps = GL.getCapabilities();
@@ -43,6 +56,17 @@ public class CanvasGlHelper {
         vaoEnabled = caps.GL_ARB_vertex_array_object || caps.OpenGL30;
         useVaoArb = !caps.OpenGL30 && caps.GL_ARB_vertex_array_object;
         useGpuShader4 = caps.GL_EXT_gpu_shader4;
+        programBinaryEnabled = caps.OpenGL41 || caps.GL_ARB_get_program_binary;
+        useProgramBinaryArb = !caps.OpenGL41 && caps.GL_ARB_get_program_binary;
+        parallelShaderCompile = caps.GL_KHR_parallel_shader_compile || caps.GL_ARB_parallel_shader_compile;
+        uniformBufferEnabled = caps.OpenGL31 || caps.GL_ARB_uniform_buffer_object;
+        useUniformBufferArb = !caps.OpenGL31 && caps.GL_ARB_uniform_buffer_object;
+        
+        // let the driver pick thread count - default may be serial
+        if(caps.GL_KHR_parallel_shader_compile)
+            KHRParallelShaderCompile.glMaxShaderCompilerThreadsKHR(-1);
+        else if(caps.GL_ARB_parallel_shader_compile)
+            ARBParallelShaderCompile.glMaxShaderCompilerThreadsARB(-1);
         
         if(Configurator.logMachineInfo) {
             logMachineInfo(caps);
@@ -58,11 +82,14 @@ public class CanvasGlHelper {
         log.info(String.format(" CPU: %s", GLX.getCpuInfo()));
         log.info(String.format(" GPU: %s  %s", GLX.getVendor(), GLX.getRenderer()));
         log.info(String.format(" OpenGL: %s", GLX.getOpenGLVersion()));
-        log.info(String.format(" GpuShader4: %s  VboArb: %s  VaoEnabled: %s  VaoArb: %s", 
+        log.info(String.format(" GpuShader4: %s  VboArb: %s  VaoEnabled: %s  VaoArb: %s  ProgramBinary: %s  ParallelCompile: %s  Ubo: %s", 
                 useGpuShader4 ? "Y" : "N",
                 useVboArb ? "Y" : "N",
                 vaoEnabled ? "Y" : "N",
-                useVaoArb ? "Y" : "N"));
+                useVaoArb ? "Y" : "N",
+                programBinaryEnabled ? "Y" : "N",
+                parallelShaderCompile ? "Y" : "N",
+                uniformBufferEnabled ? "Y" : "N"));
         log.info(" (This message can be disabled by configuring logMachineInfo = false.)");
         log.info("========================================================================");
     }
@@ -118,6 +145,7 @@ public class CanvasGlHelper {
                 if(Configurator.logGlStateChanges) {
                     CanvasMod.LOG.info(String.format("GlState: glEnableVertexAttribArray(%d)", attributeEnabledCount + 1));
                 }
+                GlStateTracker.issued(GlStateTracker.ATTRIBUTE);
                 GL20.glEnableVertexAttribArray(++attributeEnabledCount);
             }
         } else if (shouldReduce && enabledCount < attributeEnabledCount) {
@@ -125,8 +153,11 @@ public class CanvasGlHelper {
                 if(Configurator.logGlStateChanges) {
                     CanvasMod.LOG.info(String.format("GlState: glDisableVertexAttribArray(%d)", attributeEnabledCount));
                 }
+                GlStateTracker.issued(GlStateTracker.ATTRIBUTE);
                 GL20.glDisableVertexAttribArray(attributeEnabledCount--);
             }
+        } else {
+            GlStateTracker.skipped(GlStateTracker.ATTRIBUTE);
         }
         return attributeEnabledCount;
     }
@@ -156,4 +187,68 @@ public class CanvasGlHelper {
         else
             GL30.glBindVertexArray(vaoBufferId);
     }
+
+    public static boolean isProgramBinaryEnabled() {
+        return programBinaryEnabled && Configurator.cacheShaderBinaries;
+    }
+    
+    /**
+     * Asks the driver to keep program binaries retrievable. Must be called before link.
+     */
+    public static void glProgramBinaryRetrievableHint(int programId) {
+        if(useProgramBinaryArb)
+            ARBGetProgramBinary.glProgramParameteri(programId, ARBGetProgramBinary.GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL11.GL_TRUE);
+        else
+            GL41.glProgramParameteri(programId, GL41.GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL11.GL_TRUE);
+    }
+    
+    public static void glGetProgramBinary(int programId, int[] length, int[] binaryFormat, ByteBuffer binary) {
+        if(useProgramBinaryArb)
+            ARBGetProgramBinary.glGetProgramBinary(programId, length, binaryFormat, binary);
+        else
+            GL41.glGetProgramBinary(programId, length, binaryFormat, binary);
+    }
+    
+    public static void glProgramBinary(int programId, int binaryFormat, ByteBuffer binary) {
+        if(useProgramBinaryArb)
+            ARBGetProgramBinary.glProgramBinary(programId, binaryFormat, binary);
+        else
+            GL41.glProgramBinary(programId, binaryFormat, binary);
+    }
+    
+    public static boolean isParallelShaderCompileEnabled() {
+        return parallelShaderCompile;
+    }
+    
+    /**
+     * True if link status can be queried without blocking. Always true
+     * when the driver does not support parallel compile.
+     */
+    public static boolean isProgramLinkComplete(int programId) {
+        return !parallelShaderCompile || GL20.glGetProgrami(programId, KHRParallelShaderCompile.GL_COMPLETION_STATUS_KHR) == GL11.GL_TRUE;
+    }
+    
+    public static boolean isUniformBufferEnabled() {
+        return uniformBufferEnabled;
+    }
+    
+    public static void glBindBufferBase(int target, int index, int buffer) {
+        if(useUniformBufferArb)
+            ARBUniformBufferObject.glBindBufferBase(target, index, buffer);
+        else
+            GL30.glBindBufferBase(target, index, buffer);
+    }
+    
+    public static int glGetUniformBlockIndex(int programId, CharSequence blockName) {
+        return useUniformBufferArb
+                ? ARBUniformBufferObject.glGetUniformBlockIndex(programId, blockName)
+                : GL31.glGetUniformBlockIndex(programId, blockName);
+    }
+    
+    public static void glUniformBlockBinding(int programId, int blockIndex, int binding) {
+        if(useUniformBufferArb)
+            ARBUniformBufferObject.glUniformBlockBinding(programId, blockIndex, binding);
+        else
+            GL31.glUniformBlockBinding(programId, blockIndex, binding);
+    }
 }
@@ -31,6 +31,9 @@ public class DitherTexture implements AutoCloseable {
     private final MinecraftClient client;
 
     private boolean needsInitialized = true;
+    
+    /** Wrap and filter are texture object state - only set once per texture object */
+    private int paramTextureId = -1;
 
     private DitherTexture() {
         this.client = MinecraftClient.getInstance();
@@ -62,10 +65,17 @@ public class DitherTexture implements AutoCloseable {
 
         GlStateManager.activeTexture(GL21.GL_TEXTURE5);
         this.client.getTextureManager().bindTexture(this.textureIdentifier);
-        GlStateManager.texParameter(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL11.GL_REPEAT);
-        GlStateManager.texParameter(GL11.GL_TEXTURE_2D,  GL11.GL_TEXTURE_WRAP_T, GL11.GL_REPEAT);
-        GlStateManager.texParameter(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
-        GlStateManager.texParameter(GL11.GL_TEXTURE_2D,  GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+        final int textureId = this.texture.getGlId();
+        if (textureId == paramTextureId) {
+            GlStateTracker.skipped(GlStateTracker.TEXTURE);
+        } else {
+            GlStateTracker.issued(GlStateTracker.TEXTURE);
+            paramTextureId = textureId;
+            GlStateManager.texParameter(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL11.GL_REPEAT);
+            GlStateManager.texParameter(GL11.GL_TEXTURE_2D,  GL11.GL_TEXTURE_WRAP_T, GL11.GL_REPEAT);
+            GlStateManager.texParameter(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+            GlStateManager.texParameter(GL11.GL_TEXTURE_2D,  GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+        }
         GlStateManager.enableTexture();
         GlStateManager.activeTexture(GL21.GL_TEXTURE0);
     }
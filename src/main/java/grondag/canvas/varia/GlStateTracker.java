@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+
+package grondag.canvas.varia;
+
+import java.util.Arrays;
+
+import org.lwjgl.opengl.GL11;
+
+import com.mojang.blaze3d.platform.GlStateManager;
+
+import grondag.canvas.CanvasMod;
+import grondag.canvas.Configurator;
+
+/**
+ * Shadows GL state Canvas changes during its own draw passes so redundant calls
+ * can be skipped, and counts issued vs. skipped calls for the debug HUD when
+ * {@link Configurator#renderMetrics} is on.<p>
+ * 
+ * Vanilla and other mods change state between passes without telling us, so
+ * shadows for state they might touch are reset by {@link #beginPass()}. Render thread only.
+ */
+public final class GlStateTracker {
+    private GlStateTracker() {}
+    
+    public static final int PROGRAM = 0;
+    public static final int VAO = 1;
+    public static final int ATTRIBUTE = 2;
+    public static final int TEXTURE = 3;
+    public static final int CLIENT_STATE = 4;
+    public static final int ARRAY_BUFFER = 5;
+    
+    private static final int KIND_COUNT = 6;
+    private static final String[] NAMES = {"prog", "vao", "attr", "tex", "client", "vbo"};
+    
+    private static final int UNKNOWN = -1;
+    
+    private static final int[] issued = new int[KIND_COUNT];
+    private static final int[] skipped = new int[KIND_COUNT];
+    
+    /** counts from last complete frame, for display */
+    private static final int[] frameIssued = new int[KIND_COUNT];
+    private static final int[] frameSkipped = new int[KIND_COUNT];
+    
+    private static int boundVao = UNKNOWN;
+    
+    /** GL_VERTEX_ARRAY client state of the default vertex array: 0, 1 or UNKNOWN */
+    private static int vertexArrayState = UNKNOWN;
+    
+    public static void issued(int kind) {
+        if(Configurator.renderMetrics) {
+            issued[kind]++;
+        }
+    }
+    
+    public static void skipped(int kind) {
+        if(Configurator.renderMetrics) {
+            skipped[kind]++;
+        }
+    }
+    
+    /**
+     * Call at start of each Canvas draw pass. Forgets state that others may have changed.
+     */
+    public static void beginPass() {
+        boundVao = UNKNOWN;
+        vertexArrayState = UNKNOWN;
+    }
+    
+    public static void bindVertexArray(int vaoId) {
+        if (vaoId == boundVao) {
+            skipped(VAO);
+        } else {
+            boundVao = vaoId;
+            issued(VAO);
+            CanvasGlHelper.glBindVertexArray(vaoId);
+        }
+    }
+    
+    /**
+     * Client state is part of VAO state, so only shadowed while no VAO is bound.
+     */
+    private static boolean isDefaultVao() {
+        return boundVao == 0 || (boundVao == UNKNOWN && !CanvasGlHelper.isVaoEnabled());
+    }
+    
+    public static void enableVertexArray() {
+        final boolean isDefault = isDefaultVao();
+        if (isDefault && vertexArrayState == 1) {
+            skipped(CLIENT_STATE);
+        } else {
+            if(Configurator.logGlStateChanges) {
+                CanvasMod.LOG.info(String.format("GlState: GlStateManager.enableClientState(%d)", GL11.GL_VERTEX_ARRAY));
+            }
+            issued(CLIENT_STATE);
+            GlStateManager.enableClientState(GL11.GL_VERTEX_ARRAY);
+            if (isDefault) {
+                vertexArrayState = 1;
+            }
+        }
+    }
+    
+    public static void disableVertexArray() {
+        final boolean isDefault = isDefaultVao();
+        if (isDefault && vertexArrayState == 0) {
+            skipped(CLIENT_STATE);
+        } else {
+            issued(CLIENT_STATE);
+            GlStateManager.disableClientState(GL11.GL_VERTEX_ARRAY);
+            if (isDefault) {
+                vertexArrayState = 0;
+            }
+        }
+    }
+    
+    /**
+     * Call once per frame. Captures counts for display and resets.
+     */
+    public static void onRenderTick() {
+        System.arraycopy(issued, 0, frameIssued, 0, KIND_COUNT);
+        System.arraycopy(skipped, 0, frameSkipped, 0, KIND_COUNT);
+        Arrays.fill(issued, 0);
+        Arrays.fill(skipped, 0);
+    }
+    
+    /**
+     * Calls of the given kind issued during last complete frame.
+     */
+    public static int frameIssued(int kind) {
+        return frameIssued[kind];
+    }
+    
+    /**
+     * Issued / skipped calls by kind for last frame.
+     */
+    public static String report() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < KIND_COUNT; i++) {
+            if (i > 0) {
+                sb.append("  ");
+            }
+            sb.append(NAMES[i]).append(' ').append(frameIssued[i]).append('/').append(frameSkipped[i]);
+        }
+        return sb.toString();
+    }
+}
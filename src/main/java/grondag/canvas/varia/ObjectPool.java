@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+
+package grondag.canvas.varia;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Recycles instances across threads without locks. Each thread claims from and releases
+ * to its own magazine - a small array - with no synchronization. When a magazine runs
+ * empty or fills up it is exchanged whole with a lock-free global depot, so threads
+ * that mostly release (render thread) feed threads that mostly claim (rebuild threads)
+ * one magazine at a time instead of one object at a time.<p>
+ * 
+ * The depot is capped by count or by bytes. Releases that would exceed it are dropped and
+ * counted as overflows. Magazines are not counted against the cap, so each thread can hold
+ * up to one magazine of idle instances beyond it. Pools of large objects should use
+ * small magazines.<p>
+ * 
+ * Hit, miss and overflow counts are reported in {@link RenderMetrics} and only
+ * collected while metrics are enabled.
+ */
+public final class ObjectPool<T> {
+    private static final CopyOnWriteArrayList<ObjectPool<?>> POOLS = new CopyOnWriteArrayList<>();
+    
+    /**
+     * Pool holding at most maxCount idle instances in the depot.
+     */
+    public static <T> ObjectPool<T> ofCount(String name, int magazineSize, int maxCount, Supplier<T> factory) {
+        return register(new ObjectPool<>(name, magazineSize, maxCount, null, factory));
+    }
+    
+    /**
+     * Pool holding at most maxBytes of idle instances in the depot, as measured by byteSize.
+     */
+    public static <T> ObjectPool<T> ofBytes(String name, int magazineSize, long maxBytes, ToIntFunction<T> byteSize, Supplier<T> factory) {
+        return register(new ObjectPool<>(name, magazineSize, maxBytes, byteSize, factory));
+    }
+    
+    private static <T> ObjectPool<T> register(ObjectPool<T> pool) {
+        POOLS.add(pool);
+        return pool;
+    }
+    
+    private class Magazine {
+        private Object[] items = new Object[magazineSize];
+        private int count = 0;
+        private int generation = ObjectPool.this.generation.get();
+        
+        private void validate() {
+            final int currentGeneration = ObjectPool.this.generation.get();
+            if(generation != currentGeneration) {
+                Arrays.fill(items, 0, count, null);
+                count = 0;
+                generation = currentGeneration;
+            }
+        }
+    }
+    
+    private final String name;
+    private final int magazineSize;
+    private final long maxWeight;
+    /** Null for count caps - every instance weighs one */
+    private final ToIntFunction<T> byteSize;
+    private final Supplier<T> factory;
+    
+    private final ThreadLocal<Magazine> magazines = ThreadLocal.withInitial(Magazine::new);
+    /** Full magazines only */
+    private final ConcurrentLinkedQueue<Object[]> depot = new ConcurrentLinkedQueue<>();
+    /** Empty magazines left behind by refills, reused on flush */
+    private final ConcurrentLinkedQueue<Object[]> spares = new ConcurrentLinkedQueue<>();
+    private final AtomicLong depotWeight = new AtomicLong();
+    
+    /** Incremented by {@link #clear()} so threads drop instances in their magazines */
+    private final AtomicInteger generation = new AtomicInteger();
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+    
+    /** Running totals, updated by {@link #collectFrameStats(long[])} on render thread */
+    private long totalHits;
+    private long totalMisses;
+    private long totalOverflows;
+    
+    private ObjectPool(String name, int magazineSize, long maxWeight, ToIntFunction<T> byteSize, Supplier<T> factory) {
+        this.name = name;
+        this.magazineSize = magazineSize;
+        this.maxWeight = maxWeight;
+        this.byteSize = byteSize;
+        this.factory = factory;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public T claim() {
+        final Magazine mag = magazines.get();
+        mag.validate();
+        
+        if(mag.count == 0 && !refill(mag)) {
+            if(RenderMetrics.enabled()) {
+                misses.increment();
+            }
+            return factory.get();
+        }
+        
+        if(RenderMetrics.enabled()) {
+            hits.increment();
+        }
+        final Object[] items = mag.items;
+        final T result = (T) items[--mag.count];
+        items[mag.count] = null;
+        return result;
+    }
+    
+    public void release(T item) {
+        final Magazine mag = magazines.get();
+        mag.validate();
+        
+        if(mag.count == magazineSize && !flush(mag)) {
+            if(RenderMetrics.enabled()) {
+                overflows.increment();
+            }
+            return;
+        }
+        
+        mag.items[mag.count++] = item;
+    }
+    
+    /** Drops all pooled instances, including those held by other threads */
+    public void clear() {
+        generation.incrementAndGet();
+        
+        // drained one at a time because concurrent flushes may add magazines and weight meanwhile
+        Object[] full;
+        while((full = depot.poll()) != null) {
+            depotWeight.addAndGet(-weight(full));
+        }
+    }
+    
+    /** Swaps empty magazine for a full one from the depot, if there is one */
+    private boolean refill(Magazine mag) {
+        final Object[] full = depot.poll();
+        if(full == null) {
+            return false;
+        }
+        
+        depotWeight.addAndGet(-weight(full));
+        spares.offer(mag.items);
+        mag.items = full;
+        mag.count = magazineSize;
+        return true;
+    }
+    
+    /** Moves full magazine to the depot unless that would exceed the cap */
+    private boolean flush(Magazine mag) {
+        final Object[] full = mag.items;
+        final long weight = weight(full);
+        
+        long current;
+        do {
+            current = depotWeight.get();
+            if(current + weight > maxWeight) {
+                return false;
+            }
+        } while(!depotWeight.compareAndSet(current, current + weight));
+        
+        depot.offer(full);
+        final Object[] spare = spares.poll();
+        mag.items = spare == null ? new Object[magazineSize] : spare;
+        mag.count = 0;
+        return true;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private long weight(Object[] full) {
+        final ToIntFunction<T> byteSize = this.byteSize;
+        if(byteSize == null) {
+            return full.length;
+        }
+        
+        long result = 0;
+        for(Object o : full) {
+            result += byteSize.applyAsInt((T) o);
+        }
+        return result;
+    }
+    
+    /**
+     * Adds hits, misses and overflows of all pools since last call to the first three
+     * elements of totals. Call from render thread only.
+     */
+    static void collectFrameStats(long[] totals) {
+        for(ObjectPool<?> pool : POOLS) {
+            final long hits = pool.hits.sumThenReset();
+            final long misses = pool.misses.sumThenReset();
+            final long overflows = pool.overflows.sumThenReset();
+            pool.totalHits += hits;
+            pool.totalMisses += misses;
+            pool.totalOverflows += overflows;
+            totals[0] += hits;
+            totals[1] += misses;
+            totals[2] += overflows;
+        }
+    }
+    
+    /** Appends one line per pool with running totals */
+    static void report(List<String> lines) {
+        for(ObjectPool<?> pool : POOLS) {
+            final long claims = pool.totalHits + pool.totalMisses;
+            lines.add(String.format("pool %s  hit %.1f%%  misses %d  overflows %d  depot %d%s", 
+                    pool.name, claims == 0 ? 0f : pool.totalHits * 100f / claims, pool.totalMisses, pool.totalOverflows, 
+                    pool.depotWeight.get(), pool.byteSize == null ? "" : " bytes"));
+        }
+    }
+}
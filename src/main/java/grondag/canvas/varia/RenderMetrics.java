@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+
+package grondag.canvas.varia;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import grondag.canvas.CanvasMod;
+import grondag.canvas.Configurator;
+import grondag.canvas.apiimpl.rendercontext.BlockModelCache;
+import grondag.canvas.apiimpl.rendercontext.ItemMeshCache;
+
+/**
+ * Per-frame render pipeline counters and stage timings, with rolling averages.<p>
+ * 
+ * Counters are {@link LongAdder}s so rebuild threads can report without contention.
+ * Every entry point checks {@link Configurator#renderMetrics} first, so cost when
+ * disabled is a static field read. Values are captured once per frame on the render thread.
+ */
+public final class RenderMetrics {
+    private RenderMetrics() {}
+    
+    public static final int CHUNKS_DRAWN = 0;
+    public static final int QUADS_DRAWN = 1;
+    public static final int DRAW_CALLS = 2;
+    public static final int UNIFORM_UPLOADS = 3;
+    public static final int BYTES_UPLOADED = 4;
+    public static final int REBUILDS = 5;
+    public static final int RESORTS = 6;
+    public static final int NANOS_SOLID = 7;
+    public static final int NANOS_TRANSLUCENT = 8;
+    public static final int NANOS_ITEMS = 9;
+    public static final int NANOS_REBUILD = 10;
+    public static final int NANOS_RESORT = 11;
+    
+    private static final int COUNTER_COUNT = 12;
+    
+    // derived from other trackers at frame end
+    private static final int BUFFER_BINDS = 12;
+    private static final int PROGRAM_SWITCHES = 13;
+    private static final int UPLOAD_QUEUE = 14;
+    private static final int POOL_HITS = 15;
+    private static final int POOL_MISSES = 16;
+    private static final int POOL_OVERFLOWS = 17;
+    
+    private static final int METRIC_COUNT = 18;
+    
+    /** Rolling average weight of newest frame */
+    private static final float AVERAGE_WEIGHT = 1f / 32f;
+    
+    private static final long LOG_INTERVAL_NANOS = 10_000_000_000L;
+    
+    private static final LongAdder[] COUNTERS = new LongAdder[COUNTER_COUNT];
+    
+    static {
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            COUNTERS[i] = new LongAdder();
+        }
+    }
+    
+    /** Chunk uploads produced by rebuilds and not yet consumed by render thread */
+    private static final AtomicInteger uploadQueue = new AtomicInteger();
+    
+    private static final long[] poolStats = new long[3];
+    private static final long[] frameValues = new long[METRIC_COUNT];
+    private static final float[] averages = new float[METRIC_COUNT];
+    private static long lastLogNanos = 0;
+    
+    public static boolean enabled() {
+        return Configurator.renderMetrics;
+    }
+    
+    public static void add(int counter, long amount) {
+        if (Configurator.renderMetrics) {
+            COUNTERS[counter].add(amount);
+        }
+    }
+    
+    public static void increment(int counter) {
+        if (Configurator.renderMetrics) {
+            COUNTERS[counter].increment();
+        }
+    }
+    
+    /** Returns start time for {@link #endStage(int, long)}, or 0 if disabled */
+    public static long startStage() {
+        return Configurator.renderMetrics ? System.nanoTime() : 0;
+    }
+    
+    public static void endStage(int nanosCounter, long start) {
+        if (start != 0 && Configurator.renderMetrics) {
+            COUNTERS[nanosCounter].add(System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * Tracks pending chunk uploads when a rebuild or resort swaps its result into a
+     * chunk's upload slot. Either argument may be null. Tracked unconditionally because
+     * toggling metrics mid-session would otherwise unbalance the count.
+     */
+    public static void uploadReplaced(Object queued, Object abandoned) {
+        if (queued == null) {
+            if (abandoned != null) {
+                uploadQueue.decrementAndGet();
+            }
+        } else if (abandoned == null) {
+            uploadQueue.incrementAndGet();
+        }
+    }
+    
+    /** Call when render thread consumes a pending chunk upload */
+    public static void uploadConsumed() {
+        uploadQueue.decrementAndGet();
+    }
+    
+    /**
+     * Call once per frame on render thread, after {@link GlStateTracker#onRenderTick()}.
+     */
+    public static void onRenderTick() {
+        if (!Configurator.renderMetrics) {
+            return;
+        }
+        
+        final long[] frame = frameValues;
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            frame[i] = COUNTERS[i].sumThenReset();
+        }
+        frame[BUFFER_BINDS] = GlStateTracker.frameIssued(GlStateTracker.ARRAY_BUFFER);
+        frame[PROGRAM_SWITCHES] = GlStateTracker.frameIssued(GlStateTracker.PROGRAM);
+        frame[UPLOAD_QUEUE] = uploadQueue.get();
+        
+        final long[] pools = poolStats;
+        Arrays.fill(pools, 0);
+        ObjectPool.collectFrameStats(pools);
+        frame[POOL_HITS] = pools[0];
+        frame[POOL_MISSES] = pools[1];
+        frame[POOL_OVERFLOWS] = pools[2];
+        
+        final float[] avg = averages;
+        for (int i = 0; i < METRIC_COUNT; i++) {
+            avg[i] += (frame[i] - avg[i]) * AVERAGE_WEIGHT;
+        }
+        
+        final long now = System.nanoTime();
+        if (now - lastLogNanos > LOG_INTERVAL_NANOS) {
+            lastLogNanos = now;
+            CanvasMod.LOG.info("Canvas render metrics (rolling average per frame)");
+            final List<String> lines = new ArrayList<>();
+            report(lines, true);
+            ObjectPool.report(lines);
+            for (String line : lines) {
+                CanvasMod.LOG.info("  " + line);
+            }
+        }
+    }
+    
+    private static float ms(float nanos) {
+        return nanos / 1000000f;
+    }
+    
+    /**
+     * Appends report lines for last frame, or rolling averages if average is true.
+     */
+    public static void report(List<String> lines, boolean average) {
+        final float[] v = new float[METRIC_COUNT];
+        for (int i = 0; i < METRIC_COUNT; i++) {
+            v[i] = average ? averages[i] : frameValues[i];
+        }
+        
+        lines.add(String.format("chunks %.0f  quads %.0f  draws %.0f  binds %.0f  programs %.0f  uniforms %.0f",
+                v[CHUNKS_DRAWN], v[QUADS_DRAWN], v[DRAW_CALLS], v[BUFFER_BINDS], v[PROGRAM_SWITCHES], v[UNIFORM_UPLOADS]));
+        lines.add(String.format("upload KB %.1f  queue %.0f  rebuilds %.1f  resorts %.1f",
+                v[BYTES_UPLOADED] / 1024f, v[UPLOAD_QUEUE], v[REBUILDS], v[RESORTS]));
+        lines.add(String.format("ms solid %.2f  translucent %.2f  items %.2f  rebuild %.2f  resort %.2f",
+                ms(v[NANOS_SOLID]), ms(v[NANOS_TRANSLUCENT]), ms(v[NANOS_ITEMS]), ms(v[NANOS_REBUILD]), ms(v[NANOS_RESORT])));
+        lines.add(String.format("pool hits %.0f  misses %.0f  overflows %.0f",
+                v[POOL_HITS], v[POOL_MISSES], v[POOL_OVERFLOWS]));
+        
+        // cache counters are cumulative since last reload
+        final long blockHits = BlockModelCache.hitCount();
+        final long blockLookups = blockHits + BlockModelCache.missCount();
+        lines.add(String.format("block cache hit %.1f%%  misses %d  evicted %d  size %d  template KB %d",
+                blockLookups == 0 ? 0f : 100f * blockHits / blockLookups, BlockModelCache.missCount(),
+                BlockModelCache.evictionCount(), BlockModelCache.size(), BlockModelCache.templateBytes() / 1024));
+        
+        final long itemHits = ItemMeshCache.hitCount();
+        final long itemLookups = itemHits + ItemMeshCache.missCount();
+        lines.add(String.format("item cache hit %.1f%%  misses %d  KB %d",
+                itemLookups == 0 ? 0f : 100f * itemHits / itemLookups, ItemMeshCache.missCount(), ItemMeshCache.byteSize() / 1024));
+    }
+}
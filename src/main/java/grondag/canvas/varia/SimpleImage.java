@@ -106,6 +106,25 @@ public final class SimpleImage implements AutoCloseable {
         byteBuffer.put(u + v * this.width, value);
     }
 
+    /**
+     * Writes a rectangle of luminance values one row at a time without per-pixel
+     * bounds checks. Values are read row-major from {@code values} and truncated to bytes.
+     */
+    public void setLuminance(int u, int v, int width, int height, int[] values) {
+        assert this.bytesPerPixel == 1;
+        assert u + width <= this.width && v + height <= this.height;
+        assert values.length >= width * height;
+        assert pointer != 0L : "Image not allocated.";
+        
+        int i = 0;
+        for(int row = 0; row < height; row++) {
+            final long address = pointer + u + (v + row) * this.width;
+            for(int col = 0; col < width; col++) {
+                MemoryUtil.memPutByte(address + col, (byte) values[i++]);
+            }
+        }
+    }
+
     public void clearLuminance(byte value) {
         assert this.bytesPerPixel == 1;
         assert pointer != 0L : "Image not allocated.";
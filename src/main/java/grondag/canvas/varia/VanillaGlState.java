@@ -0,0 +1,353 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+
+package grondag.canvas.varia;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import org.joml.Matrix4f;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+
+import com.mojang.blaze3d.platform.GlStateManager;
+
+import grondag.canvas.Configurator;
+
+/**
+ * CPU-side copy of state set through {@link GlStateManager}, so batched draws can save
+ * and restore state without reading it back from GL. Updated by MixinGlStateManager before
+ * each call. Like GlStateManager's own cache, it can't see changes made with raw GL calls.<p>
+ * 
+ * Modelview is mirrored from matrix calls, but only while GUI item batching is enabled because
+ * nothing else reads it. Levels that can't be mirrored exactly are marked unknown and re-read
+ * from GL when next needed. Render thread only.
+ */
+public final class VanillaGlState {
+    private VanillaGlState() {}
+    
+    private static final int STACK_DEPTH = 64;
+    private static final int TEXTURE_UNITS = 32;
+    
+    private static final Matrix4f[] modelView = new Matrix4f[STACK_DEPTH];
+    private static final boolean[] modelViewKnown = new boolean[STACK_DEPTH];
+    private static int depth = 0;
+    private static int matrixMode = GL11.GL_MODELVIEW;
+    private static boolean mirrorMatrix = false;
+    
+    /** Non-zero while inside multMatrix(Matrix4f), which may or may not delegate to multMatrix(FloatBuffer) */
+    private static int mcMatrixCalls = 0;
+    private static boolean mcMatrixApplied = false;
+    
+    private static final FloatBuffer readBuffer = BufferUtils.createFloatBuffer(16);
+    private static final Matrix4f multiplier = new Matrix4f();
+    
+    static {
+        for(int i = 0; i < STACK_DEPTH; i++) {
+            modelView[i] = new Matrix4f();
+        }
+        modelViewKnown[0] = true;
+    }
+    
+    private static boolean blend = false;
+    private static boolean alphaTest = false;
+    private static boolean depthTest = false;
+    private static boolean lighting = false;
+    private static int blendSrcRgb = GL11.GL_ONE;
+    private static int blendDstRgb = GL11.GL_ZERO;
+    private static int blendSrcAlpha = GL11.GL_ONE;
+    private static int blendDstAlpha = GL11.GL_ZERO;
+    private static int alphaFunc = GL11.GL_ALWAYS;
+    private static float alphaRef = 0;
+    private static boolean colorKnown = true;
+    private static float red = 1, green = 1, blue = 1, alpha = 1;
+    private static int activeTexture = 0;
+    private static final boolean[] textureEnabled = new boolean[TEXTURE_UNITS];
+    private static final int[] boundTexture = new int[TEXTURE_UNITS];
+    
+    /**
+     * State that batched draws change. Holds values from {@link VanillaGlState#save(Saved)}
+     * until they are put back by {@link VanillaGlState#restore(Saved)}.
+     */
+    public static final class Saved {
+        private boolean blend;
+        private boolean alphaTest;
+        private boolean depthTest;
+        private boolean lighting;
+        private int blendSrcRgb;
+        private int blendDstRgb;
+        private int blendSrcAlpha;
+        private int blendDstAlpha;
+        private int alphaFunc;
+        private float alphaRef;
+        private boolean colorKnown;
+        private float red, green, blue, alpha;
+        private int activeTexture;
+        private boolean textureEnabled;
+        private int boundTexture;
+    }
+    
+    public static void save(Saved s) {
+        s.blend = blend;
+        s.alphaTest = alphaTest;
+        s.depthTest = depthTest;
+        s.lighting = lighting;
+        s.blendSrcRgb = blendSrcRgb;
+        s.blendDstRgb = blendDstRgb;
+        s.blendSrcAlpha = blendSrcAlpha;
+        s.blendDstAlpha = blendDstAlpha;
+        s.alphaFunc = alphaFunc;
+        s.alphaRef = alphaRef;
+        s.colorKnown = colorKnown;
+        s.red = red;
+        s.green = green;
+        s.blue = blue;
+        s.alpha = alpha;
+        s.activeTexture = activeTexture;
+        s.textureEnabled = textureEnabled[activeTexture];
+        s.boundTexture = boundTexture[activeTexture];
+    }
+    
+    /** Restores saved state through GlStateManager, which skips calls for state that didn't change */
+    public static void restore(Saved s) {
+        GlStateManager.activeTexture(GL13.GL_TEXTURE0 + s.activeTexture);
+        GlStateManager.bindTexture(s.boundTexture == -1 ? 0 : s.boundTexture);
+        
+        if(s.textureEnabled) {
+            GlStateManager.enableTexture();
+        } else {
+            GlStateManager.disableTexture();
+        }
+        
+        GlStateManager.blendFuncSeparate(s.blendSrcRgb, s.blendDstRgb, s.blendSrcAlpha, s.blendDstAlpha);
+        GlStateManager.alphaFunc(s.alphaFunc, s.alphaRef);
+        
+        if(s.colorKnown) {
+            GlStateManager.color4f(s.red, s.green, s.blue, s.alpha);
+        } else {
+            GlStateManager.clearCurrentColor();
+        }
+        
+        if(s.blend) {
+            GlStateManager.enableBlend();
+        } else {
+            GlStateManager.disableBlend();
+        }
+        
+        if(s.alphaTest) {
+            GlStateManager.enableAlphaTest();
+        } else {
+            GlStateManager.disableAlphaTest();
+        }
+        
+        if(s.depthTest) {
+            GlStateManager.enableDepthTest();
+        } else {
+            GlStateManager.disableDepthTest();
+        }
+        
+        if(s.lighting) {
+            GlStateManager.enableLighting();
+        } else {
+            GlStateManager.disableLighting();
+        }
+    }
+    
+    /**
+     * True if modelview should be mirrored. When mirroring starts, the stack position
+     * is unknown so every level is marked unknown. Depth can then be lower than the
+     * real stack but levels only become known from identity or a GL read, so values
+     * are never wrong.
+     */
+    private static boolean mirrorMatrix() {
+        final boolean enabled = Configurator.itemShaderRender && Configurator.batchGuiItems;
+        
+        if(enabled != mirrorMatrix) {
+            mirrorMatrix = enabled;
+            if(enabled) {
+                depth = 0;
+                Arrays.fill(modelViewKnown, false);
+            }
+        }
+        
+        return enabled;
+    }
+    
+    /**
+     * Copies current modelview matrix, column-major, into target. Reads it from GL
+     * only if it could not be mirrored.
+     */
+    public static void modelView(float[] target) {
+        // first, because it can reset depth
+        final boolean mirrored = mirrorMatrix();
+        final Matrix4f m = modelView[depth];
+        
+        if(!mirrored || !modelViewKnown[depth]) {
+            final FloatBuffer buffer = readBuffer;
+            buffer.clear();
+            GlStateManager.getMatrix(GL11.GL_MODELVIEW_MATRIX, buffer);
+            m.set(buffer);
+            modelViewKnown[depth] = true;
+        }
+        
+        m.get(target, 0);
+    }
+    
+    // Called by MixinGlStateManager
+    
+    public static void onMatrixMode(int mode) {
+        matrixMode = mode;
+    }
+    
+    public static void onPushMatrix() {
+        if(matrixMode == GL11.GL_MODELVIEW && mirrorMatrix()) {
+            if(depth == STACK_DEPTH - 1) {
+                modelViewKnown[depth] = false;
+            } else {
+                modelView[depth + 1].set(modelView[depth]);
+                modelViewKnown[depth + 1] = modelViewKnown[depth];
+                depth++;
+            }
+        }
+    }
+    
+    public static void onPopMatrix() {
+        if(matrixMode == GL11.GL_MODELVIEW && mirrorMatrix()) {
+            if(depth == 0) {
+                modelViewKnown[0] = false;
+            } else {
+                depth--;
+            }
+        }
+    }
+    
+    public static void onLoadIdentity() {
+        if(matrixMode == GL11.GL_MODELVIEW && mirrorMatrix()) {
+            modelView[depth].identity();
+            modelViewKnown[depth] = true;
+        }
+    }
+    
+    public static void onTranslate(float x, float y, float z) {
+        if(matrixMode == GL11.GL_MODELVIEW && mirrorMatrix()) {
+            modelView[depth].translate(x, y, z);
+        }
+    }
+    
+    public static void onScale(float x, float y, float z) {
+        if(matrixMode == GL11.GL_MODELVIEW && mirrorMatrix()) {
+            modelView[depth].scale(x, y, z);
+        }
+    }
+    
+    public static void onRotate(float degrees, float x, float y, float z) {
+        if(matrixMode == GL11.GL_MODELVIEW && mirrorMatrix()) {
+            final float len = (float) Math.sqrt(x * x + y * y + z * z);
+            if(len == 0) {
+                modelViewKnown[depth] = false;
+            } else {
+                modelView[depth].rotate((float) Math.toRadians(degrees), x / len, y / len, z / len);
+            }
+        }
+    }
+    
+    public static void onOrtho(double left, double right, double bottom, double top, double zNear, double zFar) {
+        if(matrixMode == GL11.GL_MODELVIEW && mirrorMatrix()) {
+            modelView[depth].ortho((float) left, (float) right, (float) bottom, (float) top, (float) zNear, (float) zFar);
+        }
+    }
+    
+    public static void onMultMatrix(FloatBuffer matrix) {
+        if(matrixMode == GL11.GL_MODELVIEW && mirrorMatrix()) {
+            modelView[depth].mul(multiplier.set(matrix));
+            mcMatrixApplied = true;
+        }
+    }
+    
+    public static void beforeMcMultMatrix() {
+        if(mcMatrixCalls++ == 0) {
+            mcMatrixApplied = false;
+        }
+    }
+    
+    /** Minecraft matrix contents aren't accessible here - if it wasn't passed on as a FloatBuffer, level is unknown */
+    public static void afterMcMultMatrix() {
+        if(--mcMatrixCalls == 0 && !mcMatrixApplied && matrixMode == GL11.GL_MODELVIEW && mirrorMatrix()) {
+            modelViewKnown[depth] = false;
+        }
+    }
+    
+    public static void onEnableBlend(boolean enable) {
+        blend = enable;
+    }
+    
+    public static void onEnableAlphaTest(boolean enable) {
+        alphaTest = enable;
+    }
+    
+    public static void onEnableDepthTest(boolean enable) {
+        depthTest = enable;
+    }
+    
+    public static void onEnableLighting(boolean enable) {
+        lighting = enable;
+    }
+    
+    public static void onBlendFunc(int srcRgb, int dstRgb, int srcAlpha, int dstAlpha) {
+        blendSrcRgb = srcRgb;
+        blendDstRgb = dstRgb;
+        blendSrcAlpha = srcAlpha;
+        blendDstAlpha = dstAlpha;
+    }
+    
+    public static void onAlphaFunc(int func, float ref) {
+        alphaFunc = func;
+        alphaRef = ref;
+    }
+    
+    public static void onColor(float r, float g, float b, float a) {
+        colorKnown = true;
+        red = r;
+        green = g;
+        blue = b;
+        alpha = a;
+    }
+    
+    public static void onClearColor() {
+        colorKnown = false;
+    }
+    
+    public static void onActiveTexture(int texture) {
+        activeTexture = texture - GL13.GL_TEXTURE0;
+    }
+    
+    public static void onEnableTexture(boolean enable) {
+        textureEnabled[activeTexture] = enable;
+    }
+    
+    public static void onBindTexture(int texture) {
+        boundTexture[activeTexture] = texture;
+    }
+    
+    public static void onDeleteTexture(int texture) {
+        for(int i = 0; i < TEXTURE_UNITS; i++) {
+            if(boundTexture[i] == texture) {
+                boundTexture[i] = -1;
+            }
+        }
+    }
+}
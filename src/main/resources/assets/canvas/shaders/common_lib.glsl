@@ -1,5 +1,6 @@
 #version 120
 #extension GL_EXT_gpu_shader4 : enable
+#extension GL_ARB_uniform_buffer_object : enable
 
 #define TRUE 1
 #define FALSE 0
@@ -66,13 +67,28 @@
 #define DIMENSION_NETHER 0
 #define DIMENSION_END 2
 
+// true if frame-global uniforms come from a shared uniform buffer
+#define USE_FRAME_UBO FALSE
+
+#if USE_FRAME_UBO
+// layout must match FrameUniformBuffer
+layout(std140) uniform CanvasFrameData {
+    float u_world[8];
+    vec4 u_emissiveColor;
+    vec3 u_eye_position;
+    float u_time;
+    int u_fogMode;
+};
+#else
 uniform float[8] u_world;
 uniform float u_time;
-uniform sampler2D u_textures;
-uniform sampler2D u_lightmap;
 uniform vec4 u_emissiveColor;
 uniform vec3 u_eye_position;
 uniform int u_fogMode;
+#endif
+
+uniform sampler2D u_textures;
+uniform sampler2D u_lightmap;
 
 #if CONTEXT_IS_BLOCK
     varying float v_ao;
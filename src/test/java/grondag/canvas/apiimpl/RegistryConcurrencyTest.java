@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright 2019 grondag
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+
+package grondag.canvas.apiimpl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import net.minecraft.block.BlockRenderLayer;
+
+/**
+ * Stresses the copy-on-write registries: many threads register and look up at once.
+ * Every thread must get the same instance for the same key, indices must be unique
+ * and dense, and index lookups must return the registered instance.
+ */
+public class RegistryConcurrencyTest {
+    private static final int THREADS = 8;
+    
+    /** Runs task on all threads at once and returns per-thread results */
+    private static <T> List<T> runConcurrently(Callable<T> task) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        try {
+            final List<Future<T>> futures = new ArrayList<>();
+            for(int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    barrier.await();
+                    return task.call();
+                }));
+            }
+            
+            final List<T> results = new ArrayList<>();
+            for(Future<T> f : futures) {
+                results.add(f.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /** Same keys for every thread, in a different order per thread */
+    private static List<Integer> shuffledKeys(int count) {
+        final List<Integer> keys = new ArrayList<>();
+        for(int i = 0; i < count; i++) {
+            keys.add(i);
+        }
+        Collections.shuffle(keys, new Random(Thread.currentThread().getId()));
+        return keys;
+    }
+    
+    @Test
+    public void conditionsRegisterWithUniqueIndices() throws Exception {
+        final int perThread = 4;
+        
+        final List<List<MaterialConditionImpl>> results = runConcurrently(() -> {
+            final List<MaterialConditionImpl> created = new ArrayList<>();
+            for(int i = 0; i < perThread; i++) {
+                created.add(new MaterialConditionImpl(() -> true, true, false));
+                // concurrent reads of everything published so far
+                for(int j = 0; j <= created.get(i).index; j++) {
+                    MaterialConditionImpl.fromIndex(j).hashCode();
+                }
+            }
+            return created;
+        });
+        
+        final HashSet<Integer> indices = new HashSet<>();
+        for(List<MaterialConditionImpl> list : results) {
+            for(MaterialConditionImpl c : list) {
+                assertTrue("duplicate condition index " + c.index, indices.add(c.index));
+                assertSame(c, MaterialConditionImpl.fromIndex(c.index));
+            }
+        }
+        assertEquals(THREADS * perThread, indices.size());
+    }
+    
+    @Test
+    public void materialsAreSharedWithUniqueIndices() throws Exception {
+        // explicit shader so find() never falls back to the GL-backed default
+        final MaterialShaderImpl shader = new MaterialShaderImpl(0, null, null);
+        final BlockRenderLayer[] layers = { BlockRenderLayer.SOLID, BlockRenderLayer.CUTOUT, BlockRenderLayer.CUTOUT_MIPPED, BlockRenderLayer.TRANSLUCENT };
+        final int keyCount = 3 * layers.length * 4;
+        
+        final List<Map<Integer, RenderMaterialImpl.Value>> results = runConcurrently(() -> {
+            final Map<Integer, RenderMaterialImpl.Value> seen = new HashMap<>();
+            final RenderMaterialImpl.Finder finder = new RenderMaterialImpl.Finder();
+            for(int key : shuffledKeys(keyCount)) {
+                finder.clear()
+                    .shader(shader)
+                    .spriteDepth(key % 3 + 1)
+                    .blendMode(0, layers[(key / 3) % layers.length])
+                    .emissive(0, (key & 16) != 0)
+                    .disableAo(0, (key & 32) != 0);
+                seen.put(key, finder.find());
+            }
+            return seen;
+        });
+        
+        final Map<Integer, RenderMaterialImpl.Value> first = results.get(0);
+        for(Map<Integer, RenderMaterialImpl.Value> other : results) {
+            assertEquals(keyCount, other.size());
+            for(Map.Entry<Integer, RenderMaterialImpl.Value> e : other.entrySet()) {
+                assertSame(first.get(e.getKey()), e.getValue());
+            }
+        }
+        
+        // includes block layer variants created while registering
+        final HashSet<RenderMaterialImpl.Value> distinct = new HashSet<>(first.values());
+        int index = 0;
+        for(;; index++) {
+            final RenderMaterialImpl.Value v;
+            try {
+                v = RenderMaterialImpl.byIndex(index);
+            } catch (ArrayIndexOutOfBoundsException e) {
+                break;
+            }
+            assertEquals("material index does not match position", index, v.index());
+            distinct.remove(v);
+        }
+        
+        assertTrue("materials missing from index: " + distinct.size(), distinct.isEmpty());
+    }
+}